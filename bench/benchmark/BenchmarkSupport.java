@@ -0,0 +1,200 @@
+package benchmark;
+
+import database.Database;
+import model.Money;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared helpers for the benchmark harnesses: seeding test accounts and writing results as JSON.
+ * Benchmarks talk to whatever database {@link Database} is configured for (bank.db.* system properties),
+ * so point them at a scratch schema, never at production.
+ */
+public final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Creates a throwaway user owning {@code count} accounts with the given opening balance.
+     *
+     * @return The IDs of the created accounts, in creation order.
+     */
+    public static int[] seedAccounts(int count, Money openingBalance) throws SQLException {
+        int[] ids = new int[count];
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            int userId;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO users (username, password, role, locked, failed_attempts) VALUES (?, ?, 'USER', false, 0)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, "bench" + System.nanoTime());
+                pstmt.setString(2, "!"); // Not a valid hash, so the user can never log in
+                pstmt.executeUpdate();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    keys.next();
+                    userId = keys.getInt(1);
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO accounts (user_id, balance) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < count; i++) {
+                    pstmt.setInt(1, userId);
+                    pstmt.setBigDecimal(2, openingBalance.toBigDecimal());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    for (int i = 0; i < count && keys.next(); i++) {
+                        ids[i] = keys.getInt(1);
+                    }
+                }
+            }
+            conn.commit();
+        }
+        return ids;
+    }
+
+    /**
+     * Sums the balances of the given accounts (used for conservation-of-money checks).
+     */
+    public static Money totalBalance(int[] accountIds) throws SQLException {
+        Money total = Money.ZERO;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT balance FROM accounts WHERE id = ?")) {
+            for (int id : accountIds) {
+                pstmt.setInt(1, id);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        total = total.plus(Money.of(rs.getBigDecimal(1)));
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Creates the application tables from the schema script if the configured database has none yet,
+     * so benchmarks can run against an empty embedded database
+     * (e.g. -Dbank.db.url=jdbc:h2:mem:bank;MODE=MySQL;DB_CLOSE_DELAY=-1 with H2 on the classpath).
+     * The CREATE DATABASE / USE lines are skipped; the connection URL already selects the schema.
+     *
+     * @param schemaScript Path to shema.sql (bench.schema property, default src/sql/shema.sql).
+     */
+    public static void createSchemaIfMissing(Path schemaScript) throws IOException, SQLException {
+        try (Connection conn = Database.getConnection()) {
+            try (ResultSet tables = conn.getMetaData().getTables(null, null, "%", new String[]{"TABLE"})) {
+                while (tables.next()) {
+                    if ("accounts".equalsIgnoreCase(tables.getString("TABLE_NAME"))) {
+                        return; // Already set up
+                    }
+                }
+            }
+
+            StringBuilder script = new StringBuilder();
+            for (String line : Files.readAllLines(schemaScript, StandardCharsets.UTF_8)) {
+                int comment = line.indexOf("--");
+                script.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+            }
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : script.toString().split(";")) {
+                    String trimmed = sql.trim();
+                    String upper = trimmed.toUpperCase();
+                    if (trimmed.isEmpty() || upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")) {
+                        continue;
+                    }
+                    stmt.execute(trimmed);
+                }
+            }
+            System.out.println("Created schema from " + schemaScript);
+        }
+    }
+
+    /**
+     * @return The database product name and version, recorded with results so runs on different engines are not compared.
+     */
+    public static String databaseProduct() throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            DatabaseMetaData metaData = conn.getMetaData();
+            return metaData.getDatabaseProductName() + " " + metaData.getDatabaseProductVersion();
+        }
+    }
+
+    public static int intProperty(String name, int defaultValue) {
+        return Integer.getInteger("bench." + name, defaultValue);
+    }
+
+    /**
+     * Ordered JSON object builder; enough for flat benchmark reports without pulling in a JSON library.
+     */
+    public static class JsonObject {
+        private final Map<String, Object> fields = new LinkedHashMap<>();
+
+        public JsonObject put(String key, Object value) {
+            fields.put(key, value);
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("{");
+            boolean first = true;
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                first = false;
+                sb.append(quote(field.getKey())).append(": ").append(format(field.getValue()));
+            }
+            return sb.append('}').toString();
+        }
+
+        private static String format(Object value) {
+            if (value == null) {
+                return "null";
+            }
+            if (value instanceof Number || value instanceof Boolean || value instanceof JsonObject) {
+                return value.toString();
+            }
+            if (value instanceof Iterable<?> items) {
+                StringBuilder sb = new StringBuilder("[");
+                boolean first = true;
+                for (Object item : items) {
+                    if (!first) {
+                        sb.append(", ");
+                    }
+                    first = false;
+                    sb.append(format(item));
+                }
+                return sb.append(']').toString();
+            }
+            return quote(value.toString());
+        }
+
+        private static String quote(String s) {
+            return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+    }
+
+    public static void writeJson(Path file, Object json) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(json.toString());
+            writer.write(System.lineSeparator());
+        }
+        System.out.println("Results written to " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,166 @@
+package benchmark;
+
+import dao.AccountDAO;
+import dao.AccountRepository;
+import dao.TransactionDAO;
+import dao.UserDAO;
+import database.Database;
+import model.Money;
+import model.Transaction;
+import model.User;
+import util.PasswordUtil;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Single-threaded throughput/latency suites for the DAO and PasswordUtil hot paths:
+ * AccountDAO deposit/withdraw/transfer/batchTransfer, TransactionDAO saveTransaction/getHistoryByAccountId,
+ * UserDAO.login and PasswordUtil hashPassword/verifyPassword.
+ *
+ * Runs against whatever bank.db.url points at. For a reproducible run with nothing installed, use an embedded
+ * H2 database in MySQL mode; the schema is created from shema.sql when the database is empty:
+ *
+ * java -cp out:h2.jar:jbcrypt.jar -Dbank.db.url="jdbc:h2:mem:bank;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+ *      -Dbench.accounts=1000 -Dbench.historyRows=100000 -Dbench.include=account\..* benchmark.DaoBenchmarks [out.json]
+ *
+ * Other settings: bench.batchLines (lines per account.batchTransfer call, 100), bench.historyLimit, bench.warmupIterations, bench.iterations, bench.iterationMillis, bench.schema.
+ */
+public class DaoBenchmarks {
+
+    private static final Money AMOUNT = Money.ofCents(100);
+    private static final String LOGIN_PASSWORD = "Bench-Password-1";
+
+    public static void main(String[] args) throws Exception {
+        int accountCount = Math.max(2, BenchmarkSupport.intProperty("accounts", 1000));
+        int historyRows = BenchmarkSupport.intProperty("historyRows", 100_000);
+        int historyLimit = BenchmarkSupport.intProperty("historyLimit", 50);
+        int batchLines = BenchmarkSupport.intProperty("batchLines", 100);
+        Pattern include = Pattern.compile(System.getProperty("bench.include", ".*"));
+        Path output = Path.of(args.length > 0 ? args[0] : "dao-benchmarks.json");
+
+        BenchmarkSupport.createSchemaIfMissing(Path.of(System.getProperty("bench.schema", "src/sql/shema.sql")));
+
+        // Seed data shared by all suites
+        int[] accounts = BenchmarkSupport.seedAccounts(accountCount, Money.ofCents(100_000_000));
+        seedHistory(accounts, historyRows);
+        String loginUsername = "benchlogin" + System.nanoTime();
+        User loginUser = new User();
+        loginUser.setUsername(loginUsername);
+        loginUser.setPassword(LOGIN_PASSWORD);
+        loginUser.setRole(User.Role.USER);
+        if (new UserDAO().register(loginUser) == null) {
+            throw new IllegalStateException("Could not create the login benchmark user");
+        }
+        String storedHash = PasswordUtil.hashPassword(LOGIN_PASSWORD);
+
+        AccountDAO accountDAO = new AccountDAO();
+        TransactionDAO transactionDAO = new TransactionDAO();
+        UserDAO userDAO = new UserDAO();
+        Microbenchmark runner = Microbenchmark.fromProperties();
+        List<Object> results = new ArrayList<>();
+
+        // The DAOs report failures by returning false/null, so a failed call must fail the benchmark explicitly
+        // instead of being measured as a (much faster) success
+        if (include.matcher("account.deposit").matches()) {
+            results.add(runner.run("account.deposit",
+                    () -> check(accountDAO.deposit(randomAccount(accounts), AMOUNT), "deposit")));
+        }
+        if (include.matcher("account.withdraw").matches()) {
+            results.add(runner.run("account.withdraw",
+                    () -> check(accountDAO.withdraw(randomAccount(accounts), AMOUNT), "withdraw")));
+        }
+        if (include.matcher("account.transfer").matches()) {
+            results.add(runner.run("account.transfer", () -> {
+                int from = randomAccount(accounts);
+                int to = randomAccount(accounts);
+                while (to == from) {
+                    to = randomAccount(accounts);
+                }
+                return check(accountDAO.transfer(from, to, AMOUNT), "transfer");
+            }));
+        }
+        if (include.matcher("account.batchTransfer").matches()) {
+            // One payer, as in a payroll run; compare per line with account.transfer
+            results.add(runner.run("account.batchTransfer", () -> {
+                int from = accounts[0];
+                List<AccountRepository.TransferLine> lines = new ArrayList<>(batchLines);
+                for (int i = 0; i < batchLines; i++) {
+                    int to = randomAccount(accounts);
+                    lines.add(new AccountRepository.TransferLine(to == from ? accounts[1] : to, AMOUNT));
+                }
+                for (AccountRepository.TransferStatus status : accountDAO.batchTransfer(from, lines)) {
+                    if (status != AccountRepository.TransferStatus.COMPLETED) {
+                        throw new IllegalStateException("batchTransfer line " + status);
+                    }
+                }
+                return true;
+            }).put("linesPerOp", batchLines));
+        }
+        if (include.matcher("transaction.saveTransaction").matches()) {
+            results.add(runner.run("transaction.saveTransaction", () -> check(transactionDAO.saveTransaction(
+                    new Transaction(randomAccount(accounts), Transaction.TransactionType.DEPOSIT, AMOUNT, null)), "saveTransaction")));
+        }
+        if (include.matcher("transaction.getHistoryByAccountId").matches()) {
+            results.add(runner.run("transaction.getHistoryByAccountId",
+                    () -> transactionDAO.getHistoryByAccountId(randomAccount(accounts), historyLimit)));
+        }
+        if (include.matcher("user.login").matches()) {
+            results.add(runner.run("user.login", () -> {
+                if (userDAO.login(loginUsername, LOGIN_PASSWORD) == null) {
+                    throw new IllegalStateException("login failed");
+                }
+                return true;
+            }));
+        }
+        if (include.matcher("password.hashPassword").matches()) {
+            results.add(runner.run("password.hashPassword", () -> PasswordUtil.hashPassword(LOGIN_PASSWORD)));
+        }
+        if (include.matcher("password.verifyPassword").matches()) {
+            results.add(runner.run("password.verifyPassword",
+                    () -> check(PasswordUtil.verifyPassword(LOGIN_PASSWORD, storedHash), "verifyPassword")));
+        }
+
+        BenchmarkSupport.writeJson(output, new BenchmarkSupport.JsonObject()
+                .put("suite", "dao")
+                .put("database", BenchmarkSupport.databaseProduct())
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("accounts", accountCount)
+                .put("historyRows", historyRows)
+                .put("historyLimit", historyLimit)
+                .put("batchLines", batchLines)
+                .put("results", results));
+        Database.closeConnection();
+    }
+
+    /**
+     * Spreads historyRows deposit rows randomly over the seeded accounts, so history queries hit a realistically sized index.
+     */
+    private static void seedHistory(int[] accounts, int historyRows) {
+        TransactionDAO transactionDAO = new TransactionDAO();
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < historyRows; i++) {
+            batch.add(new Transaction(randomAccount(accounts), Transaction.TransactionType.DEPOSIT, AMOUNT, null));
+            if (batch.size() == 10_000 || i == historyRows - 1) {
+                if (!transactionDAO.saveBatch(batch)) {
+                    throw new IllegalStateException("Could not seed transaction history");
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private static int randomAccount(int[] accounts) {
+        return accounts[ThreadLocalRandom.current().nextInt(accounts.length)];
+    }
+
+    private static boolean check(boolean ok, String operation) {
+        if (!ok) {
+            throw new IllegalStateException(operation + " failed");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package benchmark;
+
+import dao.AccountDAO;
+import database.Database;
+import model.Money;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares how long withdraw/transfer hold the hot row lock in LOCK_AND_CHECK vs CONDITIONAL_UPDATE mode.
+ *
+ * Every worker transfers from its own cold account into one shared hot account, so every operation
+ * needs the hot row and they run strictly one after another on it. The hot row's lock hold time per
+ * operation is then elapsed time / completed operations, with no server-side instrumentation needed.
+ * A single-threaded pass gives the uncontended latency of each mode for comparison.
+ *
+ * Usage: java -Dbank.db.url=... -Dbench.threads=8 -Dbench.seconds=10 benchmark.LockHoldBenchmark [out.json]
+ */
+public class LockHoldBenchmark {
+
+    private static final Money AMOUNT = Money.ofCents(100);
+
+    public static void main(String[] args) throws Exception {
+        int threads = BenchmarkSupport.intProperty("threads", 8);
+        int seconds = BenchmarkSupport.intProperty("seconds", 10);
+        Path output = Path.of(args.length > 0 ? args[0] : "lock-hold-benchmark.json");
+
+        List<Object> results = new ArrayList<>();
+        for (AccountDAO.BalanceUpdateMode mode : AccountDAO.BalanceUpdateMode.values()) {
+            AccountDAO accountDAO = new AccountDAO(mode);
+            results.add(run(accountDAO, 1, seconds).put("phase", "uncontended"));
+            results.add(run(accountDAO, threads, seconds).put("phase", "hot-row"));
+        }
+
+        BenchmarkSupport.writeJson(output, new BenchmarkSupport.JsonObject()
+                .put("benchmark", "lock-hold")
+                .put("threads", threads)
+                .put("seconds", seconds)
+                .put("results", results));
+        Database.closeConnection();
+    }
+
+    private static BenchmarkSupport.JsonObject run(AccountDAO accountDAO, int threads, int seconds) throws Exception {
+        // Account 0 is the hot one; each worker gets its own cold source account
+        int[] accounts = BenchmarkSupport.seedAccounts(threads + 1, Money.ofCents(100_000_000));
+        int hotAccount = accounts[0];
+
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAdder latencyNanos = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int source = accounts[t + 1];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    // Mostly transfers into the hot row, with the occasional withdrawal from it
+                    boolean ok = ThreadLocalRandom.current().nextInt(10) == 0
+                            ? accountDAO.withdraw(hotAccount, AMOUNT)
+                            : accountDAO.transfer(source, hotAccount, AMOUNT);
+                    latencyNanos.add(System.nanoTime() - begin);
+                    (ok ? completed : failed).increment();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long ops = completed.sum();
+        long calls = ops + failed.sum();
+        double lockHoldMicros = ops == 0 ? 0 : elapsed / 1000.0 / ops;
+        double meanLatencyMicros = calls == 0 ? 0 : latencyNanos.sum() / 1000.0 / calls;
+        System.out.printf("%-18s threads=%-3d ops=%-8d ops/s=%-10.1f lock hold=%8.1f us  mean latency=%8.1f us%n",
+                accountDAO.getBalanceUpdateMode(), threads, ops, ops / (elapsed / 1e9), lockHoldMicros, meanLatencyMicros);
+
+        return new BenchmarkSupport.JsonObject()
+                .put("mode", accountDAO.getBalanceUpdateMode().name())
+                .put("threads", threads)
+                .put("operations", ops)
+                .put("failures", failed.sum())
+                .put("opsPerSecond", ops / (elapsed / 1e9))
+                .put("hotRowLockHoldMicros", lockHoldMicros)
+                .put("meanLatencyMicros", meanLatencyMicros);
+    }
+}
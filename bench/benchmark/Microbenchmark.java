@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal JMH-style runner: a number of timed warmup iterations whose results are thrown away,
+ * then timed measurement iterations whose throughput and latency are reported.
+ * Each operation's return value is fed to {@link #consume(Object)} so the JIT cannot drop the call as dead code.
+ */
+public final class Microbenchmark {
+
+    /**
+     * One benchmarked operation. Throwing fails the whole benchmark.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+
+    private static volatile Object sink; // Written on every call, never read
+
+    public Microbenchmark(int warmupIterations, int measurementIterations, int iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    /**
+     * Reads bench.warmupIterations, bench.iterations and bench.iterationMillis.
+     */
+    public static Microbenchmark fromProperties() {
+        return new Microbenchmark(
+                BenchmarkSupport.intProperty("warmupIterations", 3),
+                BenchmarkSupport.intProperty("iterations", 5),
+                BenchmarkSupport.intProperty("iterationMillis", 2000));
+    }
+
+    public static void consume(Object value) {
+        sink = value;
+    }
+
+    /**
+     * Runs the warmup and measurement iterations for one operation and prints a one-line summary.
+     *
+     * @return The result as a JSON object (throughput per iteration, mean, error and latency percentiles).
+     */
+    public BenchmarkSupport.JsonObject run(String name, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(operation, null);
+        }
+
+        double[] opsPerSecond = new double[measurementIterations];
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < measurementIterations; i++) {
+            opsPerSecond[i] = iterate(operation, latencies);
+        }
+
+        double mean = Arrays.stream(opsPerSecond).average().orElse(0);
+        double variance = measurementIterations < 2 ? 0 : Arrays.stream(opsPerSecond)
+                .map(x -> (x - mean) * (x - mean)).sum() / (measurementIterations - 1);
+        double error = measurementIterations < 2 ? 0 : 2 * Math.sqrt(variance / measurementIterations); // ~95% interval
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double p50 = percentileMicros(sorted, 0.50);
+        double p99 = percentileMicros(sorted, 0.99);
+        System.out.printf("%-34s %12.1f ± %8.1f ops/s   p50=%10.1f us  p99=%10.1f us%n", name, mean, error, p50, p99);
+
+        List<Object> iterations = new ArrayList<>();
+        for (double value : opsPerSecond) {
+            iterations.add(value);
+        }
+        return new BenchmarkSupport.JsonObject()
+                .put("benchmark", name)
+                .put("mode", "throughput")
+                .put("warmupIterations", warmupIterations)
+                .put("measurementIterations", measurementIterations)
+                .put("iterationMillis", iterationNanos / 1_000_000)
+                .put("opsPerSecond", mean)
+                .put("opsPerSecondError", error)
+                .put("iterations", iterations)
+                .put("samples", sorted.length)
+                .put("p50Micros", p50)
+                .put("p99Micros", p99)
+                .put("maxMicros", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0);
+    }
+
+    /**
+     * Calls the operation repeatedly for one iteration's duration; always completes at least one call.
+     *
+     * @param latencies Receives every call's latency in nanoseconds, or null during warmup.
+     * @return The throughput of this iteration in operations per second.
+     */
+    private double iterate(Operation operation, List<Long> latencies) throws Exception {
+        long begin = System.nanoTime();
+        long deadline = begin + iterationNanos;
+        long ops = 0;
+        long now;
+        do {
+            long start = System.nanoTime();
+            consume(operation.run());
+            now = System.nanoTime();
+            if (latencies != null) {
+                latencies.add(now - start);
+            }
+            ops++;
+        } while (now < deadline);
+        return ops / ((now - begin) / 1e9);
+    }
+
+    private static double percentileMicros(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+}
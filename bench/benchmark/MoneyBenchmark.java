@@ -0,0 +1,145 @@
+package benchmark;
+
+import model.Money;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the balance arithmetic of deposit/withdraw/transfer done three ways, without a database:
+ * <ul>
+ *   <li>money.bigDecimal: BigDecimal balances with compareTo/add/subtract (the model before Money);</li>
+ *   <li>money.object: Money balances with isLessThan/plus/minus;</li>
+ *   <li>money.cents: primitive long cents, as AccountDAO now does between reading and writing a balance.</li>
+ * </ul>
+ * Each operation resets an array of balances and applies a fixed, pre-generated sequence of transfers to it,
+ * with an insufficient-funds check. Besides throughput, it reports heap bytes allocated per operation
+ * (HotSpot's per-thread allocation counter), which the cents variant brings down to the boxed return value.
+ *
+ * java -cp out [-Dbench.transfersPerOp=1000] benchmark.MoneyBenchmark [out.json]
+ */
+public class MoneyBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    public static void main(String[] args) throws Exception {
+        int transfersPerOp = BenchmarkSupport.intProperty("transfersPerOp", 1000);
+        Path output = Path.of(args.length > 0 ? args[0] : "money-benchmarks.json");
+
+        // The same transfers for every variant: from, to, and an amount between 0.01 and 100.00
+        SplittableRandom random = new SplittableRandom(42);
+        int[] from = new int[transfersPerOp];
+        int[] to = new int[transfersPerOp];
+        long[] amountCents = new long[transfersPerOp];
+        for (int i = 0; i < transfersPerOp; i++) {
+            from[i] = random.nextInt(ACCOUNTS);
+            to[i] = random.nextInt(ACCOUNTS);
+            amountCents[i] = 1 + random.nextInt(10_000);
+        }
+        BigDecimal[] decimalAmounts = new BigDecimal[transfersPerOp];
+        Money[] moneyAmounts = new Money[transfersPerOp];
+        for (int i = 0; i < transfersPerOp; i++) {
+            decimalAmounts[i] = BigDecimal.valueOf(amountCents[i], 2);
+            moneyAmounts[i] = Money.ofCents(amountCents[i]);
+        }
+
+        // Starting balances, copied in at the start of every operation so each one does the same work
+        BigDecimal[] decimalOpening = new BigDecimal[ACCOUNTS];
+        Money[] moneyOpening = new Money[ACCOUNTS];
+        long[] centOpening = new long[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            decimalOpening[i] = new BigDecimal("500.00");
+            moneyOpening[i] = Money.ofCents(50_000);
+            centOpening[i] = 50_000;
+        }
+        BigDecimal[] decimalBalances = new BigDecimal[ACCOUNTS];
+        Money[] moneyBalances = new Money[ACCOUNTS];
+        long[] centBalances = new long[ACCOUNTS];
+
+        Microbenchmark.Operation bigDecimal = () -> {
+            System.arraycopy(decimalOpening, 0, decimalBalances, 0, ACCOUNTS);
+            int applied = 0;
+            for (int i = 0; i < transfersPerOp; i++) {
+                BigDecimal amount = decimalAmounts[i];
+                if (amount.compareTo(BigDecimal.ZERO) <= 0 || decimalBalances[from[i]].compareTo(amount) < 0) {
+                    continue;
+                }
+                decimalBalances[from[i]] = decimalBalances[from[i]].subtract(amount);
+                decimalBalances[to[i]] = decimalBalances[to[i]].add(amount);
+                applied++;
+            }
+            return applied;
+        };
+        Microbenchmark.Operation object = () -> {
+            System.arraycopy(moneyOpening, 0, moneyBalances, 0, ACCOUNTS);
+            int applied = 0;
+            for (int i = 0; i < transfersPerOp; i++) {
+                Money amount = moneyAmounts[i];
+                if (!amount.isPositive() || moneyBalances[from[i]].isLessThan(amount)) {
+                    continue;
+                }
+                moneyBalances[from[i]] = moneyBalances[from[i]].minus(amount);
+                moneyBalances[to[i]] = moneyBalances[to[i]].plus(amount);
+                applied++;
+            }
+            return applied;
+        };
+        Microbenchmark.Operation cents = () -> {
+            System.arraycopy(centOpening, 0, centBalances, 0, ACCOUNTS);
+            int applied = 0;
+            for (int i = 0; i < transfersPerOp; i++) {
+                long amount = moneyAmounts[i].getCents();
+                if (amount <= 0 || centBalances[from[i]] < amount) {
+                    continue;
+                }
+                centBalances[from[i]] -= amount;
+                centBalances[to[i]] = Math.addExact(centBalances[to[i]], amount);
+                applied++;
+            }
+            return applied;
+        };
+
+        Microbenchmark runner = Microbenchmark.fromProperties();
+        List<Object> results = new ArrayList<>();
+        results.add(run(runner, "money.bigDecimal", bigDecimal));
+        results.add(run(runner, "money.object", object));
+        results.add(run(runner, "money.cents", cents));
+
+        BenchmarkSupport.writeJson(output, new BenchmarkSupport.JsonObject()
+                .put("suite", "money")
+                .put("javaVersion", System.getProperty("java.version"))
+                .put("transfersPerOp", transfersPerOp)
+                .put("results", results));
+    }
+
+    private static BenchmarkSupport.JsonObject run(Microbenchmark runner, String name, Microbenchmark.Operation operation) throws Exception {
+        BenchmarkSupport.JsonObject result = runner.run(name, operation);
+        double bytesPerOp = allocatedBytesPerOp(operation);
+        System.out.printf("%-34s %12.1f bytes/op%n", name, bytesPerOp);
+        return result.put("allocatedBytesPerOp", bytesPerOp);
+    }
+
+    /**
+     * Measured after the timed run, so the operation is already JIT-compiled (and escape analysis has done its part).
+     *
+     * @return Heap bytes allocated by this thread per operation, or -1 if the JVM cannot tell.
+     */
+    private static double allocatedBytesPerOp(Microbenchmark.Operation operation) throws Exception {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+        int ops = 10_000;
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ops; i++) {
+            Microbenchmark.consume(operation.run());
+        }
+        return (double) (threads.getThreadAllocatedBytes(threadId) - before) / ops;
+    }
+}
@@ -0,0 +1,356 @@
+package benchmark;
+
+import dao.AccountRepository;
+import dao.Page;
+import dao.StorageEngine;
+import database.Database;
+import model.Account;
+import model.ActivitySummary;
+import model.Money;
+import model.Transaction;
+import model.User;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conformance check for storage engines (see {@link StorageEngine}): runs the same scenarios over the money
+ * operations on each engine, checks every outcome against the expected one, and with both engines compares their
+ * outcomes line by line. Each engine must pass on its own and both must report identical outcomes.
+ *
+ * The JDBC engine runs against whatever bank.db.url points at (e.g. the H2 setup in {@link DaoBenchmarks});
+ * it creates its own users and accounts and deletes them afterwards.
+ *
+ * Usage: java benchmark.StorageConformance [memory|jdbc|both]  (default memory)
+ * Settings: bench.schema (for jdbc, as in DaoBenchmarks), conformance.threads (8) and conformance.transfers (500 per thread)
+ * for the concurrent scenario.
+ */
+public class StorageConformance {
+
+    private static final int MISSING_ACCOUNT = Integer.MAX_VALUE - 1;
+
+    private final StorageEngine engine;
+    private final String prefix = "conf" + System.nanoTime() + "_";
+    private final List<String> outcomes = new ArrayList<>(); // What each step returned, compared across engines
+    private final List<String> failures = new ArrayList<>();
+    private final List<Integer> createdUsers = new ArrayList<>();
+    private final Map<Integer, String> labels = new HashMap<>(); // Account IDs differ between engines; outcomes use labels
+    private int userCount;
+
+    public StorageConformance(StorageEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Runs every scenario.
+     *
+     * @return The outcomes, one line per step.
+     */
+    public List<String> run() {
+        try {
+            deposits();
+            withdrawals();
+            transfers();
+            batchTransfers();
+            balanceLimit();
+            historyPages();
+            users();
+            concurrentTransfers();
+        } finally {
+            for (int userId : createdUsers) {
+                engine.users().deleteUser(userId);
+            }
+        }
+        return outcomes;
+    }
+
+    public List<String> getFailures() {
+        return failures;
+    }
+
+    private void deposits() {
+        int a = open("deposit.a", 100_00);
+        expect("deposit.positive", engine.accounts().deposit(a, Money.ofCents(50_00)), true);
+        expect("deposit.zero", engine.accounts().deposit(a, Money.ZERO), false);
+        expect("deposit.negative", engine.accounts().deposit(a, Money.ofCents(-1)), false);
+        expect("deposit.null", engine.accounts().deposit(a, null), false);
+        expect("deposit.missingAccount", engine.accounts().deposit(MISSING_ACCOUNT, Money.ofCents(1)), false);
+        expect("deposit.balance", balance(a), "150.00");
+        expect("deposit.ledger", ledger(a), "[DEPOSIT 100.00 -, DEPOSIT 50.00 -]");
+        expect("deposit.ledgerMatchesBalance", ledgerTotal(a), balance(a));
+
+        ActivitySummary today = engine.transactions().getActivitySummary(a, LocalDate.now(), LocalDate.now());
+        expect("deposit.summary", today == null ? null : today.getDeposits() + " x" + today.getDepositCount(), "150.00 x2");
+    }
+
+    private void withdrawals() {
+        int a = open("withdraw.a", 100_00);
+        expect("withdraw.covered", engine.accounts().withdraw(a, Money.ofCents(30_00)), true);
+        expect("withdraw.insufficient", engine.accounts().withdraw(a, Money.ofCents(70_01)), false);
+        expect("withdraw.balanceAfterInsufficient", balance(a), "70.00");
+        expect("withdraw.wholeBalance", engine.accounts().withdraw(a, Money.ofCents(70_00)), true);
+        expect("withdraw.zero", engine.accounts().withdraw(a, Money.ZERO), false);
+        expect("withdraw.missingAccount", engine.accounts().withdraw(MISSING_ACCOUNT, Money.ofCents(1)), false);
+        expect("withdraw.balance", balance(a), "0.00");
+        expect("withdraw.ledger", ledger(a), "[DEPOSIT 100.00 -, WITHDRAW 30.00 -, WITHDRAW 70.00 -]");
+    }
+
+    private void transfers() {
+        int a = open("transfer.a", 100_00);
+        int b = open("transfer.b", 0);
+        expect("transfer.covered", engine.accounts().transfer(a, b, Money.ofCents(40_00)), true);
+        expect("transfer.insufficient", engine.accounts().transfer(a, b, Money.ofCents(60_01)), false);
+        expect("transfer.sameAccount", engine.accounts().transfer(a, a, Money.ofCents(1)), false);
+        expect("transfer.missingDestination", engine.accounts().transfer(a, MISSING_ACCOUNT, Money.ofCents(1)), false);
+        expect("transfer.missingSource", engine.accounts().transfer(MISSING_ACCOUNT, b, Money.ofCents(1)), false);
+        expect("transfer.zero", engine.accounts().transfer(b, a, Money.ZERO), false);
+        expect("transfer.balances", balance(a) + " " + balance(b), "60.00 40.00");
+        expect("transfer.ledgerSource", ledger(a), "[DEPOSIT 100.00 -, TRANSFER_OUT 40.00 transfer.b]");
+        expect("transfer.ledgerDestination", ledger(b), "[TRANSFER_IN 40.00 transfer.a]");
+
+        ActivitySummary today = engine.transactions().getActivitySummary(a, LocalDate.now(), LocalDate.now());
+        expect("transfer.summary", today == null ? null : today.getTransfersOut() + " x" + today.getTransferOutCount() + ", net " + today.getNetChange(),
+                "40.00 x1, net 60.00");
+    }
+
+    private void batchTransfers() {
+        int a = open("batch.a", 100_00);
+        int b = open("batch.b", 0);
+        int c = open("batch.c", 0);
+        List<AccountRepository.TransferLine> lines = List.of(
+                new AccountRepository.TransferLine(b, Money.ofCents(30_00)),
+                new AccountRepository.TransferLine(c, Money.ofCents(50_00)),
+                new AccountRepository.TransferLine(b, Money.ofCents(30_00)), // 20.00 left
+                new AccountRepository.TransferLine(c, Money.ZERO),
+                new AccountRepository.TransferLine(a, Money.ofCents(10_00)),
+                new AccountRepository.TransferLine(MISSING_ACCOUNT, Money.ofCents(5_00)),
+                new AccountRepository.TransferLine(c, Money.ofCents(20_00)));
+        expect("batch.statuses", engine.accounts().batchTransfer(a, lines).toString(),
+                "[COMPLETED, COMPLETED, INSUFFICIENT_FUNDS, INVALID, INVALID, ACCOUNT_NOT_FOUND, COMPLETED]");
+        expect("batch.balances", balance(a) + " " + balance(b) + " " + balance(c), "0.00 30.00 70.00");
+        expect("batch.ledgerDestination", ledger(c), "[TRANSFER_IN 20.00 batch.a, TRANSFER_IN 50.00 batch.a]");
+        expect("batch.missingSource", engine.accounts().batchTransfer(MISSING_ACCOUNT, List.of(new AccountRepository.TransferLine(b, Money.ofCents(1)))).toString(),
+                "[ACCOUNT_NOT_FOUND]");
+    }
+
+    // accounts.balance is DECIMAL(15, 2); no engine may hold more
+    private void balanceLimit() {
+        int a = open("limit.a", 0);
+        int b = open("limit.b", 1_00);
+        expect("limit.depositToMax", engine.accounts().deposit(a, Money.ofCents(999_999_999_999_999L)), true);
+        expect("limit.depositPastMax", engine.accounts().deposit(a, Money.ofCents(1)), false);
+        expect("limit.transferPastMax", engine.accounts().transfer(b, a, Money.ofCents(1)), false);
+        expect("limit.balances", balance(a) + " " + balance(b), "9999999999999.99 1.00");
+    }
+
+    private void historyPages() {
+        int a = open("history.a", 0);
+        for (int i = 1; i <= 5; i++) {
+            engine.accounts().deposit(a, Money.ofCents(i * 100));
+        }
+        List<String> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Transaction> page = engine.transactions().getHistoryPageByAccountId(a, cursor, 2);
+            List<String> amounts = new ArrayList<>();
+            for (Transaction transaction : page.getItems()) {
+                amounts.add(transaction.getAmount().toString());
+            }
+            pages.add(amounts.toString());
+            cursor = page.getNextCursor();
+        } while (cursor != null && pages.size() < 10);
+        expect("history.pages", pages.toString(), "[[5.00, 4.00], [3.00, 2.00], [1.00]]");
+        expect("history.limit", engine.transactions().getHistoryByAccountId(a, 3).size(), 3);
+    }
+
+    private void users() {
+        User user = newUser("users.a");
+        String username = user.getUsername();
+        expect("users.duplicateOtherCase", engine.users().register(user(username.toUpperCase(), "Other-Password-1")) == null, true);
+        expect("users.login", engine.users().login(username, "Conformance-1") != null, true);
+        for (int i = 0; i < 3; i++) {
+            engine.users().login(username, "wrong");
+        }
+        expect("users.lockedAfterFailures", engine.users().getUserByUsername(username).isLocked(), true);
+        expect("users.lockedLoginRefused", engine.users().login(username, "Conformance-1") == null, true);
+    }
+
+    // Random transfers between a few accounts from several threads: money is neither created nor lost,
+    // no balance goes negative, and every balance equals its ledger
+    private void concurrentTransfers() {
+        int threads = Integer.getInteger("conformance.threads", 8);
+        int transfersPerThread = Integer.getInteger("conformance.transfers", 500);
+        int[] accounts = new int[8];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = open("concurrent." + i, 1_000_00);
+        }
+
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < transfersPerThread; i++) {
+                        int from = accounts[random.nextInt(accounts.length)];
+                        int to = accounts[random.nextInt(accounts.length)];
+                        if (from != to && engine.accounts().transfer(from, to, Money.ofCents(random.nextLong(1, 300_00)))) {
+                            completed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            failures.add("concurrent: " + e);
+        } finally {
+            executor.shutdown();
+        }
+
+        long total = 0;
+        boolean nonNegative = true;
+        boolean ledgersMatch = true;
+        int transferOuts = 0;
+        for (int account : accounts) {
+            long cents = engine.accounts().getAccountById(account).getBalance().getCents();
+            total += cents;
+            nonNegative &= cents >= 0;
+            ledgersMatch &= ledgerTotal(account).equals(Money.ofCents(cents).toString());
+            for (Transaction transaction : engine.transactions().getHistoryByAccountId(account, 0)) {
+                if (transaction.getType() == Transaction.TransactionType.TRANSFER_OUT) {
+                    transferOuts++;
+                }
+            }
+        }
+        expect("concurrent.totalConserved", Money.ofCents(total).toString(), Money.ofCents(accounts.length * 1_000_00L).toString());
+        expect("concurrent.noNegativeBalance", nonNegative, true);
+        expect("concurrent.balancesMatchLedgers", ledgersMatch, true);
+        expect("concurrent.oneLedgerPairPerTransfer", transferOuts == completed.get(), true);
+    }
+
+    // Opens an account for a new user and funds it with a deposit, so it has a ledger row like any other money
+    private int open(String label, long cents) {
+        User user = newUser(label);
+        Account account = engine.accounts().createAccount(new Account(user.getId(), Money.ZERO));
+        if (account == null) {
+            throw new IllegalStateException("Could not open account " + label + " on the " + engine.name() + " engine");
+        }
+        labels.put(account.getId(), label);
+        if (cents > 0 && !engine.accounts().deposit(account.getId(), Money.ofCents(cents))) {
+            throw new IllegalStateException("Could not fund account " + label + " on the " + engine.name() + " engine");
+        }
+        return account.getId();
+    }
+
+    private User newUser(String label) {
+        User user = engine.users().register(user(prefix + (++userCount), "Conformance-1"));
+        if (user == null) {
+            throw new IllegalStateException("Could not register a user for " + label + " on the " + engine.name() + " engine");
+        }
+        createdUsers.add(user.getId());
+        return user;
+    }
+
+    private static User user(String username, String password) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        user.setRole(User.Role.USER);
+        return user;
+    }
+
+    private String balance(int accountId) {
+        Account account = engine.accounts().getAccountById(accountId);
+        return account != null ? account.getBalance().toString() : "missing";
+    }
+
+    // The ledger as sorted "TYPE amount counterparty" lines; row order within one second is not defined
+    private String ledger(int accountId) {
+        List<String> rows = new ArrayList<>();
+        for (Transaction transaction : engine.transactions().getHistoryByAccountId(accountId, 0)) {
+            Integer related = transaction.getRelatedAccountId();
+            rows.add(transaction.getType() + " " + transaction.getAmount() + " " + (related == null ? "-" : labels.getOrDefault(related, "?")));
+        }
+        rows.sort(null);
+        return rows.toString();
+    }
+
+    private String ledgerTotal(int accountId) {
+        long cents = 0;
+        for (Transaction transaction : engine.transactions().getHistoryByAccountId(accountId, 0)) {
+            long amount = transaction.getAmount().getCents();
+            cents += switch (transaction.getType()) {
+                case DEPOSIT, TRANSFER_IN -> amount;
+                case WITHDRAW, TRANSFER_OUT -> -amount;
+            };
+        }
+        return Money.ofCents(cents).toString();
+    }
+
+    private void expect(String step, Object actual, Object expected) {
+        outcomes.add(step + " = " + actual);
+        if (!String.valueOf(expected).equals(String.valueOf(actual))) {
+            failures.add(step + ": expected " + expected + ", got " + actual);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "memory";
+        if (args.length > 1 || !List.of("memory", "jdbc", "both").contains(mode)) {
+            System.err.println("Usage: StorageConformance [memory|jdbc|both]");
+            System.exit(2);
+        }
+
+        Map<String, List<String>> outcomes = new HashMap<>();
+        boolean passed = true;
+        try {
+            List<StorageEngine> engines = new ArrayList<>();
+            if (!mode.equals("jdbc")) {
+                engines.add(StorageEngine.newInMemory());
+            }
+            if (!mode.equals("memory")) {
+                BenchmarkSupport.createSchemaIfMissing(Path.of(System.getProperty("bench.schema", "src/sql/shema.sql")));
+                engines.add(StorageEngine.jdbc());
+            }
+            for (StorageEngine engine : engines) {
+                StorageConformance conformance = new StorageConformance(engine);
+                outcomes.put(engine.name(), conformance.run());
+                System.out.println(engine.name() + ": " + outcomes.get(engine.name()).size() + " checks, "
+                        + conformance.getFailures().size() + " failed");
+                for (String failure : conformance.getFailures()) {
+                    System.out.println("  FAIL " + failure);
+                }
+                passed &= conformance.getFailures().isEmpty();
+            }
+
+            if (outcomes.size() == 2) {
+                List<String> memory = outcomes.get("memory");
+                List<String> jdbc = outcomes.get("jdbc");
+                for (int i = 0; i < Math.max(memory.size(), jdbc.size()); i++) {
+                    String left = i < memory.size() ? memory.get(i) : "(none)";
+                    String right = i < jdbc.size() ? jdbc.get(i) : "(none)";
+                    if (!left.equals(right)) {
+                        System.out.println("  DIFFER memory: " + left + " | jdbc: " + right);
+                        passed = false;
+                    }
+                }
+            }
+        } finally {
+            Database.closeConnection();
+        }
+        System.out.println(passed ? "Conformance passed." : "Conformance FAILED.");
+        System.exit(passed ? 0 : 1);
+    }
+}
@@ -0,0 +1,202 @@
+package benchmark;
+
+import dao.AccountDAO;
+import database.Database;
+import model.Money;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load generator for concurrent AccountDAO.transfer() calls where a few accounts take most of the traffic.
+ *
+ * Source and destination accounts are drawn from a Zipfian distribution over the seeded accounts (exponent
+ * bench.zipfExponent; 0 gives uniform traffic, around 1 makes the top handful of "merchant" accounts dominate).
+ * Each thread count in bench.threads is run in turn against the same accounts, reporting throughput,
+ * p50/p99/p999 latency, lock-wait timeouts and deadlock retries, followed by a conservation-of-money check:
+ * transfers only move money between the seeded accounts, so their total must not change.
+ *
+ * Use a pool at least as large as the largest thread count (bank.db.pool.max), or the run measures pool waits
+ * instead of row-lock contention.
+ *
+ * Usage: java -Dbank.db.url=... -Dbank.db.pool.max=64 -Dbench.threads=1,4,16,64 -Dbench.seconds=20
+ *        -Dbench.accounts=1000 -Dbench.zipfExponent=1.1 benchmark.TransferStressTest [out.json]
+ */
+public class TransferStressTest {
+
+    private static final Money AMOUNT = Money.ofCents(100);
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = Arrays.stream(System.getProperty("bench.threads", "1,4,16,64").split(","))
+                .mapToInt(t -> Integer.parseInt(t.trim())).toArray();
+        int seconds = BenchmarkSupport.intProperty("seconds", 20);
+        int accountCount = Math.max(2, BenchmarkSupport.intProperty("accounts", 1000));
+        double zipfExponent = Double.parseDouble(System.getProperty("bench.zipfExponent", "1.1"));
+        Path output = Path.of(args.length > 0 ? args[0] : "transfer-stress.json");
+
+        BenchmarkSupport.createSchemaIfMissing(Path.of(System.getProperty("bench.schema", "src/sql/shema.sql")));
+        int[] accounts = BenchmarkSupport.seedAccounts(accountCount, Money.ofCents(100_000_000));
+        ZipfianSampler sampler = new ZipfianSampler(accountCount, zipfExponent);
+        System.out.printf("Top 10 accounts receive %.1f%% of the picks%n", 100 * sampler.headShare(10));
+
+        List<Object> results = new ArrayList<>();
+        boolean conserved = true;
+        for (int threads : threadCounts) {
+            RunResult result = run(new AccountDAO(), accounts, sampler, threads, seconds);
+            results.add(result.json());
+            conserved &= result.moneyConserved();
+        }
+
+        BenchmarkSupport.writeJson(output, new BenchmarkSupport.JsonObject()
+                .put("benchmark", "transfer-stress")
+                .put("database", BenchmarkSupport.databaseProduct())
+                .put("mode", new AccountDAO().getBalanceUpdateMode().name())
+                .put("accounts", accountCount)
+                .put("zipfExponent", zipfExponent)
+                .put("seconds", seconds)
+                .put("results", results));
+        Database.closeConnection();
+        if (!conserved) {
+            System.err.println("CONSERVATION CHECK FAILED: money was created or destroyed");
+            System.exit(1);
+        }
+    }
+
+    private record RunResult(BenchmarkSupport.JsonObject json, boolean moneyConserved) {
+    }
+
+    private static RunResult run(AccountDAO accountDAO, int[] accounts, ZipfianSampler sampler,
+                                 int threads, int seconds) throws Exception {
+        Money totalBefore = BenchmarkSupport.totalBalance(accounts);
+        long[][] latencies = new long[threads][];
+        long[] failures = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1]; // Set once all workers are started; the latch publishes it to them
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> {
+                LongArray samples = new LongArray();
+                long failed = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline[0]) {
+                    int from = accounts[sampler.next(random)];
+                    int to = accounts[sampler.next(random)];
+                    if (from == to) {
+                        continue;
+                    }
+                    long begin = System.nanoTime();
+                    boolean ok = accountDAO.transfer(from, to, AMOUNT);
+                    samples.add(System.nanoTime() - begin);
+                    if (!ok) {
+                        failed++;
+                    }
+                }
+                latencies[worker] = samples.toArray();
+                failures[worker] = failed;
+            }, "transfer-stress-" + t);
+            thread.start();
+            workers.add(thread);
+        }
+
+        long begin = System.nanoTime();
+        deadline[0] = begin + seconds * 1_000_000_000L;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        long[] all = Arrays.stream(latencies).filter(a -> a != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        long failed = Arrays.stream(failures).sum();
+        long succeeded = all.length - failed;
+        Money totalAfter = BenchmarkSupport.totalBalance(accounts);
+        boolean conserved = totalBefore.equals(totalAfter);
+
+        double throughput = succeeded / (elapsed / 1e9);
+        System.out.printf("threads=%-4d transfers/s=%-10.1f p50=%8.1f us  p99=%9.1f us  p999=%9.1f us  failed=%-6d " +
+                        "lock-wait timeouts=%-5d deadlock retries=%-5d conserved=%s%n",
+                threads, throughput, micros(all, 0.50), micros(all, 0.99), micros(all, 0.999), failed,
+                accountDAO.getLockWaitTimeouts(), accountDAO.getDeadlockRetries(), conserved);
+
+        return new RunResult(new BenchmarkSupport.JsonObject()
+                .put("threads", threads)
+                .put("transfers", succeeded)
+                .put("failed", failed)
+                .put("transfersPerSecond", throughput)
+                .put("p50Micros", micros(all, 0.50))
+                .put("p99Micros", micros(all, 0.99))
+                .put("p999Micros", micros(all, 0.999))
+                .put("maxMicros", all.length == 0 ? 0 : all[all.length - 1] / 1000.0)
+                .put("lockWaitTimeouts", accountDAO.getLockWaitTimeouts())
+                .put("deadlockRetries", accountDAO.getDeadlockRetries())
+                .put("totalBefore", totalBefore.toString())
+                .put("totalAfter", totalAfter.toString())
+                .put("moneyConserved", conserved), conserved);
+    }
+
+    private static double micros(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+
+    /**
+     * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent, by binary search over the CDF.
+     */
+    static class ZipfianSampler {
+        private final double[] cdf;
+
+        ZipfianSampler(int n, double exponent) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cdf[i] /= sum;
+            }
+        }
+
+        int next(ThreadLocalRandom random) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+        }
+
+        double headShare(int ranks) {
+            return cdf[Math.min(ranks, cdf.length) - 1];
+        }
+    }
+
+    /**
+     * Growable primitive long array, so recording latencies does not box or allocate per call.
+     */
+    private static class LongArray {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
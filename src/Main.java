@@ -1,6 +1,12 @@
 // Adjust package name if needed (e.g., com.yourcompany.bankingapp)
 
+import dao.JournaledAccountDAO;
+import dao.StorageEngine;
+import dao.TransactionLogWriter;
+import dao.UserDAO;
 import database.Database;
+import job.TransferScheduler;
+import util.PasswordUtil;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -54,6 +60,9 @@ public class Main extends Application {
     public void stop() throws Exception {
         // Ensure database connection is closed when the application exits
         System.out.println("Application shutting down...");
+        TransferScheduler.shutdown();
+        JournaledAccountDAO.shutdown(); // Applies what it can of the journal while the database is still open
+        TransactionLogWriter.shutdown(); // Writes what is still queued
         Database.closeConnection();
         super.stop();
     }
@@ -70,6 +79,24 @@ public class Main extends Application {
         // You can perform non-GUI initialization here if needed
         // e.g., loading configuration, checking prerequisites
 
+        // Pick the BCrypt cost for this machine while the login screen loads
+        PasswordUtil.startCalibration();
+
+        // With -Dbank.storage=memory everything stays in this process and none of the database services start
+        if (StorageEngine.isDatabaseBacked()) {
+            // Load usernames into the admin search index in the background
+            UserDAO.startSearchIndexBuild();
+
+            // With -Dbank.journal.enabled=true, replay the local transaction journal before accepting money operations
+            JournaledAccountDAO.startFromProperties();
+
+            // With -Dbank.transactionLog.enabled=true, group-commit standalone ledger writes from concurrent callers
+            TransactionLogWriter.startFromProperties();
+
+            // With -Dbank.schedule.enabled=true, run standing orders and future-dated transfers as they fall due
+            TransferScheduler.startFromProperties();
+        }
+
         // Test DB connection early (optional)
         /*
         try {
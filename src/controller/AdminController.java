@@ -1,9 +1,8 @@
 package controller;
 
-import dao.AccountDAO;
-import dao.UserDAO;
+import dao.AsyncDAO;
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,12 +13,10 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.VBox; // Added import
 import javafx.stage.Stage;
-import model.Account;
+import javafx.util.Duration;
 import model.User;
 
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.util.List;
 import java.util.Optional;
 
 public class AdminController {
@@ -27,6 +24,9 @@ public class AdminController {
     @FXML
     private Label welcomeLabel;
 
+    @FXML
+    private TextField searchField;
+
     @FXML
     private TableView<User> usersTable;
 
@@ -72,22 +72,33 @@ public class AdminController {
     @FXML
     private ChoiceBox<String> newRoleChoiceBox;
 
+    @FXML
+    private Button createUserButton;
+
     @FXML
     private Label messageLabel;
 
+    @FXML
+    private ProgressIndicator busyIndicator; // Shown while a database call is in flight
+
     private User currentAdminUser;
-    private UserDAO userDAO;
-    private AccountDAO accountDAO;
+    private final AsyncDAO asyncDAO; // All DAO calls run off the FX thread
+    private BackgroundTasks tasks;
+    private PagedUserList userData; // Loads pages of users as the table scrolls
 
-    private final ObservableList<User> userData = FXCollections.observableArrayList();
+    private static final int SEARCH_LIMIT = 100;
+    private final PauseTransition searchDelay = new PauseTransition(Duration.millis(150)); // Waits for a pause in typing
+    private int searchGeneration = 0; // Results of superseded searches are dropped
 
     public AdminController() {
-        userDAO = new UserDAO();
-        accountDAO = new AccountDAO();
+        asyncDAO = new AsyncDAO();
     }
 
     @FXML
     private void initialize() {
+        tasks = new BackgroundTasks(busyIndicator, refreshButton, createUserButton);
+        userData = new PagedUserList(asyncDAO, tasks);
+
         // Initialize the table columns
         userIdColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
         usernameColumn.setCellValueFactory(new PropertyValueFactory<>("username"));
@@ -117,6 +128,10 @@ public class AdminController {
 
         usersTable.setItems(userData);
 
+        // Type-ahead search: run once typing pauses instead of on every keystroke
+        searchDelay.setOnFinished(e -> runSearch());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+
         // Disable buttons initially until a user is selected
         lockUnlockButton.setDisable(true);
         deleteUserButton.setDisable(true);
@@ -153,19 +168,47 @@ public class AdminController {
         }
         this.currentAdminUser = user;
         welcomeLabel.setText("Admin Dashboard - Welcome, " + currentAdminUser.getUsername() + "!");
-        loadUsersData();
+        loadUsersData(null);
     }
 
-    private void loadUsersData() {
-        List<User> users = userDAO.getAllUsers();
-        userData.setAll(users);
-        usersTable.getSelectionModel().clearSelection();
+    /**
+     * Reloads the user list in the background. Only the user count is read up front;
+     * rows are fetched page by page as they scroll into view.
+     *
+     * @param onLoaded Run on the FX thread once the table is updated, or null.
+     */
+    private void loadUsersData(Runnable onLoaded) {
+        if (!searchField.getText().trim().isEmpty()) {
+            runSearch(); // Keep showing the search results, refreshed
+        }
+        userData.reload(() -> {
+            usersTable.getSelectionModel().clearSelection();
+            if (onLoaded != null) {
+                onLoaded.run();
+            }
+        });
+    }
+
+    /**
+     * Shows the users matching the search box, or the full paged list when it is empty.
+     */
+    private void runSearch() {
+        String query = searchField.getText().trim();
+        int requestGeneration = ++searchGeneration;
+        if (query.isEmpty()) {
+            usersTable.setItems(userData);
+            return;
+        }
+        tasks.run(asyncDAO.searchUsers(query, SEARCH_LIMIT), results -> {
+            if (requestGeneration == searchGeneration) {
+                usersTable.setItems(FXCollections.observableArrayList(results));
+            }
+        }, this::showUnexpectedError);
     }
 
     @FXML
     private void handleRefreshButtonAction(ActionEvent event) {
-        loadUsersData();
-        showInfoAlert("Refreshed", "User list updated.");
+        loadUsersData(() -> showInfoAlert("Refreshed", "User list updated."));
     }
 
     @FXML
@@ -190,13 +233,14 @@ public class AdminController {
         );
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            boolean success = userDAO.updateUserLockStatus(selectedUser.getUsername(), !currentLockStatus);
-            if (success) {
-                showInfoAlert("Success", String.format("User '%s' has been %sed.", selectedUser.getUsername(), action));
-                loadUsersData();
-            } else {
-                showErrorAlert("Error", String.format("Failed to %s user '%s'.", action, selectedUser.getUsername()));
-            }
+            tasks.run(asyncDAO.updateUserLockStatus(selectedUser.getUsername(), !currentLockStatus), success -> {
+                if (success) {
+                    showInfoAlert("Success", String.format("User '%s' has been %sed.", selectedUser.getUsername(), action));
+                    loadUsersData(null);
+                } else {
+                    showErrorAlert("Error", String.format("Failed to %s user '%s'.", action, selectedUser.getUsername()));
+                }
+            }, this::showUnexpectedError);
         }
     }
 
@@ -219,18 +263,20 @@ public class AdminController {
         );
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            boolean success = userDAO.deleteUser(selectedUser.getId());
-            if (success) {
-                showInfoAlert("Success", String.format("User '%s' has been deleted.", selectedUser.getUsername()));
-                loadUsersData();
-            } else {
-                showErrorAlert("Error", String.format("Failed to delete user '%s'. Check logs.", selectedUser.getUsername()));
-            }
+            tasks.run(asyncDAO.deleteUser(selectedUser.getId()), success -> {
+                if (success) {
+                    showInfoAlert("Success", String.format("User '%s' has been deleted.", selectedUser.getUsername()));
+                    loadUsersData(null);
+                } else {
+                    showErrorAlert("Error", String.format("Failed to delete user '%s'. Check logs.", selectedUser.getUsername()));
+                }
+            }, this::showUnexpectedError);
         }
     }
 
     @FXML
     private void handleLogoutButtonAction(ActionEvent event) {
+        tasks.cancelAll(); // Drop results for a view that is going away
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/login.fxml"));
             Parent loginRoot = loader.load();
@@ -285,14 +331,20 @@ public class AdminController {
         newUser.setPassword(password); // Hashed by UserDAO
         newUser.setRole(User.Role.valueOf(role));
 
-        User createdUser = userDAO.register(newUser);
-        if (createdUser != null) {
-            accountDAO.createAccount(new Account(createdUser.getId(), BigDecimal.ZERO));
-            messageLabel.setText("User created successfully.");
-            loadUsersData();
-        } else {
-            messageLabel.setText("Failed to create user.");
-        }
+        // Registers the user and opens their zero-balance account in the background
+        tasks.run(asyncDAO.registerWithAccount(newUser), createdAccount -> {
+            if (createdAccount != null) {
+                messageLabel.setText("User created successfully.");
+                loadUsersData(null);
+            } else {
+                messageLabel.setText("Failed to create user.");
+            }
+        }, this::showUnexpectedError);
+    }
+
+    private void showUnexpectedError(Throwable e) {
+        e.printStackTrace();
+        showErrorAlert("Error", "An unexpected error occurred: " + e.getMessage());
     }
 
     private void showErrorAlert(String title, String content) {
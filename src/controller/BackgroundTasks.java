@@ -0,0 +1,84 @@
+package controller;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the background DAO calls started by one view.
+ * Results are delivered on the JavaFX Application Thread via Platform.runLater, the busy indicator is
+ * shown while any call is in flight, and {@link #cancelAll()} drops pending results when the view goes away.
+ */
+class BackgroundTasks {
+
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private final Node busyIndicator; // May be null if the view has no indicator
+    private final Node[] disableWhileBusy;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param busyIndicator    Made visible while a call is in flight (e.g. a ProgressIndicator), or null.
+     * @param disableWhileBusy Controls to disable while a call is in flight, so the user cannot start it twice.
+     */
+    BackgroundTasks(Node busyIndicator, Node... disableWhileBusy) {
+        this.busyIndicator = busyIndicator;
+        this.disableWhileBusy = disableWhileBusy;
+    }
+
+    /**
+     * Runs the callbacks on the FX thread once the future completes. Must be called from the FX thread.
+     *
+     * @param future    The background call.
+     * @param onSuccess Receives the result.
+     * @param onError   Receives the underlying exception if the call failed.
+     */
+    <T> void run(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        inFlight.add(future);
+        updateBusyState();
+        future.whenComplete((result, error) -> Platform.runLater(() -> {
+            inFlight.remove(future);
+            updateBusyState();
+            if (cancelled || future.isCancelled() || error instanceof CancellationException) {
+                return; // The view is gone or no longer wants this result
+            }
+            if (error != null) {
+                onError.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
+
+    /**
+     * Cancels every in-flight call; their callbacks will not run. Call this when the view is being replaced.
+     */
+    void cancelAll() {
+        cancelled = true;
+        for (CompletableFuture<?> future : inFlight) {
+            future.cancel(false);
+        }
+        inFlight.clear();
+    }
+
+    boolean isBusy() {
+        return !inFlight.isEmpty();
+    }
+
+    private void updateBusyState() {
+        boolean busy = isBusy();
+        if (busyIndicator != null) {
+            busyIndicator.setVisible(busy);
+        }
+        for (Node node : disableWhileBusy) {
+            if (node != null) {
+                node.setDisable(busy);
+            }
+        }
+    }
+}
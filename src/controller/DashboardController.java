@@ -1,7 +1,6 @@
 package controller;
 
-import dao.AccountDAO;
-import dao.TransactionDAO;
+import dao.AsyncDAO;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -15,17 +14,19 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import model.Account;
+import model.Money;
 import model.Transaction;
 import model.User;
+import util.Validator;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 public class DashboardController {
 
+    private static final int HISTORY_PAGE_SIZE = 50;
+
     @FXML
     private Label welcomeLabel;
 
@@ -42,7 +43,7 @@ public class DashboardController {
     private TableColumn<Transaction, Transaction.TransactionType> typeColumn;
 
     @FXML
-    private TableColumn<Transaction, BigDecimal> amountColumn;
+    private TableColumn<Transaction, Money> amountColumn;
 
     @FXML
     private TableColumn<Transaction, Integer> relatedAccountColumn; // Optional for transfers
@@ -60,20 +61,26 @@ public class DashboardController {
     @FXML
     private Button refreshButton;
 
+    @FXML
+    private Button loadMoreButton;
+
     @FXML
     private Button logoutButton;
 
+    @FXML
+    private ProgressIndicator busyIndicator; // Shown while a database call is in flight
+
 
     private User currentUser;
     private Account currentAccount;
-    private AccountDAO accountDAO;
-    private TransactionDAO transactionDAO;
+    private final AsyncDAO asyncDAO; // All DAO calls run off the FX thread
+    private BackgroundTasks tasks;
+    private String historyCursor; // Position of the oldest loaded transaction; null when all are loaded
 
     private final ObservableList<Transaction> transactionData = FXCollections.observableArrayList();
 
     public DashboardController() {
-        accountDAO = new AccountDAO();
-        transactionDAO = new TransactionDAO();
+        asyncDAO = new AsyncDAO();
     }
 
     /**
@@ -87,15 +94,15 @@ public class DashboardController {
         typeColumn.setCellValueFactory(new PropertyValueFactory<>("type"));
         amountColumn.setCellValueFactory(new PropertyValueFactory<>("amount"));
         // Format amount column if needed (e.g., currency symbol)
-        amountColumn.setCellFactory(tc -> new TableCell<Transaction, BigDecimal>() {
+        amountColumn.setCellFactory(tc -> new TableCell<Transaction, Money>() {
             @Override
-            protected void updateItem(BigDecimal item, boolean empty) {
+            protected void updateItem(Money item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setText(null);
                 } else {
                     // Format as currency (adjust locale/currency code as needed)
-                    setText(String.format("%,.2f DT", item)); // Example: Tunisian Dinar
+                    setText(String.format("%,.2f DT", item.toBigDecimal())); // Example: Tunisian Dinar
                 }
             }
         });
@@ -117,6 +124,8 @@ public class DashboardController {
 
 
         transactionsTable.setItems(transactionData);
+
+        tasks = new BackgroundTasks(busyIndicator, depositButton, withdrawButton, transferButton, refreshButton);
     }
 
     /**
@@ -127,13 +136,19 @@ public class DashboardController {
     public void initData(User user) {
         this.currentUser = user;
         welcomeLabel.setText("Welcome, " + currentUser.getUsername() + "!");
-        loadAccountData();
-        loadTransactionHistory();
+        reloadData(null);
     }
 
-    private void loadAccountData() {
-        if (currentUser != null) {
-            this.currentAccount = accountDAO.getAccountByUserId(currentUser.getId());
+    /**
+     * Reloads the account and then the newest page of its history in the background.
+     *
+     * @param onLoaded Run on the FX thread once both are displayed, or null.
+     */
+    private void reloadData(Runnable onLoaded) {
+        if (currentUser == null) return;
+
+        tasks.run(asyncDAO.getAccountByUserId(currentUser.getId()), account -> {
+            this.currentAccount = account;
             if (this.currentAccount != null) {
                 updateBalanceDisplay();
             } else {
@@ -141,30 +156,59 @@ public class DashboardController {
                 balanceLabel.setText("Balance: Error loading account");
                 showErrorAlert("Account Error", "Could not load account details for user.");
             }
-        }
+            loadTransactionHistory(onLoaded);
+        }, this::showUnexpectedError);
     }
 
     private void updateBalanceDisplay() {
         if (this.currentAccount != null) {
-            balanceLabel.setText(String.format("Balance: %,.2f DT", this.currentAccount.getBalance())); // Example format
+            balanceLabel.setText(String.format("Balance: %,.2f DT", this.currentAccount.getBalance().toBigDecimal())); // Example format
         }
     }
 
 
-    private void loadTransactionHistory() {
-        if (currentAccount != null) {
-            List<Transaction> history = transactionDAO.getHistoryByAccountId(currentAccount.getId(), 50); // Get last 50 transactions
-            transactionData.setAll(history); // Update table data
-        } else {
+    private void loadTransactionHistory(Runnable onLoaded) {
+        if (currentAccount == null) {
             transactionData.clear(); // Clear table if no account
+            historyCursor = null;
+            updateLoadMoreButton();
+            return;
         }
+
+        tasks.run(asyncDAO.getHistoryPageByAccountId(currentAccount.getId(), null, HISTORY_PAGE_SIZE), page -> { // Newest page
+            transactionData.setAll(page.getItems()); // Update table data
+            historyCursor = page.getNextCursor();
+            updateLoadMoreButton();
+            if (onLoaded != null) {
+                onLoaded.run();
+            }
+        }, this::showUnexpectedError);
+    }
+
+    private void updateLoadMoreButton() {
+        if (loadMoreButton != null) {
+            loadMoreButton.setDisable(historyCursor == null);
+        }
+    }
+
+    @FXML
+    private void handleLoadMoreButtonAction(ActionEvent event) {
+        if (currentAccount == null || historyCursor == null) return;
+
+        loadMoreButton.setDisable(true); // Until this page arrives
+        tasks.run(asyncDAO.getHistoryPageByAccountId(currentAccount.getId(), historyCursor, HISTORY_PAGE_SIZE), page -> {
+            transactionData.addAll(page.getItems()); // Append older transactions
+            historyCursor = page.getNextCursor();
+            updateLoadMoreButton();
+        }, error -> {
+            updateLoadMoreButton();
+            showUnexpectedError(error);
+        });
     }
 
     @FXML
     private void handleRefreshButtonAction(ActionEvent event) {
-        loadAccountData();
-        loadTransactionHistory();
-        showInfoAlert("Refreshed", "Account balance and transaction history updated.");
+        reloadData(() -> showInfoAlert("Refreshed", "Account balance and transaction history updated."));
     }
 
 
@@ -180,33 +224,24 @@ public class DashboardController {
         Optional<String> result = dialog.showAndWait();
         result.ifPresent(amountStr -> {
             try {
-                BigDecimal amount = new BigDecimal(amountStr);
-                if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+                Money amount = Money.parse(amountStr); // Rejects more than two decimal places
+                if (!Validator.isPositiveAmount(amount)) {
                     showErrorAlert("Invalid Amount", "Deposit amount must be positive.");
                     return;
                 }
 
-                // Perform deposit via DAO
-                boolean success = accountDAO.deposit(currentAccount.getId(), amount);
-
-                if (success) {
-                    // Log transaction
-                    Transaction depositTx = new Transaction(currentAccount.getId(), Transaction.TransactionType.DEPOSIT, amount, null);
-                    transactionDAO.saveTransaction(depositTx);
-
-                    // Refresh data
-                    loadAccountData();
-                    loadTransactionHistory();
-                    showInfoAlert("Deposit Successful", String.format("Successfully deposited %,.2f DT.", amount));
-                } else {
-                    showErrorAlert("Deposit Failed", "Could not process the deposit.");
-                }
+                // Perform deposit via DAO (also records the transaction)
+                tasks.run(asyncDAO.deposit(currentAccount.getId(), amount), success -> {
+                    if (success) {
+                        // Refresh data
+                        reloadData(() -> showInfoAlert("Deposit Successful", String.format("Successfully deposited %,.2f DT.", amount.toBigDecimal())));
+                    } else {
+                        showErrorAlert("Deposit Failed", "Could not process the deposit.");
+                    }
+                }, this::showUnexpectedError);
 
             } catch (NumberFormatException e) {
-                showErrorAlert("Invalid Input", "Please enter a valid number for the amount.");
-            } catch (Exception e) {
-                showErrorAlert("Error", "An unexpected error occurred: " + e.getMessage());
-                e.printStackTrace(); // Log the full error
+                showErrorAlert("Invalid Input", "Please enter a valid amount, with at most two decimal places.");
             }
         });
     }
@@ -223,34 +258,25 @@ public class DashboardController {
         Optional<String> result = dialog.showAndWait();
         result.ifPresent(amountStr -> {
             try {
-                BigDecimal amount = new BigDecimal(amountStr);
-                if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+                Money amount = Money.parse(amountStr); // Rejects more than two decimal places
+                if (!Validator.isPositiveAmount(amount)) {
                     showErrorAlert("Invalid Amount", "Withdrawal amount must be positive.");
                     return;
                 }
 
-                // Perform withdrawal via DAO
-                boolean success = accountDAO.withdraw(currentAccount.getId(), amount);
-
-                if (success) {
-                    // Log transaction
-                    Transaction withdrawTx = new Transaction(currentAccount.getId(), Transaction.TransactionType.WITHDRAW, amount, null);
-                    transactionDAO.saveTransaction(withdrawTx);
-
-                    // Refresh data
-                    loadAccountData();
-                    loadTransactionHistory();
-                    showInfoAlert("Withdrawal Successful", String.format("Successfully withdrew %,.2f DT.", amount));
-                } else {
-                    // DAO handles insufficient funds message, show generic error here or check balance first
-                    showErrorAlert("Withdrawal Failed", "Could not process the withdrawal (check funds?).");
-                }
+                // Perform withdrawal via DAO (also records the transaction)
+                tasks.run(asyncDAO.withdraw(currentAccount.getId(), amount), success -> {
+                    if (success) {
+                        // Refresh data
+                        reloadData(() -> showInfoAlert("Withdrawal Successful", String.format("Successfully withdrew %,.2f DT.", amount.toBigDecimal())));
+                    } else {
+                        // DAO handles insufficient funds message, show generic error here or check balance first
+                        showErrorAlert("Withdrawal Failed", "Could not process the withdrawal (check funds?).");
+                    }
+                }, this::showUnexpectedError);
 
             } catch (NumberFormatException e) {
-                showErrorAlert("Invalid Input", "Please enter a valid number for the amount.");
-            } catch (Exception e) {
-                showErrorAlert("Error", "An unexpected error occurred: " + e.getMessage());
-                e.printStackTrace();
+                showErrorAlert("Invalid Input", "Please enter a valid amount, with at most two decimal places.");
             }
         });
     }
@@ -279,63 +305,55 @@ public class DashboardController {
                     return;
                 }
 
-                // Check if target account exists (optional but good practice)
-                Account targetAccount = accountDAO.getAccountById(targetAccountId);
-                if (targetAccount == null) {
-                    showErrorAlert("Invalid Target", "Target account ID does not exist.");
+                // Check if target account exists (optional but good practice), then ask for the amount
+                tasks.run(asyncDAO.getAccountById(targetAccountId), targetAccount -> {
+                    if (targetAccount == null) {
+                        showErrorAlert("Invalid Target", "Target account ID does not exist.");
+                    } else {
+                        promptTransferAmount(targetAccountId);
+                    }
+                }, this::showUnexpectedError);
+
+            } catch (NumberFormatException e) {
+                showErrorAlert("Invalid Input", "Please enter a valid number for the target account ID.");
+            }
+        }
+    }
+
+    private void promptTransferAmount(int targetAccountId) {
+        TextInputDialog amountDialog = new TextInputDialog();
+        amountDialog.setTitle("Transfer Funds");
+        amountDialog.setHeaderText("Transfer to account " + targetAccountId);
+        amountDialog.setContentText("Amount (DT):");
+
+        Optional<String> amountResult = amountDialog.showAndWait();
+        if (amountResult.isPresent() && !amountResult.get().isEmpty()) {
+            try {
+                Money amount = Money.parse(amountResult.get()); // Rejects more than two decimal places
+                if (!Validator.isPositiveAmount(amount)) {
+                    showErrorAlert("Invalid Amount", "Transfer amount must be positive.");
                     return;
                 }
 
-
-                TextInputDialog amountDialog = new TextInputDialog();
-                amountDialog.setTitle("Transfer Funds");
-                amountDialog.setHeaderText("Transfer to account " + targetAccountId);
-                amountDialog.setContentText("Amount (DT):");
-
-                Optional<String> amountResult = amountDialog.showAndWait();
-                if (amountResult.isPresent() && !amountResult.get().isEmpty()) {
-                    try {
-                        BigDecimal amount = new BigDecimal(amountResult.get());
-                        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                            showErrorAlert("Invalid Amount", "Transfer amount must be positive.");
-                            return;
-                        }
-
-                        // Perform transfer via DAO
-                        boolean success = accountDAO.transfer(currentAccount.getId(), targetAccountId, amount);
-
-                        if (success) {
-                            // Log transactions for both accounts
-                            Transaction transferOutTx = new Transaction(currentAccount.getId(), Transaction.TransactionType.TRANSFER_OUT, amount, targetAccountId);
-                            Transaction transferInTx = new Transaction(targetAccountId, Transaction.TransactionType.TRANSFER_IN, amount, currentAccount.getId());
-                            transactionDAO.saveTransaction(transferOutTx);
-                            transactionDAO.saveTransaction(transferInTx);
-
-
-                            // Refresh data
-                            loadAccountData();
-                            loadTransactionHistory();
-                            showInfoAlert("Transfer Successful", String.format("Successfully transferred %,.2f DT to account %d.", amount, targetAccountId));
-                        } else {
-                            showErrorAlert("Transfer Failed", "Could not process the transfer (check funds?).");
-                        }
-
-                    } catch (NumberFormatException e) {
-                        showErrorAlert("Invalid Input", "Please enter a valid number for the amount.");
+                // Perform transfer via DAO (also records the transactions for both accounts)
+                tasks.run(asyncDAO.transfer(currentAccount.getId(), targetAccountId, amount), success -> {
+                    if (success) {
+                        // Refresh data
+                        reloadData(() -> showInfoAlert("Transfer Successful", String.format("Successfully transferred %,.2f DT to account %d.", amount.toBigDecimal(), targetAccountId)));
+                    } else {
+                        showErrorAlert("Transfer Failed", "Could not process the transfer (check funds?).");
                     }
-                }
+                }, this::showUnexpectedError);
 
             } catch (NumberFormatException e) {
-                showErrorAlert("Invalid Input", "Please enter a valid number for the target account ID.");
-            } catch (Exception e) {
-                showErrorAlert("Error", "An unexpected error occurred: " + e.getMessage());
-                e.printStackTrace();
+                showErrorAlert("Invalid Input", "Please enter a valid amount, with at most two decimal places.");
             }
         }
     }
 
     @FXML
     private void handleLogoutButtonAction(ActionEvent event) {
+        tasks.cancelAll(); // Drop results for a view that is going away
         try {
             // Load the login view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/login.fxml")); // Ensure path is correct
@@ -372,6 +390,11 @@ public class DashboardController {
         alert.showAndWait();
     }
 
+    private void showUnexpectedError(Throwable e) {
+        showErrorAlert("Error", "An unexpected error occurred: " + e.getMessage());
+        e.printStackTrace(); // Log the full error
+    }
+
     private void showInfoAlert(String title, String content) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle(title);
@@ -1,7 +1,6 @@
 package controller;
 
-import dao.AccountDAO;
-import dao.UserDAO;
+import dao.AsyncDAO;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -10,6 +9,7 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import model.User;
@@ -34,12 +34,19 @@ public class LoginController {
     @FXML
     private Label messageLabel;
 
-    private UserDAO userDAO;
-    // private AccountDAO accountDAO; // Might not be needed directly here
+    @FXML
+    private ProgressIndicator busyIndicator; // Shown while the login check is in flight
+
+    private final AsyncDAO asyncDAO; // Login (DB + BCrypt) runs off the FX thread
+    private BackgroundTasks tasks;
 
     public LoginController() {
-        userDAO = new UserDAO();
-        // accountDAO = new AccountDAO();
+        asyncDAO = new AsyncDAO();
+    }
+
+    @FXML
+    private void initialize() {
+        tasks = new BackgroundTasks(busyIndicator, loginButton, registerButton);
     }
 
     @FXML
@@ -53,31 +60,41 @@ public class LoginController {
             return;
         }
 
-        User user = userDAO.login(username, password);
+        messageLabel.setText("Signing in...");
+        messageLabel.setStyle("");
+        tasks.run(asyncDAO.login(username, password), user -> {
+            if (user != null) {
+                // Login successful
+                messageLabel.setText("Login Successful!");
+                messageLabel.setStyle("-fx-text-fill: green;");
+                System.out.println("Login successful for user: " + user.getUsername() + ", Role: " + user.getRole());
 
-        if (user != null) {
-            // Login successful
-            messageLabel.setText("Login Successful!");
-            messageLabel.setStyle("-fx-text-fill: green;");
-            System.out.println("Login successful for user: " + user.getUsername() + ", Role: " + user.getRole());
+                // Navigate to the appropriate dashboard
+                navigateToDashboard(user, event);
 
-            // Navigate to the appropriate dashboard
-            navigateToDashboard(user, event);
-
-        } else {
-            // Login failed - Check if user exists but is locked or bad credentials
-            User existingUser = userDAO.getUserByUsername(username);
-            if (existingUser != null && existingUser.isLocked()) {
-                messageLabel.setText("Account is locked. Please contact admin.");
             } else {
-                messageLabel.setText("Invalid username or password.");
+                // Login failed - Check if user exists but is locked or bad credentials
+                tasks.run(asyncDAO.getUserByUsername(username), existingUser -> {
+                    if (existingUser != null && existingUser.isLocked()) {
+                        messageLabel.setText("Account is locked. Please contact admin.");
+                    } else {
+                        messageLabel.setText("Invalid username or password.");
+                    }
+                    messageLabel.setStyle("-fx-text-fill: red;");
+                }, this::showLoginError);
             }
-            messageLabel.setStyle("-fx-text-fill: red;");
-        }
+        }, this::showLoginError);
+    }
+
+    private void showLoginError(Throwable e) {
+        e.printStackTrace();
+        messageLabel.setText("Login failed: " + e.getMessage());
+        messageLabel.setStyle("-fx-text-fill: red;");
     }
 
     @FXML
     private void handleRegisterButtonAction(ActionEvent event) {
+        tasks.cancelAll(); // Drop results for a view that is going away
         try {
             // Load the register view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/register.fxml")); // Ensure path is correct
@@ -108,6 +125,7 @@ public class LoginController {
 
 
     private void navigateToDashboard(User user, ActionEvent event) {
+        tasks.cancelAll(); // Drop results for a view that is going away
         try {
             String fxmlFile;
             FXMLLoader loader;
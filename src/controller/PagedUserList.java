@@ -0,0 +1,151 @@
+package controller;
+
+import dao.AsyncDAO;
+import dao.Page;
+import javafx.collections.ObservableListBase;
+import model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lazily loaded backing list for the admin users table.
+ *
+ * The list reports the full user count as its size, but only holds the pages the TableView has asked for
+ * (plus one page either side for smooth scrolling), up to a small LRU of pages. TableView only calls get()
+ * for rows in the viewport, so opening the screen reads one COUNT and one page, whatever the number of users.
+ * A row that is not loaded yet reads as null (an empty row) and is filled in when its page arrives.
+ *
+ * Must only be used from the JavaFX Application Thread.
+ */
+class PagedUserList extends ObservableListBase<User> {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 8;
+
+    private final AsyncDAO asyncDAO;
+    private final BackgroundTasks tasks;
+
+    private int size = 0;
+    private int generation = 0; // Bumped on reload so answers to older requests are ignored
+    private final Set<Integer> loading = new HashSet<>();
+    private final Map<Integer, String> pageCursors = new HashMap<>(); // Page index -> cursor that reads it
+    private final LinkedHashMap<Integer, List<User>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<User>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+
+    PagedUserList(AsyncDAO asyncDAO, BackgroundTasks tasks) {
+        this.asyncDAO = asyncDAO;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Drops every cached page and re-reads the user count; rows are fetched again as the table asks for them.
+     *
+     * @param onLoaded Run once the new count is applied, or null.
+     */
+    void reload(Runnable onLoaded) {
+        int requestGeneration = ++generation;
+        tasks.run(asyncDAO.countUsers(), count -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            pages.clear();
+            pageCursors.clear();
+            loading.clear();
+            int oldSize = size;
+            size = count;
+            beginChange();
+            if (oldSize > 0) {
+                nextRemove(0, Collections.nCopies(oldSize, (User) null));
+            }
+            if (size > 0) {
+                nextAdd(0, size);
+            }
+            endChange();
+            if (onLoaded != null) {
+                onLoaded.run();
+            }
+        }, e -> System.err.println("Error loading user count: " + e.getMessage()));
+    }
+
+    @Override
+    public User get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        int page = index / PAGE_SIZE;
+        int offsetInPage = index % PAGE_SIZE;
+
+        // Warm the neighbouring page in the scroll direction before the viewport reaches it
+        if (offsetInPage >= PAGE_SIZE / 2) {
+            requestPage(page + 1);
+        } else if (page > 0) {
+            requestPage(page - 1);
+        }
+
+        List<User> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        return offsetInPage < rows.size() ? rows.get(offsetInPage) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void requestPage(int page) {
+        if (page * PAGE_SIZE >= size || pages.containsKey(page) || !loading.add(page)) {
+            return; // Past the end, already cached, or already on its way
+        }
+        int requestGeneration = generation;
+        String cursor = pageCursors.get(page);
+        // Sequential scrolling always knows the previous page's cursor; a jump (e.g. dragging the scroll bar) does not
+        CompletableFuture<Page<User>> request = page == 0 || cursor != null
+                ? asyncDAO.getUsersPage(cursor, PAGE_SIZE)
+                : asyncDAO.getUsersPageAtOffset(page * PAGE_SIZE, PAGE_SIZE);
+
+        tasks.run(request, result -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading.remove(page);
+            storePage(page, result);
+        }, e -> {
+            if (requestGeneration == generation) {
+                loading.remove(page); // Let the next get() retry it
+            }
+            System.err.println("Error loading users page " + page + ": " + e.getMessage());
+        });
+    }
+
+    private void storePage(int page, Page<User> result) {
+        List<User> rows = new ArrayList<>(result.getItems());
+        pages.put(page, rows);
+        if (result.hasMore()) {
+            pageCursors.put(page + 1, result.getNextCursor());
+        }
+
+        // Tell the table the rows were replaced, so visible cells re-render with the loaded users
+        int from = page * PAGE_SIZE;
+        int to = Math.min(from + rows.size(), size);
+        if (from < to) {
+            beginChange();
+            nextReplace(from, to, Collections.nCopies(to - from, (User) null));
+            endChange();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package controller;
 
-import dao.AccountDAO;
-import dao.UserDAO;
+import dao.AsyncDAO;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -11,12 +10,12 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import model.Account;
+import model.Money;
 import model.User;
 import util.PasswordUtil; // Assuming PasswordUtil exists
 import util.Validator; // Assuming Validator exists
 
 import java.io.IOException;
-import java.math.BigDecimal;
 
 public class RegisterController {
 
@@ -44,17 +43,21 @@ public class RegisterController {
     @FXML
     private Button generatePasswordButton;
 
+    @FXML
+    private ProgressIndicator busyIndicator; // Shown while registration is in flight
+
 
-    private UserDAO userDAO;
-    private AccountDAO accountDAO;
+    private final AsyncDAO asyncDAO; // Lookups and the BCrypt hash run off the FX thread
+    private BackgroundTasks tasks;
 
     public RegisterController() {
-        userDAO = new UserDAO();
-        accountDAO = new AccountDAO();
+        asyncDAO = new AsyncDAO();
     }
 
     @FXML
     private void initialize() {
+        tasks = new BackgroundTasks(busyIndicator, registerButton);
+
         // Optional: Add listener or action for generate password button
         if (generatePasswordButton != null && generatedPasswordField != null) {
             generatePasswordButton.setOnAction(event -> {
@@ -97,41 +100,48 @@ public class RegisterController {
         }
 
         // Check if username already exists
-        if (userDAO.getUserByUsername(username) != null) {
-            setMessage("Username already taken.", true);
-            return;
-        }
-
-        // --- Registration Process ---
-        User newUser = new User();
-        newUser.setUsername(username);
-        newUser.setPassword(password); // DAO will hash it
-        newUser.setRole(User.Role.USER); // Default role
-
-        User createdUser = userDAO.register(newUser);
-
-        if (createdUser != null) {
-            // User registered successfully, now create their initial account
-            Account newAccount = new Account(createdUser.getId(), BigDecimal.ZERO); // Initial balance 0
-            Account createdAccount = accountDAO.createAccount(newAccount);
-
-            if (createdAccount != null) {
-                setMessage("Registration successful! Account created.", false);
-                // Optionally clear fields or navigate back to login after a delay
-                // For now, just show success message
-                clearFields();
-            } else {
-                setMessage("Registration successful, but failed to create account. Contact admin.", true);
-                // Ideally, handle this more robustly (e.g., rollback user creation or retry account creation)
+        tasks.run(asyncDAO.getUserByUsername(username), existingUser -> {
+            if (existingUser != null) {
+                setMessage("Username already taken.", true);
+                return;
             }
 
-        } else {
-            setMessage("Registration failed. Please try again.", true);
-        }
+            // --- Registration Process ---
+            User newUser = new User();
+            newUser.setUsername(username);
+            newUser.setPassword(password); // DAO will hash it
+            newUser.setRole(User.Role.USER); // Default role
+
+            tasks.run(asyncDAO.register(newUser), createdUser -> {
+                if (createdUser != null) {
+                    // User registered successfully, now create their initial account
+                    Account newAccount = new Account(createdUser.getId(), Money.ZERO); // Initial balance 0
+                    tasks.run(asyncDAO.createAccount(newAccount), createdAccount -> {
+                        if (createdAccount != null) {
+                            setMessage("Registration successful! Account created.", false);
+                            // Optionally clear fields or navigate back to login after a delay
+                            // For now, just show success message
+                            clearFields();
+                        } else {
+                            setMessage("Registration successful, but failed to create account. Contact admin.", true);
+                            // Ideally, handle this more robustly (e.g., rollback user creation or retry account creation)
+                        }
+                    }, this::showRegistrationError);
+                } else {
+                    setMessage("Registration failed. Please try again.", true);
+                }
+            }, this::showRegistrationError);
+        }, this::showRegistrationError);
+    }
+
+    private void showRegistrationError(Throwable e) {
+        e.printStackTrace();
+        setMessage("Registration failed: " + e.getMessage(), true);
     }
 
     @FXML
     private void handleBackToLoginButtonAction(ActionEvent event) {
+        tasks.cancelAll(); // Drop results for a view that is going away
         try {
             // Load the login view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/view/login.fxml")); // Ensure path is correct
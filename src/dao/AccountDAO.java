@@ -1,16 +1,90 @@
 package dao;
 
 import database.Database;
+import metrics.Metrics;
+import metrics.OperationMetrics;
 import model.Account;
+import model.Money;
+import model.Transaction;
 
-import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime; // Use java.time
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Data Access Object for Account operations.
  */
-public class AccountDAO {
+public class AccountDAO implements AccountRepository {
+
+    /**
+     * How deposit/withdraw/transfer update balances.
+     */
+    public enum BalanceUpdateMode {
+        /** SELECT ... FOR UPDATE, check the balance in Java, then write the new absolute balance. */
+        LOCK_AND_CHECK,
+        /** One guarded relative UPDATE per account; the affected-row count is the insufficient-funds check. */
+        CONDITIONAL_UPDATE
+    }
+
+    private static final OperationMetrics CREATE_METRICS = Metrics.operation("account.createAccount");
+    private static final OperationMetrics GET_BY_ID_METRICS = Metrics.operation("account.getAccountById");
+    private static final OperationMetrics GET_BY_USER_METRICS = Metrics.operation("account.getAccountByUserId");
+    private static final OperationMetrics DEPOSIT_METRICS = Metrics.operation("account.deposit");
+    private static final OperationMetrics WITHDRAW_METRICS = Metrics.operation("account.withdraw");
+    private static final OperationMetrics TRANSFER_METRICS = Metrics.operation("account.transfer");
+    private static final OperationMetrics BATCH_TRANSFER_METRICS = Metrics.operation("account.batchTransfer");
+
+    // Returned by lockBalanceCents for a missing account (a real balance is never negative)
+    private static final long NO_ACCOUNT = Long.MIN_VALUE;
+
+    // Ledger rows are written on the same connection and transaction as the balance updates
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final BalanceUpdateMode balanceUpdateMode;
+
+    // A transfer chosen as a deadlock victim is rolled back by the server and retried from the start
+    private static final int MAX_TRANSFER_ATTEMPTS = Integer.getInteger("bank.account.transferAttempts", 3);
+    // Lines per transaction in batchTransfer: longer holds the source row lock longer but commits less often
+    private static final int BATCH_TRANSFER_CHUNK_SIZE = Integer.getInteger("bank.account.batchTransferChunkSize", 500);
+    private final LongAdder deadlockRetries = new LongAdder();
+    private final LongAdder lockWaitTimeouts = new LongAdder();
+
+    /**
+     * Uses the mode named by the bank.account.updateMode system property, LOCK_AND_CHECK by default.
+     */
+    public AccountDAO() {
+        this(BalanceUpdateMode.valueOf(System.getProperty("bank.account.updateMode", BalanceUpdateMode.LOCK_AND_CHECK.name())));
+    }
+
+    public AccountDAO(BalanceUpdateMode balanceUpdateMode) {
+        this.balanceUpdateMode = balanceUpdateMode;
+    }
+
+    public BalanceUpdateMode getBalanceUpdateMode() {
+        return balanceUpdateMode;
+    }
+
+    /**
+     * @return How many transfers this DAO retried after being rolled back as a deadlock victim.
+     */
+    public long getDeadlockRetries() {
+        return deadlockRetries.sum();
+    }
+
+    /**
+     * @return How many transfers this DAO gave up on because a row lock could not be acquired in time.
+     */
+    public long getLockWaitTimeouts() {
+        return lockWaitTimeouts.sum();
+    }
 
     /**
      * Creates a new bank account for a user.
@@ -20,12 +94,13 @@ public class AccountDAO {
      */
     public Account createAccount(Account account) {
         String sql = "INSERT INTO accounts (user_id, balance) VALUES (?, ?)";
+        long start = System.nanoTime();
 
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setInt(1, account.getUserId());
-            pstmt.setBigDecimal(2, account.getBalance());
+            SqlMoney.set(pstmt, 2, account.getBalance());
 
             int affectedRows = pstmt.executeUpdate();
 
@@ -35,6 +110,7 @@ public class AccountDAO {
                         account.setId(generatedKeys.getInt(1));
                         // Retrieve created_at timestamp if needed (though not strictly necessary for the returned object)
                         // account.setCreatedAt(getAccountById(account.getId()).getCreatedAt()); // Example
+                        CREATE_METRICS.record(start, true);
                         return account;
                     }
                 }
@@ -42,9 +118,47 @@ public class AccountDAO {
         } catch (SQLException e) {
             System.err.println("Error creating account: " + e.getMessage());
         }
+        CREATE_METRICS.record(start, false);
         return null;
     }
 
+    /**
+     * Inserts accounts as one multi-row INSERT on the caller's connection and sets their generated IDs.
+     * Does not commit: it runs inside the caller's transaction (see UserImportDAO).
+     *
+     * @param conn     The active database connection (within a transaction).
+     * @param accounts The accounts to create.
+     * @throws SQLException if a database error occurs.
+     */
+    void insertAccounts(Connection conn, List<Account> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        StringBuilder sqlBuilder = new StringBuilder("INSERT INTO accounts (user_id, balance) VALUES (?, ?)");
+        for (int i = 1; i < accounts.size(); i++) {
+            sqlBuilder.append(", (?, ?)");
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Account account : accounts) {
+                pstmt.setInt(index++, account.getUserId());
+                SqlMoney.set(pstmt, index++, account.getBalance());
+            }
+            pstmt.executeUpdate();
+
+            // MySQL returns one generated key per inserted row, in insertion order
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                for (Account account : accounts) {
+                    if (!generatedKeys.next()) {
+                        break;
+                    }
+                    account.setId(generatedKeys.getInt(1));
+                }
+            }
+        } // Let SQLException propagate to the calling transactional method
+    }
+
     /**
      * Retrieves an account by its ID.
      *
@@ -54,6 +168,8 @@ public class AccountDAO {
     public Account getAccountById(int accountId) {
         String sql = "SELECT id, user_id, balance, created_at FROM accounts WHERE id = ?";
         Account account = null;
+        long start = System.nanoTime();
+        boolean success = true;
 
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -66,7 +182,9 @@ public class AccountDAO {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving account by ID " + accountId + ": " + e.getMessage());
+            success = false;
         }
+        GET_BY_ID_METRICS.record(start, success);
         return account;
     }
 
@@ -81,6 +199,8 @@ public class AccountDAO {
     public Account getAccountByUserId(int userId) {
         String sql = "SELECT id, user_id, balance, created_at FROM accounts WHERE user_id = ?";
         Account account = null;
+        long start = System.nanoTime();
+        boolean success = true;
 
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -94,7 +214,9 @@ public class AccountDAO {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving account for user ID " + userId + ": " + e.getMessage());
+            success = false;
         }
+        GET_BY_USER_METRICS.record(start, success);
         return account;
     }
 
@@ -103,14 +225,14 @@ public class AccountDAO {
      * This method bypasses transaction logging.
      *
      * @param accountId The ID of the account to update.
-     * @param newBalance The new balance for the account.
+     * @param newBalanceCents The new balance for the account, in cents.
      * @return true if the update was successful, false otherwise.
      */
-    private boolean updateBalance(Connection conn, int accountId, BigDecimal newBalance) throws SQLException {
+    private boolean updateBalance(Connection conn, int accountId, long newBalanceCents) throws SQLException {
         // This method assumes it's called within a transaction (needs connection passed)
         String sql = "UPDATE accounts SET balance = ? WHERE id = ?";
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setBigDecimal(1, newBalance);
+            SqlMoney.setCents(pstmt, 1, newBalanceCents);
             pstmt.setInt(2, accountId);
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
@@ -121,16 +243,27 @@ public class AccountDAO {
 
     /**
      * Deposits an amount into an account. Uses a transaction.
+     * The DEPOSIT ledger row is written in the same transaction, so there is a single commit.
      *
      * @param accountId The ID of the account.
      * @param amount    The positive amount to deposit.
      * @return true if the deposit was successful, false otherwise.
      */
-    public boolean deposit(int accountId, BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public boolean deposit(int accountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = depositOnce(accountId, amount);
+        DEPOSIT_METRICS.record(start, success);
+        return success;
+    }
+
+    private boolean depositOnce(int accountId, Money amount) {
+        if (amount == null || !amount.isPositive()) {
             System.err.println("Deposit amount must be positive.");
             return false;
         }
+        if (balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE) {
+            return depositConditional(accountId, amount);
+        }
 
         Connection conn = null;
         try {
@@ -138,23 +271,22 @@ public class AccountDAO {
             conn.setAutoCommit(false); // Start transaction
 
             // Lock the row for update (optional but safer in concurrent environments)
-            Account account = getAccountByIdForUpdate(conn, accountId);
-            if (account == null) {
+            long balance = lockBalanceCents(conn, accountId);
+            if (balance == NO_ACCOUNT) {
                 conn.rollback();
                 return false; // Account not found
             }
 
-            BigDecimal newBalance = account.getBalance().add(amount);
-            if (updateBalance(conn, accountId, newBalance)) {
-                // Log the transaction (should be done by the service/controller layer ideally)
-                // Example: transactionDAO.saveTransaction(new Transaction(accountId, DEPOSIT, amount, null));
+            if (updateBalance(conn, accountId, Math.addExact(balance, amount.getCents()))) {
+                transactionDAO.insertTransactions(conn, List.of(
+                        new Transaction(accountId, Transaction.TransactionType.DEPOSIT, amount, null)));
                 conn.commit();
                 return true;
             } else {
                 conn.rollback();
                 return false;
             }
-        } catch (SQLException e) {
+        } catch (SQLException | ArithmeticException e) { // ArithmeticException: the new balance overflowed
             System.err.println("Error during deposit transaction: " + e.getMessage());
             if (conn != null) {
                 try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage());}
@@ -163,23 +295,34 @@ public class AccountDAO {
         } finally {
             if (conn != null) {
                 try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
-                // Connection should not be closed here if obtained from Singleton pool managed elsewhere
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
             }
         }
     }
 
     /**
      * Withdraws an amount from an account. Uses a transaction.
+     * The WITHDRAW ledger row is written in the same transaction, so there is a single commit.
      *
      * @param accountId The ID of the account.
      * @param amount    The positive amount to withdraw.
      * @return true if the withdrawal was successful (sufficient funds), false otherwise.
      */
-    public boolean withdraw(int accountId, BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public boolean withdraw(int accountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = withdrawOnce(accountId, amount);
+        WITHDRAW_METRICS.record(start, success);
+        return success;
+    }
+
+    private boolean withdrawOnce(int accountId, Money amount) {
+        if (amount == null || !amount.isPositive()) {
             System.err.println("Withdrawal amount must be positive.");
             return false;
         }
+        if (balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE) {
+            return withdrawConditional(accountId, amount);
+        }
 
         Connection conn = null;
         try {
@@ -187,23 +330,23 @@ public class AccountDAO {
             conn.setAutoCommit(false); // Start transaction
 
             // Lock the row for update
-            Account account = getAccountByIdForUpdate(conn, accountId);
-            if (account == null) {
+            long balance = lockBalanceCents(conn, accountId);
+            if (balance == NO_ACCOUNT) {
                 conn.rollback();
                 return false; // Account not found
             }
 
 
-            if (account.getBalance().compareTo(amount) < 0) {
+            if (balance < amount.getCents()) {
                 System.err.println("Insufficient funds for withdrawal.");
+                WITHDRAW_METRICS.insufficientFunds();
                 conn.rollback(); // No need to proceed
                 return false;
             }
 
-            BigDecimal newBalance = account.getBalance().subtract(amount);
-            if (updateBalance(conn, accountId, newBalance)) {
-                // Log the transaction (should be done by the service/controller layer ideally)
-                // Example: transactionDAO.saveTransaction(new Transaction(accountId, WITHDRAW, amount, null));
+            if (updateBalance(conn, accountId, balance - amount.getCents())) { // Cannot overflow: 0 <= result < balance
+                transactionDAO.insertTransactions(conn, List.of(
+                        new Transaction(accountId, Transaction.TransactionType.WITHDRAW, amount, null)));
                 conn.commit();
                 return true;
             } else {
@@ -219,6 +362,7 @@ public class AccountDAO {
         } finally {
             if (conn != null) {
                 try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
             }
         }
     }
@@ -226,106 +370,484 @@ public class AccountDAO {
 
     /**
      * Transfers an amount from one account to another. Uses a transaction.
+     * The TRANSFER_OUT and TRANSFER_IN ledger rows are written in the same transaction
+     * as one multi-row insert, so there is a single commit.
+     * A transfer rolled back as a deadlock victim is retried, up to bank.account.transferAttempts attempts in total (3 by default).
      *
      * @param fromAccountId The ID of the source account.
      * @param toAccountId   The ID of the destination account.
      * @param amount        The positive amount to transfer.
      * @return true if the transfer was successful, false otherwise.
      */
-    public boolean transfer(int fromAccountId, int toAccountId, BigDecimal amount) {
+    public boolean transfer(int fromAccountId, int toAccountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = transferWithRetry(fromAccountId, toAccountId, amount);
+        TRANSFER_METRICS.record(start, success);
+        return success;
+    }
+
+    private boolean transferWithRetry(int fromAccountId, int toAccountId, Money amount) {
         if (fromAccountId == toAccountId) {
             System.err.println("Cannot transfer to the same account.");
             return false;
         }
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (amount == null || !amount.isPositive()) {
             System.err.println("Transfer amount must be positive.");
             return false;
         }
 
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return balanceUpdateMode == BalanceUpdateMode.CONDITIONAL_UPDATE
+                        ? transferConditional(fromAccountId, toAccountId, amount)
+                        : transferLocking(fromAccountId, toAccountId, amount);
+            } catch (SQLException e) {
+                if (isDeadlock(e) && attempt < MAX_TRANSFER_ATTEMPTS) {
+                    // Rows are locked in ID order, so this is rare; back off briefly so the winner can finish
+                    deadlockRetries.increment();
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                    continue;
+                }
+                if (isLockWaitTimeout(e)) {
+                    lockWaitTimeouts.increment();
+                }
+                System.err.println("Error during transfer transaction: " + e.getMessage());
+                return false;
+            } catch (ArithmeticException e) {
+                System.err.println("Transfer to account " + toAccountId + " would overflow its balance.");
+                return false;
+            }
+        }
+    }
+
+    /**
+     * LOCK_AND_CHECK transfer: locks both rows with SELECT ... FOR UPDATE, then writes the new balances.
+     * Database errors are rethrown after rollback so {@link #transfer} can retry deadlocks.
+     */
+    private boolean transferLocking(int fromAccountId, int toAccountId, Money amount) throws SQLException {
         Connection conn = null;
         try {
             conn = Database.getConnection();
             conn.setAutoCommit(false); // Start transaction
 
-            // Lock rows for update (order by ID to prevent deadlocks)
-            int firstLockId = Math.min(fromAccountId, toAccountId);
-            int secondLockId = Math.max(fromAccountId, toAccountId);
+            if (transferInTransaction(conn, fromAccountId, toAccountId, amount) == TransferStatus.COMPLETED) {
+                conn.commit();
+                return true;
+            } else {
+                conn.rollback();
+                return false;
+            }
+
+        } catch (SQLException | ArithmeticException e) {
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+        }
+    }
+
+    /**
+     * The body of a LOCK_AND_CHECK transfer on the caller's connection: locks both rows in ID order, checks funds,
+     * writes both balances and both ledger rows. Does not commit or roll back, so callers can make other writes
+     * atomic with the transfer (see ScheduledTransferDAO); roll back unless the result is COMPLETED.
+     *
+     * @return COMPLETED, ACCOUNT_NOT_FOUND or INSUFFICIENT_FUNDS.
+     * @throws SQLException        if a database error occurs.
+     * @throws ArithmeticException if the destination balance would overflow (nothing is written then).
+     */
+    TransferStatus transferInTransaction(Connection conn, int fromAccountId, int toAccountId, Money amount) throws SQLException {
+        // Lock rows for update (order by ID to prevent deadlocks)
+        int firstLockId = Math.min(fromAccountId, toAccountId);
+        int secondLockId = Math.max(fromAccountId, toAccountId);
+
+        long firstBalance = lockBalanceCents(conn, firstLockId);
+        long secondBalance = lockBalanceCents(conn, secondLockId);
 
-            Account firstAccount = getAccountByIdForUpdate(conn, firstLockId);
-            Account secondAccount = getAccountByIdForUpdate(conn, secondLockId);
+        long fromBalance = (fromAccountId == firstLockId) ? firstBalance : secondBalance;
+        long toBalance = (toAccountId == firstLockId) ? firstBalance : secondBalance;
 
-            Account fromAccount = (fromAccountId == firstLockId) ? firstAccount : secondAccount;
-            Account toAccount = (toAccountId == firstLockId) ? firstAccount : secondAccount;
 
+        if (fromBalance == NO_ACCOUNT || toBalance == NO_ACCOUNT) {
+            System.err.println("One or both accounts not found.");
+            return TransferStatus.ACCOUNT_NOT_FOUND;
+        }
 
-            if (fromAccount == null || toAccount == null) {
-                System.err.println("One or both accounts not found.");
-                conn.rollback();
+        // Check sufficient funds in the source account
+        if (fromBalance < amount.getCents()) {
+            System.err.println("Insufficient funds for transfer from account " + fromAccountId);
+            TRANSFER_METRICS.insufficientFunds();
+            return TransferStatus.INSUFFICIENT_FUNDS;
+        }
+
+        // Perform the balance updates
+        long toNewBalance = Math.addExact(toBalance, amount.getCents()); // Checked before any write
+        boolean withdrawSuccess = updateBalance(conn, fromAccountId, fromBalance - amount.getCents());
+        boolean depositSuccess = updateBalance(conn, toAccountId, toNewBalance);
+
+        if (!withdrawSuccess || !depositSuccess) {
+            System.err.println("Failed to update balances during transfer.");
+            return TransferStatus.ACCOUNT_NOT_FOUND; // The row vanished, which the FOR UPDATE lock should prevent
+        }
+        transactionDAO.insertTransactions(conn, List.of(
+                new Transaction(fromAccountId, Transaction.TransactionType.TRANSFER_OUT, amount, toAccountId),
+                new Transaction(toAccountId, Transaction.TransactionType.TRANSFER_IN, amount, fromAccountId)));
+        return TransferStatus.COMPLETED;
+    }
+
+    /**
+     * Pays many accounts from one source account, e.g. a payroll run, far faster than one {@link #transfer} per line.
+     * Lines are committed in chunks of bank.account.batchTransferChunkSize (500 by default). Each chunk is one transaction:
+     * <ul>
+     *   <li>it locks the source and every destination with one SELECT ... FOR UPDATE, in ascending ID order
+     *   (the order single transfers lock in, so the two cannot deadlock);</li>
+     *   <li>checks each line against the running source balance, in input order;</li>
+     *   <li>writes the new balances with one batched UPDATE and every ledger row with multi-row inserts.</li>
+     * </ul>
+     * A line that cannot be paid does not stop the others. A chunk rolled back as a deadlock victim is retried;
+     * if a chunk still fails, it and the chunks after it are reported FAILED and nothing of them is applied.
+     * Always locks rows, whatever the {@link BalanceUpdateMode}.
+     *
+     * @param fromAccountId The account paying.
+     * @param lines         The payments, in the order funds are allotted to them.
+     * @return One status per line, in the same order.
+     */
+    public List<TransferStatus> batchTransfer(int fromAccountId, List<TransferLine> lines) {
+        return batchTransfer(fromAccountId, lines, BATCH_TRANSFER_CHUNK_SIZE);
+    }
+
+    /**
+     * Same as {@link #batchTransfer(int, List)} with an explicit number of lines per transaction.
+     */
+    public List<TransferStatus> batchTransfer(int fromAccountId, List<TransferLine> lines, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        long start = System.nanoTime();
+        TransferStatus[] statuses = new TransferStatus[lines.size()];
+        Arrays.fill(statuses, TransferStatus.FAILED);
+        boolean success = true;
+        for (int from = 0; from < lines.size() && success; from += chunkSize) {
+            success = batchTransferChunkWithRetry(fromAccountId, lines, from, Math.min(from + chunkSize, lines.size()), statuses);
+        }
+        BATCH_TRANSFER_METRICS.record(start, success);
+        return Arrays.asList(statuses);
+    }
+
+    private boolean batchTransferChunkWithRetry(int fromAccountId, List<TransferLine> lines, int from, int to, TransferStatus[] statuses) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                batchTransferChunk(fromAccountId, lines, from, to, statuses);
+                return true;
+            } catch (SQLException e) {
+                Arrays.fill(statuses, from, to, TransferStatus.FAILED); // Nothing of the chunk was committed
+                if (isDeadlock(e) && attempt < MAX_TRANSFER_ATTEMPTS) {
+                    deadlockRetries.increment();
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                    continue;
+                }
+                if (isLockWaitTimeout(e)) {
+                    lockWaitTimeouts.increment();
+                }
+                System.err.println("Error during batch transfer from account " + fromAccountId + " (lines " + from + "-" + (to - 1) + "): " + e.getMessage());
                 return false;
             }
+        }
+    }
+
+    private void batchTransferChunk(int fromAccountId, List<TransferLine> lines, int from, int to, TransferStatus[] statuses) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            conn.setAutoCommit(false); // Start transaction
+
+            Set<Integer> accountIds = new TreeSet<>();
+            accountIds.add(fromAccountId);
+            for (int i = from; i < to; i++) {
+                accountIds.add(lines.get(i).toAccountId());
+            }
+            Map<Integer, Long> balances = readBalancesCents(conn, accountIds, true);
+
+            // Allot funds line by line, on primitives; nothing is written yet
+            Long sourceBalance = balances.get(fromAccountId);
+            long source = sourceBalance != null ? sourceBalance : 0;
+            Set<Integer> changed = new TreeSet<>();
+            List<Transaction> ledger = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                TransferLine line = lines.get(i);
+                Long toBalance = balances.get(line.toAccountId());
+                if (line.amount() == null || !line.amount().isPositive() || line.toAccountId() == fromAccountId) {
+                    statuses[i] = TransferStatus.INVALID;
+                } else if (sourceBalance == null || toBalance == null) {
+                    statuses[i] = TransferStatus.ACCOUNT_NOT_FOUND;
+                } else if (source < line.amount().getCents()) {
+                    statuses[i] = TransferStatus.INSUFFICIENT_FUNDS;
+                    BATCH_TRANSFER_METRICS.insufficientFunds();
+                } else if (toBalance > Long.MAX_VALUE - line.amount().getCents()) {
+                    statuses[i] = TransferStatus.INVALID; // The credit would overflow
+                } else {
+                    source -= line.amount().getCents();
+                    balances.put(line.toAccountId(), toBalance + line.amount().getCents());
+                    changed.add(line.toAccountId());
+                    ledger.add(new Transaction(fromAccountId, Transaction.TransactionType.TRANSFER_OUT, line.amount(), line.toAccountId()));
+                    ledger.add(new Transaction(line.toAccountId(), Transaction.TransactionType.TRANSFER_IN, line.amount(), fromAccountId));
+                    statuses[i] = TransferStatus.COMPLETED;
+                }
+            }
+            if (ledger.isEmpty()) {
+                conn.rollback(); // Only releases the locks
+                return;
+            }
+            balances.put(fromAccountId, source);
+            changed.add(fromAccountId);
+
+            // New absolute balances (the rows are locked), in ascending ID order
+            try (PreparedStatement pstmt = conn.prepareStatement("UPDATE accounts SET balance = ? WHERE id = ?")) {
+                for (int accountId : changed) {
+                    SqlMoney.setCents(pstmt, 1, balances.get(accountId));
+                    pstmt.setInt(2, accountId);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            for (int i = 0; i < ledger.size(); i += TransactionDAO.MAX_ROWS_PER_INSERT) {
+                transactionDAO.insertTransactions(conn, ledger.subList(i, Math.min(i + TransactionDAO.MAX_ROWS_PER_INSERT, ledger.size())));
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+        }
+    }
 
-            // Check sufficient funds in the source account
-            if (fromAccount.getBalance().compareTo(amount) < 0) {
-                System.err.println("Insufficient funds for transfer from account " + fromAccountId);
+    // --- CONDITIONAL_UPDATE mode: no SELECT ... FOR UPDATE, the row lock is taken by the UPDATE itself ---
+
+    private boolean depositConditional(int accountId, Money amount) {
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            conn.setAutoCommit(false); // Start transaction
+
+            if (!creditBalance(conn, accountId, amount)) {
                 conn.rollback();
-                return false;
+                return false; // Account not found
             }
+            transactionDAO.insertTransactions(conn, List.of(
+                    new Transaction(accountId, Transaction.TransactionType.DEPOSIT, amount, null)));
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error during deposit transaction: " + e.getMessage());
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            return false;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+        }
+    }
 
-            // Perform the balance updates
-            BigDecimal fromNewBalance = fromAccount.getBalance().subtract(amount);
-            BigDecimal toNewBalance = toAccount.getBalance().add(amount);
+    private boolean withdrawConditional(int accountId, Money amount) {
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            conn.setAutoCommit(false); // Start transaction
 
-            boolean withdrawSuccess = updateBalance(conn, fromAccountId, fromNewBalance);
-            boolean depositSuccess = updateBalance(conn, toAccountId, toNewBalance);
+            if (!debitBalance(conn, accountId, amount)) {
+                // No row matched: a missing account looks the same as a short balance, so tell them apart here
+                if (accountExists(conn, accountId)) {
+                    System.err.println("Insufficient funds for withdrawal.");
+                    WITHDRAW_METRICS.insufficientFunds();
+                }
+                conn.rollback();
+                return false;
+            }
+            transactionDAO.insertTransactions(conn, List.of(
+                    new Transaction(accountId, Transaction.TransactionType.WITHDRAW, amount, null)));
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error during withdrawal transaction: " + e.getMessage());
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            return false;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+        }
+    }
 
-            if (withdrawSuccess && depositSuccess) {
-                // Log transactions (should be done by service/controller ideally)
-                // Example: transactionDAO.saveTransaction(new Transaction(fromAccountId, TRANSFER_OUT, amount, toAccountId));
-                // Example: transactionDAO.saveTransaction(new Transaction(toAccountId, TRANSFER_IN, amount, fromAccountId));
-                conn.commit();
-                return true;
+    private boolean transferConditional(int fromAccountId, int toAccountId, Money amount) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            conn.setAutoCommit(false); // Start transaction
+
+            // Update rows in ID order, same as the FOR UPDATE path, to prevent deadlocks
+            boolean success;
+            if (fromAccountId < toAccountId) {
+                success = debitBalance(conn, fromAccountId, amount) && creditBalance(conn, toAccountId, amount);
             } else {
-                System.err.println("Failed to update balances during transfer.");
+                success = creditBalance(conn, toAccountId, amount) && debitBalance(conn, fromAccountId, amount);
+            }
+
+            if (!success) {
+                // No row matched: a missing account looks the same as a short balance, so tell them apart here
+                if (accountExists(conn, fromAccountId) && accountExists(conn, toAccountId)) {
+                    System.err.println("Insufficient funds for transfer from account " + fromAccountId);
+                    TRANSFER_METRICS.insufficientFunds();
+                } else {
+                    System.err.println("One or both accounts not found.");
+                }
                 conn.rollback();
                 return false;
             }
-
+            transactionDAO.insertTransactions(conn, List.of(
+                    new Transaction(fromAccountId, Transaction.TransactionType.TRANSFER_OUT, amount, toAccountId),
+                    new Transaction(toAccountId, Transaction.TransactionType.TRANSFER_IN, amount, fromAccountId)));
+            conn.commit();
+            return true;
         } catch (SQLException e) {
-            System.err.println("Error during transfer transaction: " + e.getMessage());
             if (conn != null) {
                 try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
             }
-            return false;
+            throw e;
         } finally {
             if (conn != null) {
                 try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+        }
+    }
+
+    // MySQL reports a deadlock as error 1213 (SQLState 40001); H2 and other drivers use SQLState 40001 alone
+    static boolean isDeadlock(SQLException e) {
+        return e.getErrorCode() == 1213 || ("40001".equals(e.getSQLState()) && !isLockWaitTimeout(e));
+    }
+
+    // MySQL: 1205 (innodb_lock_wait_timeout exceeded); H2: 50200 (LOCK_TIMEOUT_1)
+    private static boolean isLockWaitTimeout(SQLException e) {
+        return e.getErrorCode() == 1205 || e.getErrorCode() == 50200;
+    }
+
+    /**
+     * Subtracts an amount from an account only if the balance covers it.
+     *
+     * @return false if the account does not exist or has insufficient funds (no row matched).
+     */
+    private boolean debitBalance(Connection conn, int accountId, Money amount) throws SQLException {
+        String sql = "UPDATE accounts SET balance = balance - ? WHERE id = ? AND balance >= ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            SqlMoney.set(pstmt, 1, amount);
+            pstmt.setInt(2, accountId);
+            SqlMoney.set(pstmt, 3, amount);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Adds an amount to an account.
+     *
+     * @return false if the account does not exist.
+     */
+    private boolean creditBalance(Connection conn, int accountId, Money amount) throws SQLException {
+        String sql = "UPDATE accounts SET balance = balance + ? WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            SqlMoney.set(pstmt, 1, amount);
+            pstmt.setInt(2, accountId);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Only used after a conditional UPDATE matched no row, so the common path pays for no extra query.
+     */
+    private boolean accountExists(Connection conn, int accountId) throws SQLException {
+        String sql = "SELECT 1 FROM accounts WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, accountId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
             }
         }
     }
 
     /**
-     * Retrieves an account by ID for update, locking the row.
+     * Reads several accounts' balances with one statement. With lock, the rows are read for update and locked
+     * in ascending ID order (the primary key range scan visits them in that order).
+     *
+     * @return Balance in cents by account ID; accounts that do not exist are absent.
+     * @throws SQLException if a database error occurs.
+     */
+    static Map<Integer, Long> readBalancesCents(Connection conn, Collection<Integer> accountIds, boolean lock) throws SQLException {
+        StringBuilder sqlBuilder = new StringBuilder("SELECT id, balance FROM accounts WHERE id IN (");
+        for (int i = 0; i < accountIds.size(); i++) {
+            sqlBuilder.append(i == 0 ? "?" : ", ?");
+        }
+        sqlBuilder.append(lock ? ") ORDER BY id FOR UPDATE" : ")");
+
+        Map<Integer, Long> balances = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
+            int index = 1;
+            for (int accountId : accountIds) {
+                pstmt.setInt(index++, accountId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getInt("id"), SqlMoney.getCents(rs, "balance"));
+                }
+            }
+        } // Let SQLException propagate to the calling transactional method
+        return balances;
+    }
+
+    /**
+     * Reads an account's balance for update, locking the row.
      * Must be called within an active transaction with auto-commit set to false.
+     * Returns cents rather than an Account so the balance check and arithmetic stay on primitives.
      *
      * @param conn      The active database connection (within a transaction).
-     * @param accountId The ID of the account to retrieve and lock.
-     * @return The Account object if found, null otherwise.
+     * @param accountId The ID of the account to read and lock.
+     * @return The balance in cents, or NO_ACCOUNT if the account does not exist.
      * @throws SQLException if a database error occurs.
      */
-    private Account getAccountByIdForUpdate(Connection conn, int accountId) throws SQLException {
+    private long lockBalanceCents(Connection conn, int accountId) throws SQLException {
         // "FOR UPDATE" locks the selected row(s) until the transaction is committed or rolled back
-        String sql = "SELECT id, user_id, balance, created_at FROM accounts WHERE id = ? FOR UPDATE";
-        Account account = null;
+        String sql = "SELECT balance FROM accounts WHERE id = ? FOR UPDATE";
 
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, accountId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    account = mapResultSetToAccount(rs);
-                }
+                return rs.next() ? SqlMoney.getCents(rs, "balance") : NO_ACCOUNT;
             }
         } // Let SQLException propagate to the calling transactional method
-        return account;
     }
 
     // Helper method to map ResultSet to Account object
@@ -333,7 +855,7 @@ public class AccountDAO {
         Account account = new Account();
         account.setId(rs.getInt("id"));
         account.setUserId(rs.getInt("user_id"));
-        account.setBalance(rs.getBigDecimal("balance"));
+        account.setBalance(SqlMoney.get(rs, "balance"));
         Timestamp ts = rs.getTimestamp("created_at");
         account.setCreatedAt(ts != null ? ts.toLocalDateTime() : null);
         return account;
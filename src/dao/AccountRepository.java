@@ -0,0 +1,78 @@
+package dao;
+
+import model.Account;
+import model.Money;
+
+import java.util.List;
+
+/**
+ * Storage of accounts and the money operations on them, independent of the engine behind it
+ * (see {@link StorageEngine}). Implementations must behave alike as checked by benchmark.StorageConformance (in bench/):
+ * amounts must be positive, a failed operation changes nothing, and every balance change has its ledger rows.
+ */
+public interface AccountRepository {
+
+    /**
+     * One line of a {@link #batchTransfer} run: pay amount into toAccountId.
+     */
+    record TransferLine(int toAccountId, Money amount) {
+    }
+
+    /**
+     * Outcome of one {@link TransferLine}.
+     */
+    enum TransferStatus {
+        COMPLETED,
+        INSUFFICIENT_FUNDS,
+        /** The source or the destination account does not exist. */
+        ACCOUNT_NOT_FOUND,
+        /** Not a positive amount, a transfer to the source itself, or a credit that would overflow the destination. */
+        INVALID,
+        /** Its chunk could not be committed, or was not attempted because an earlier chunk failed. */
+        FAILED
+    }
+
+    /**
+     * @return The created account with its generated ID, or null if creation fails (e.g. the user does not exist).
+     */
+    Account createAccount(Account account);
+
+    /**
+     * @return The account, or null if it does not exist.
+     */
+    Account getAccountById(int accountId);
+
+    /**
+     * @return The user's account, or null if they have none.
+     */
+    Account getAccountByUserId(int userId);
+
+    /**
+     * Deposits a positive amount, recorded as a DEPOSIT.
+     *
+     * @return true if the deposit was made.
+     */
+    boolean deposit(int accountId, Money amount);
+
+    /**
+     * Withdraws a positive amount if the balance covers it, recorded as a WITHDRAW.
+     *
+     * @return true if the withdrawal was made.
+     */
+    boolean withdraw(int accountId, Money amount);
+
+    /**
+     * Moves a positive amount between two different accounts if the source covers it,
+     * recorded as a TRANSFER_OUT and a TRANSFER_IN.
+     *
+     * @return true if the transfer was made.
+     */
+    boolean transfer(int fromAccountId, int toAccountId, Money amount);
+
+    /**
+     * Pays many accounts from one, allotting the source's funds to the lines in input order.
+     *
+     * @return One status per line, in the same order.
+     */
+    List<TransferStatus> batchTransfer(int fromAccountId, List<TransferLine> lines);
+}
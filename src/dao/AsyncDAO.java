@@ -0,0 +1,163 @@
+package dao;
+
+import model.Account;
+import model.ActivitySummary;
+import model.Money;
+import model.Transaction;
+import model.User;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over the DAOs for UI code, on the storage engine bank.storage selects (see {@link StorageEngine}).
+ * Every call runs the blocking DAO method (JDBC round trips, BCrypt hashing) on a virtual thread and
+ * returns immediately with a CompletableFuture, so the JavaFX Application Thread never waits on the database.
+ *
+ * Cancelling a returned future only stops its callbacks from running; a money operation that has already
+ * started still commits or rolls back as a whole.
+ */
+public class AsyncDAO {
+
+    // One virtual thread per call: cheap to create, and a call blocked on JDBC parks instead of holding a platform thread
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final UserRepository userDAO;
+    private final AccountRepository accountDAO;
+    private final TransactionRepository transactionDAO;
+
+    public AsyncDAO() {
+        this(StorageEngine.fromProperties());
+    }
+
+    public AsyncDAO(StorageEngine engine) {
+        this(engine.users(), engine.accounts(), engine.transactions());
+    }
+
+    public AsyncDAO(UserRepository userDAO, AccountRepository accountDAO, TransactionRepository transactionDAO) {
+        this.userDAO = userDAO;
+        this.accountDAO = accountDAO;
+        this.transactionDAO = transactionDAO;
+    }
+
+    private static <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, EXECUTOR);
+    }
+
+    // --- Users ---
+
+    public CompletableFuture<User> login(String username, String plainPassword) {
+        return supply(() -> userDAO.login(username, plainPassword));
+    }
+
+    public CompletableFuture<User> getUserByUsername(String username) {
+        return supply(() -> userDAO.getUserByUsername(username));
+    }
+
+    public CompletableFuture<List<User>> getAllUsers() {
+        return supply(userDAO::getAllUsers);
+    }
+
+    public CompletableFuture<Integer> countUsers() {
+        return supply(userDAO::countUsers);
+    }
+
+    public CompletableFuture<Page<User>> getUsersPage(String cursor, int pageSize) {
+        return supply(() -> userDAO.getUsersPage(cursor, pageSize));
+    }
+
+    public CompletableFuture<Page<User>> getUsersPageAtOffset(int offset, int pageSize) {
+        return supply(() -> userDAO.getUsersPageAtOffset(offset, pageSize));
+    }
+
+    public CompletableFuture<List<User>> searchUsers(String query, int limit) {
+        return supply(() -> userDAO.searchUsers(query, limit));
+    }
+
+    public CompletableFuture<Boolean> updateUserLockStatus(String username, boolean locked) {
+        return supply(() -> userDAO.updateUserLockStatus(username, locked));
+    }
+
+    public CompletableFuture<Boolean> deleteUser(int userId) {
+        return supply(() -> userDAO.deleteUser(userId));
+    }
+
+    /**
+     * Registers a user (including the BCrypt hash) and opens their zero-balance account, both off the caller's thread.
+     *
+     * @return A future with the created Account, or null if either step failed;
+     * the user is still created if only the account step failed (same as calling the DAOs directly).
+     */
+    public CompletableFuture<Account> registerWithAccount(User user) {
+        return supply(() -> {
+            User created = userDAO.register(user);
+            if (created == null) {
+                return null;
+            }
+            return accountDAO.createAccount(new Account(created.getId(), Money.ZERO));
+        });
+    }
+
+    public CompletableFuture<User> register(User user) {
+        return supply(() -> userDAO.register(user));
+    }
+
+    // --- Accounts ---
+
+    public CompletableFuture<Account> createAccount(Account account) {
+        return supply(() -> accountDAO.createAccount(account));
+    }
+
+    public CompletableFuture<Account> getAccountById(int accountId) {
+        return supply(() -> withJournaledBalance(accountDAO.getAccountById(accountId)));
+    }
+
+    public CompletableFuture<Account> getAccountByUserId(int userId) {
+        return supply(() -> withJournaledBalance(accountDAO.getAccountByUserId(userId)));
+    }
+
+    // Money operations go through the local journal when it is enabled (see JournaledAccountDAO)
+
+    public CompletableFuture<Boolean> deposit(int accountId, Money amount) {
+        JournaledAccountDAO journaled = JournaledAccountDAO.getInstance();
+        return supply(() -> journaled != null ? journaled.deposit(accountId, amount) : accountDAO.deposit(accountId, amount));
+    }
+
+    public CompletableFuture<Boolean> withdraw(int accountId, Money amount) {
+        JournaledAccountDAO journaled = JournaledAccountDAO.getInstance();
+        return supply(() -> journaled != null ? journaled.withdraw(accountId, amount) : accountDAO.withdraw(accountId, amount));
+    }
+
+    public CompletableFuture<Boolean> transfer(int fromAccountId, int toAccountId, Money amount) {
+        JournaledAccountDAO journaled = JournaledAccountDAO.getInstance();
+        return supply(() -> journaled != null
+                ? journaled.transfer(fromAccountId, toAccountId, amount)
+                : accountDAO.transfer(fromAccountId, toAccountId, amount));
+    }
+
+    // The database balance trails journaled operations until they are replayed; show the acknowledged one
+    private static Account withJournaledBalance(Account account) {
+        JournaledAccountDAO journaled = JournaledAccountDAO.getInstance();
+        if (account != null && journaled != null) {
+            Money balance = journaled.getBalance(account.getId());
+            if (balance != null) {
+                account.setBalance(balance);
+            }
+        }
+        return account;
+    }
+
+    // --- Transactions ---
+
+    public CompletableFuture<Page<Transaction>> getHistoryPageByAccountId(int accountId, String cursor, int pageSize) {
+        return supply(() -> transactionDAO.getHistoryPageByAccountId(accountId, cursor, pageSize));
+    }
+
+    public CompletableFuture<ActivitySummary> getMonthlySummary(int accountId, YearMonth month) {
+        return supply(() -> transactionDAO.getMonthlySummary(accountId, month));
+    }
+}
@@ -0,0 +1,169 @@
+package dao;
+
+import metrics.Metrics;
+import metrics.OperationMetrics;
+import model.Account;
+import model.Money;
+import model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accounts and money operations of the in-memory storage engine. Balances change by compare-and-set only:
+ * a withdrawal or the debit side of a transfer re-reads and retries until its check and its write apply to the same
+ * balance, so no operation ever holds a lock on an account.
+ *
+ * A transfer debits the source first and then credits the destination; if the credit is refused (the balance would
+ * overflow) the debit is refunded. Between the two the money is visible in neither account, and an operation's
+ * ledger rows are appended just after its balance changes. Once operations have finished, balances and ledgers
+ * agree exactly, as with the JDBC engine.
+ */
+public class InMemoryAccountRepository implements AccountRepository {
+
+    private static final OperationMetrics DEPOSIT_METRICS = Metrics.operation("memory.deposit");
+    private static final OperationMetrics WITHDRAW_METRICS = Metrics.operation("memory.withdraw");
+    private static final OperationMetrics TRANSFER_METRICS = Metrics.operation("memory.transfer");
+
+    private final InMemoryStore store;
+
+    InMemoryAccountRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Account createAccount(Account account) {
+        if (!store.usersById.containsKey(account.getUserId())) {
+            System.err.println("Error creating account: user " + account.getUserId() + " does not exist.");
+            return null;
+        }
+        long balance = account.getBalance() != null ? account.getBalance().getCents() : 0;
+        if (balance < 0 || balance > InMemoryStore.MAX_BALANCE_CENTS) {
+            System.err.println("Error creating account: invalid opening balance.");
+            return null;
+        }
+        InMemoryStore.StoredAccount stored = new InMemoryStore.StoredAccount(store.accountIds.incrementAndGet(), account.getUserId(), balance);
+        store.accounts.put(stored.id, stored);
+        store.accountIdsByUser.putIfAbsent(stored.userId, stored.id);
+        account.setId(stored.id);
+        return account;
+    }
+
+    @Override
+    public Account getAccountById(int accountId) {
+        InMemoryStore.StoredAccount stored = store.accounts.get(accountId);
+        return stored != null ? stored.toAccount() : null;
+    }
+
+    @Override
+    public Account getAccountByUserId(int userId) {
+        Integer accountId = store.accountIdsByUser.get(userId);
+        return accountId != null ? getAccountById(accountId) : null;
+    }
+
+    @Override
+    public boolean deposit(int accountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = depositOnce(accountId, amount);
+        DEPOSIT_METRICS.record(start, success);
+        return success;
+    }
+
+    private boolean depositOnce(int accountId, Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            System.err.println("Deposit amount must be positive.");
+            return false;
+        }
+        InMemoryStore.StoredAccount account = store.accounts.get(accountId);
+        if (account == null) {
+            return false; // Account not found
+        }
+        if (!account.credit(amount.getCents())) {
+            System.err.println("Deposit to account " + accountId + " would overflow its balance.");
+            return false;
+        }
+        account.append(new Transaction(accountId, Transaction.TransactionType.DEPOSIT, amount, null), store.transactionIds);
+        return true;
+    }
+
+    @Override
+    public boolean withdraw(int accountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = withdrawOnce(accountId, amount);
+        WITHDRAW_METRICS.record(start, success);
+        return success;
+    }
+
+    private boolean withdrawOnce(int accountId, Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            System.err.println("Withdrawal amount must be positive.");
+            return false;
+        }
+        InMemoryStore.StoredAccount account = store.accounts.get(accountId);
+        if (account == null) {
+            return false; // Account not found
+        }
+        if (!account.debit(amount.getCents())) {
+            System.err.println("Insufficient funds for withdrawal.");
+            WITHDRAW_METRICS.insufficientFunds();
+            return false;
+        }
+        account.append(new Transaction(accountId, Transaction.TransactionType.WITHDRAW, amount, null), store.transactionIds);
+        return true;
+    }
+
+    @Override
+    public boolean transfer(int fromAccountId, int toAccountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = false;
+        if (fromAccountId == toAccountId) {
+            System.err.println("Cannot transfer to the same account.");
+        } else if (amount == null || !amount.isPositive()) {
+            System.err.println("Transfer amount must be positive.");
+        } else {
+            success = transferOnce(fromAccountId, toAccountId, amount) == AccountRepository.TransferStatus.COMPLETED;
+        }
+        TRANSFER_METRICS.record(start, success);
+        return success;
+    }
+
+    // Moves a valid amount between two different accounts
+    private AccountRepository.TransferStatus transferOnce(int fromAccountId, int toAccountId, Money amount) {
+        InMemoryStore.StoredAccount from = store.accounts.get(fromAccountId);
+        InMemoryStore.StoredAccount to = store.accounts.get(toAccountId);
+        if (from == null || to == null) {
+            System.err.println("One or both accounts not found.");
+            return AccountRepository.TransferStatus.ACCOUNT_NOT_FOUND;
+        }
+        if (!from.debit(amount.getCents())) {
+            System.err.println("Insufficient funds for transfer from account " + fromAccountId);
+            TRANSFER_METRICS.insufficientFunds();
+            return AccountRepository.TransferStatus.INSUFFICIENT_FUNDS;
+        }
+        if (!to.credit(amount.getCents())) {
+            from.refund(amount.getCents());
+            System.err.println("Transfer to account " + toAccountId + " would overflow its balance.");
+            return AccountRepository.TransferStatus.INVALID;
+        }
+        from.append(new Transaction(fromAccountId, Transaction.TransactionType.TRANSFER_OUT, amount, toAccountId), store.transactionIds);
+        to.append(new Transaction(toAccountId, Transaction.TransactionType.TRANSFER_IN, amount, fromAccountId), store.transactionIds);
+        return AccountRepository.TransferStatus.COMPLETED;
+    }
+
+    /**
+     * Same outcome per line as {@link AccountDAO#batchTransfer(int, List)}; each line is its own transfer here,
+     * as nothing can fail part-way through a chunk.
+     */
+    @Override
+    public List<AccountRepository.TransferStatus> batchTransfer(int fromAccountId, List<AccountRepository.TransferLine> lines) {
+        List<AccountRepository.TransferStatus> statuses = new ArrayList<>(lines.size());
+        for (AccountRepository.TransferLine line : lines) {
+            if (line.amount() == null || !line.amount().isPositive() || line.toAccountId() == fromAccountId) {
+                statuses.add(AccountRepository.TransferStatus.INVALID);
+            } else {
+                statuses.add(transferOnce(fromAccountId, line.toAccountId(), line.amount()));
+            }
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,153 @@
+package dao;
+
+import model.Account;
+import model.Money;
+import model.Transaction;
+import model.User;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The data behind the in-memory storage engine: concurrent maps of users and accounts, a CAS-updated balance per
+ * account and an append-only ledger per account. Shared by InMemoryUserRepository, InMemoryAccountRepository and
+ * InMemoryTransactionRepository, which hand out copies, never the stored objects.
+ */
+final class InMemoryStore {
+
+    // Largest balance the accounts.balance DECIMAL(15, 2) column holds; the JDBC engine fails credits beyond it
+    static final long MAX_BALANCE_CENTS = 999_999_999_999_999L;
+
+    final AtomicInteger userIds = new AtomicInteger();
+    final AtomicInteger accountIds = new AtomicInteger();
+    final AtomicInteger transactionIds = new AtomicInteger();
+
+    // Stored users are replaced, never changed in place, so readers always see a consistent user
+    final ConcurrentHashMap<Integer, User> usersById = new ConcurrentHashMap<>();
+    // Lower-cased username to ID, in username order, like the case-insensitive username index
+    final ConcurrentSkipListMap<String, Integer> userIdsByName = new ConcurrentSkipListMap<>();
+
+    final ConcurrentHashMap<Integer, StoredAccount> accounts = new ConcurrentHashMap<>();
+    // Each user's first account, as AccountDAO.getAccountByUserId returns one account per user
+    final ConcurrentHashMap<Integer, Integer> accountIdsByUser = new ConcurrentHashMap<>();
+
+    static String nameKey(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    static User copy(User user, boolean withPassword) {
+        return new User(user.getId(), user.getUsername(), withPassword ? user.getPassword() : null,
+                user.getRole(), user.isLocked(), user.getFailedAttempts());
+    }
+
+    static Transaction copy(Transaction transaction) {
+        return new Transaction(transaction.getId(), transaction.getAccountId(), transaction.getType(), transaction.getAmount(),
+                transaction.getTransactionDate(), transaction.getRelatedAccountId());
+    }
+
+    /**
+     * One account. The balance is only ever changed by compare-and-set, so money operations never block each other;
+     * the ledger is appended to under a short per-account lock that also hands out the IDs, so an account's
+     * transactions are in ID order.
+     */
+    static final class StoredAccount {
+        final int id;
+        final int userId;
+        final LocalDateTime createdAt;
+        final AtomicLong balanceCents;
+        private final List<Transaction> ledger = new ArrayList<>();
+        private final ReentrantLock ledgerLock = new ReentrantLock();
+
+        StoredAccount(int id, int userId, long balanceCents) {
+            this.id = id;
+            this.userId = userId;
+            this.createdAt = LocalDateTime.now();
+            this.balanceCents = new AtomicLong(balanceCents);
+        }
+
+        /**
+         * @return false if the credit would take the balance past MAX_BALANCE_CENTS (nothing changes then).
+         */
+        boolean credit(long cents) {
+            while (true) {
+                long balance = balanceCents.get();
+                if (balance > MAX_BALANCE_CENTS - cents) {
+                    return false;
+                }
+                if (balanceCents.compareAndSet(balance, balance + cents)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return false if the balance does not cover the debit (nothing changes then).
+         */
+        boolean debit(long cents) {
+            while (true) {
+                long balance = balanceCents.get();
+                if (balance < cents) {
+                    return false;
+                }
+                if (balanceCents.compareAndSet(balance, balance - cents)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Gives back a debit whose matching credit failed; never refused, the money was there a moment ago.
+         */
+        void refund(long cents) {
+            balanceCents.addAndGet(cents);
+        }
+
+        Account toAccount() {
+            return new Account(id, userId, Money.ofCents(balanceCents.get()), createdAt);
+        }
+
+        /**
+         * Appends to the ledger, setting the transaction's ID and, if missing, its date. Dates are kept to whole seconds,
+         * as the transactions table stores them.
+         */
+        void append(Transaction transaction, AtomicInteger transactionIds) {
+            ledgerLock.lock();
+            try {
+                transaction.setId(transactionIds.incrementAndGet());
+                LocalDateTime date = transaction.getTransactionDate() != null ? transaction.getTransactionDate() : LocalDateTime.now();
+                transaction.setTransactionDate(date.truncatedTo(ChronoUnit.SECONDS));
+                ledger.add(copy(transaction));
+            } finally {
+                ledgerLock.unlock();
+            }
+        }
+
+        /**
+         * @return Copies of the ledger rows with an ID below beforeId (all if beforeId is Integer.MAX_VALUE),
+         * newest first, at most limit of them (no limit if limit <= 0).
+         */
+        List<Transaction> history(int beforeId, int limit) {
+            List<Transaction> rows = new ArrayList<>();
+            ledgerLock.lock();
+            try {
+                for (int i = ledger.size() - 1; i >= 0 && (limit <= 0 || rows.size() < limit); i--) {
+                    Transaction transaction = ledger.get(i);
+                    if (transaction.getId() < beforeId) {
+                        rows.add(copy(transaction));
+                    }
+                }
+            } finally {
+                ledgerLock.unlock();
+            }
+            return rows;
+        }
+    }
+}
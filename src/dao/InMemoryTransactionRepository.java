@@ -0,0 +1,114 @@
+package dao;
+
+import model.ActivitySummary;
+import model.Transaction;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The ledger of the in-memory storage engine, read from each account's append-only ledger.
+ * Page cursors are the ID of the last transaction returned: an account's ledger is in ID order.
+ */
+public class InMemoryTransactionRepository implements TransactionRepository {
+
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator.comparingInt(Transaction::getId).reversed();
+
+    private final InMemoryStore store;
+
+    InMemoryTransactionRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public boolean saveTransaction(Transaction transaction) {
+        return saveBatch(List.of(transaction));
+    }
+
+    @Override
+    public boolean saveBatch(List<Transaction> transactions) {
+        // Check every account first, so a batch with an unknown account saves nothing (as the foreign key would)
+        List<InMemoryStore.StoredAccount> accounts = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            InMemoryStore.StoredAccount account = store.accounts.get(transaction.getAccountId());
+            if (account == null) {
+                System.err.println("Error saving transaction: account " + transaction.getAccountId() + " does not exist.");
+                return false;
+            }
+            accounts.add(account);
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            accounts.get(i).append(transactions.get(i), store.transactionIds);
+        }
+        return true;
+    }
+
+    @Override
+    public List<Transaction> getHistoryByAccountId(int accountId, int limit) {
+        InMemoryStore.StoredAccount account = store.accounts.get(accountId);
+        return account != null ? account.history(Integer.MAX_VALUE, limit) : new ArrayList<>();
+    }
+
+    @Override
+    public List<Transaction> getHistoryByUserId(int userId, int limit) {
+        return userHistory(userId, Integer.MAX_VALUE, limit);
+    }
+
+    @Override
+    public Page<Transaction> getHistoryPageByAccountId(int accountId, String cursor, int pageSize) {
+        InMemoryStore.StoredAccount account = store.accounts.get(accountId);
+        List<Transaction> rows = account != null ? account.history(decodeCursor(cursor), pageSize + 1) : new ArrayList<>();
+        return toPage(rows, pageSize);
+    }
+
+    @Override
+    public Page<Transaction> getHistoryPageByUserId(int userId, String cursor, int pageSize) {
+        return toPage(userHistory(userId, decodeCursor(cursor), pageSize + 1), pageSize);
+    }
+
+    @Override
+    public ActivitySummary getActivitySummary(int accountId, LocalDate fromDay, LocalDate toDay) {
+        ActivitySummary summary = new ActivitySummary(accountId, fromDay, toDay);
+        for (Transaction transaction : getHistoryByAccountId(accountId, 0)) {
+            LocalDate day = transaction.getTransactionDate().toLocalDate();
+            if (!day.isBefore(fromDay) && !day.isAfter(toDay)) {
+                TransactionDAO.addToSummary(summary, transaction.getType(), transaction.getAmount());
+            }
+        }
+        return summary;
+    }
+
+    // Merges the ledgers of all the user's accounts, newest first
+    private List<Transaction> userHistory(int userId, int beforeId, int limit) {
+        List<Transaction> rows = new ArrayList<>();
+        for (InMemoryStore.StoredAccount account : store.accounts.values()) {
+            if (account.userId == userId) {
+                rows.addAll(account.history(beforeId, limit));
+            }
+        }
+        rows.sort(NEWEST_FIRST);
+        return limit > 0 && rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    // One row past the page size tells whether there is a next page
+    private static Page<Transaction> toPage(List<Transaction> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        rows.remove(pageSize);
+        return new Page<>(rows, Integer.toString(rows.get(pageSize - 1).getId()));
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package dao;
+
+import model.User;
+import util.PasswordUtil;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Users of the in-memory storage engine. Passwords are hashed with BCrypt as in UserDAO, and logins count
+ * failures and lock the same way. Search finds prefix and substring matches; there is no fuzzy fallback.
+ */
+public class InMemoryUserRepository implements UserRepository {
+
+    private final InMemoryStore store;
+
+    InMemoryUserRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public User register(User user) {
+        user.setPassword(PasswordUtil.hashPassword(user.getPassword()));
+        user.setLocked(false);
+        user.setFailedAttempts(0);
+
+        int id = store.userIds.incrementAndGet();
+        // Claiming the name first makes registration of the same username by two threads pick one winner
+        if (store.userIdsByName.putIfAbsent(InMemoryStore.nameKey(user.getUsername()), id) != null) {
+            System.err.println("Username '" + user.getUsername() + "' already exists.");
+            return null;
+        }
+        user.setId(id);
+        store.usersById.put(id, InMemoryStore.copy(user, true));
+        return user;
+    }
+
+    @Override
+    public User login(String username, String plainPassword) {
+        User user = getUserByUsername(username);
+        if (user == null) {
+            return null; // User not found
+        }
+        if (user.isLocked()) {
+            System.out.println("Account for user '" + username + "' is locked.");
+            return null; // Account locked
+        }
+
+        if (PasswordUtil.verifyPassword(plainPassword, user.getPassword())) {
+            if (user.getFailedAttempts() > 0) {
+                store.usersById.computeIfPresent(user.getId(), (id, stored) -> withLock(stored, stored.isLocked(), 0));
+                user.setFailedAttempts(0);
+            }
+            return user;
+        }
+        // Count the attempt and lock at the threshold in one atomic step, like UserDAO's single UPDATE
+        User updated = store.usersById.computeIfPresent(user.getId(), (id, stored) -> stored.isLocked() ? stored
+                : withLock(stored, stored.getFailedAttempts() + 1 >= UserDAO.MAX_LOGIN_ATTEMPTS, stored.getFailedAttempts() + 1));
+        if (updated != null && updated.isLocked() && !user.isLocked()) {
+            System.out.println("Account for user '" + username + "' locked due to too many failed login attempts.");
+        }
+        return null; // Invalid password
+    }
+
+    @Override
+    public User getUserByUsername(String username) {
+        Integer id = store.userIdsByName.get(InMemoryStore.nameKey(username));
+        User user = id != null ? store.usersById.get(id) : null;
+        return user != null ? InMemoryStore.copy(user, true) : null;
+    }
+
+    @Override
+    public User getUserById(int userId) {
+        User user = store.usersById.get(userId);
+        return user != null ? InMemoryStore.copy(user, true) : null;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        List<User> users = new ArrayList<>();
+        for (Integer id : store.userIdsByName.values()) {
+            addSummary(users, id);
+        }
+        return users;
+    }
+
+    @Override
+    public int countUsers() {
+        return store.usersById.size();
+    }
+
+    @Override
+    public Page<User> getUsersPage(String cursor, int pageSize) {
+        Map<String, Integer> after = cursor != null
+                ? store.userIdsByName.tailMap(InMemoryStore.nameKey(cursor), false)
+                : store.userIdsByName;
+        List<User> users = new ArrayList<>();
+        Iterator<Integer> ids = after.values().iterator();
+        while (users.size() <= pageSize && ids.hasNext()) { // One extra user tells whether there is a next page
+            addSummary(users, ids.next());
+        }
+        if (users.size() <= pageSize) {
+            return new Page<>(users, null);
+        }
+        users.remove(pageSize);
+        return new Page<>(users, users.get(pageSize - 1).getUsername());
+    }
+
+    @Override
+    public Page<User> getUsersPageAtOffset(int offset, int pageSize) {
+        if (offset <= 0) {
+            return getUsersPage(null, pageSize);
+        }
+        Iterator<String> names = store.userIdsByName.keySet().iterator();
+        String cursor = null;
+        for (int i = 0; i < offset && names.hasNext(); i++) {
+            cursor = names.next(); // The row just before the page is its cursor
+        }
+        return cursor != null ? getUsersPage(cursor, pageSize) : new Page<>(new ArrayList<>(), null);
+    }
+
+    @Override
+    public List<User> searchUsers(String query, int limit) {
+        String text = query == null ? "" : InMemoryStore.nameKey(query.trim());
+        List<User> results = new ArrayList<>();
+        if (text.isEmpty() || limit <= 0) {
+            return results;
+        }
+        // Prefix matches are one contiguous slice of the sorted names
+        for (Map.Entry<String, Integer> entry : store.userIdsByName.tailMap(text).entrySet()) {
+            if (results.size() >= limit || !entry.getKey().startsWith(text)) {
+                break;
+            }
+            addSummary(results, entry.getValue());
+        }
+        for (Map.Entry<String, Integer> entry : store.userIdsByName.entrySet()) {
+            if (results.size() >= limit) {
+                break;
+            }
+            if (!entry.getKey().startsWith(text) && entry.getKey().contains(text)) {
+                addSummary(results, entry.getValue());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public boolean updateUserLockStatus(String username, boolean locked) {
+        Integer id = store.userIdsByName.get(InMemoryStore.nameKey(username));
+        return id != null && store.usersById.computeIfPresent(id,
+                (key, stored) -> withLock(stored, locked, locked ? stored.getFailedAttempts() : 0)) != null;
+    }
+
+    @Override
+    public boolean deleteUser(int userId) {
+        User removed = store.usersById.remove(userId);
+        if (removed == null) {
+            return false;
+        }
+        store.userIdsByName.remove(InMemoryStore.nameKey(removed.getUsername()), userId);
+        // Accounts and their ledgers go with the user, as ON DELETE CASCADE does
+        store.accountIdsByUser.remove(userId);
+        store.accounts.values().removeIf(account -> account.userId == userId);
+        return true;
+    }
+
+    // Adds the user without the password hash, as list views get it; skips users deleted meanwhile
+    private void addSummary(List<User> users, int id) {
+        User user = store.usersById.get(id);
+        if (user != null) {
+            users.add(InMemoryStore.copy(user, false));
+        }
+    }
+
+    private static User withLock(User stored, boolean locked, int failedAttempts) {
+        User updated = InMemoryStore.copy(stored, true);
+        updated.setLocked(locked);
+        updated.setFailedAttempts(failedAttempts);
+        return updated;
+    }
+}
@@ -0,0 +1,244 @@
+package dao;
+
+import database.Database;
+import metrics.Metrics;
+import metrics.OperationMetrics;
+import model.Money;
+import model.Transaction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Database side of the interest run (job.InterestAccrual).
+ * The account ID space is cut into fixed chunks of chunk_size IDs. Each chunk is credited in one short transaction:
+ * its interest_run_chunks row, one set-based UPDATE of the chunk's balances and a DEPOSIT ledger row per account.
+ * Row locks are therefore held for one chunk at a time, and a chunk whose row exists is never credited again.
+ */
+public class InterestDAO {
+
+    private static final OperationMetrics CHUNK_METRICS = Metrics.operation("interest.accrueChunk");
+
+    private static final int MAX_CHUNK_ATTEMPTS = Integer.getInteger("bank.account.transferAttempts", 3);
+
+    private final TransactionDAO transactionDAO;
+
+    public InterestDAO() {
+        this(new TransactionDAO());
+    }
+
+    public InterestDAO(TransactionDAO transactionDAO) {
+        this.transactionDAO = transactionDAO;
+    }
+
+    /**
+     * Starts a run, or finds the one already started under that ID.
+     *
+     * @param periodRate Interest per run, e.g. 0.0025 for 3% a year paid monthly.
+     * @return The run's stored settings: the requested ones for a new run, the original ones for a restarted run.
+     * @throws SQLException if a database error occurs.
+     */
+    public InterestRun startRun(String runId, BigDecimal periodRate, int chunkSize) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO interest_runs (run_id, period_rate, chunk_size) VALUES (?, ?, ?)")) {
+                pstmt.setString(1, runId);
+                pstmt.setBigDecimal(2, periodRate);
+                pstmt.setInt(3, chunkSize);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT period_rate, chunk_size, finished_at IS NOT NULL AS finished FROM interest_runs WHERE run_id = ?")) {
+                pstmt.setString(1, runId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Interest run " + runId + " vanished after it was started.");
+                    }
+                    return new InterestRun(runId, rs.getBigDecimal("period_rate").stripTrailingZeros(),
+                            rs.getInt("chunk_size"), rs.getBoolean("finished"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks a run finished.
+     *
+     * @return The accounts credited and the interest paid over the whole run, from its chunk rows.
+     */
+    public RunTotals finishRun(String runId) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE interest_runs SET finished_at = CURRENT_TIMESTAMP WHERE run_id = ? AND finished_at IS NULL")) {
+                pstmt.setString(1, runId);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT COALESCE(SUM(accounts_credited), 0) AS accounts, COALESCE(SUM(interest), 0) AS interest " +
+                            "FROM interest_run_chunks WHERE run_id = ?")) {
+                pstmt.setString(1, runId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    return new RunTotals(rs.getLong("accounts"), SqlMoney.get(rs, "interest"));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The lowest and highest account IDs, or null if there are no accounts.
+     */
+    public int[] getAccountIdRange() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT MIN(id), MAX(id) FROM accounts"); // Both ends of the primary key
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                return null;
+            }
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+
+    /**
+     * Credits every chunk starting in [firstChunkStart, endChunkStart), one transaction per chunk, on one connection.
+     * Chunks the run has already credited are skipped.
+     *
+     * @param firstChunkStart First ID of the first chunk; a multiple of the chunk size plus one.
+     * @return The accounts credited by this call.
+     * @throws SQLException if a chunk fails after deadlock retries; the chunks before it stay committed.
+     */
+    public long accrueChunks(InterestRun run, long firstChunkStart, long endChunkStart) throws SQLException {
+        long credited = 0;
+        try (Connection conn = Database.getConnection()) {
+            for (long chunkStart = firstChunkStart; chunkStart < endChunkStart; chunkStart += run.chunkSize()) {
+                credited += accrueChunkWithRetry(conn, run, (int) chunkStart, (int) Math.min(chunkStart + run.chunkSize() - 1, Integer.MAX_VALUE));
+            }
+        }
+        return credited;
+    }
+
+    private int accrueChunkWithRetry(Connection conn, InterestRun run, int fromId, int toId) throws SQLException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    int credited = accrueChunk(conn, run, fromId, toId);
+                    success = true;
+                    return credited;
+                } catch (SQLException e) {
+                    // Daytime transfers lock accounts in other orders; a deadlock only costs this chunk a retry
+                    if (!AccountDAO.isDeadlock(e) || attempt >= MAX_CHUNK_ATTEMPTS) {
+                        throw e;
+                    }
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            CHUNK_METRICS.record(start, success);
+        }
+    }
+
+    private int accrueChunk(Connection conn, InterestRun run, int fromId, int toId) throws SQLException {
+        try {
+            conn.setAutoCommit(false); // Chunk row, balances and ledger rows commit together
+
+            // Claim the chunk first: a second attempt at it, or a concurrent run with the same ID, stops here
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT IGNORE INTO interest_run_chunks (run_id, chunk_start) VALUES (?, ?)")) {
+                pstmt.setString(1, run.runId());
+                pstmt.setInt(2, fromId);
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return 0;
+                }
+            }
+
+            // Lock the chunk's rows (a primary key range) and work out each credit as the UPDATE below will
+            List<Transaction> credits = new ArrayList<>();
+            long interestCents = 0;
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT id, balance FROM accounts WHERE id BETWEEN ? AND ? AND balance > 0 ORDER BY id FOR UPDATE")) {
+                pstmt.setInt(1, fromId);
+                pstmt.setInt(2, toId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        Money interest = interestOn(rs.getBigDecimal("balance"), run.periodRate());
+                        if (interest.isPositive()) {
+                            credits.add(new Transaction(rs.getInt("id"), Transaction.TransactionType.DEPOSIT, interest, null));
+                            interestCents += interest.getCents();
+                        }
+                    }
+                }
+            }
+
+            if (!credits.isEmpty()) {
+                // One set-based UPDATE for the chunk; MySQL's ROUND on exact DECIMALs matches interestOn
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE accounts SET balance = balance + ROUND(balance * ?, 2) WHERE id BETWEEN ? AND ? AND ROUND(balance * ?, 2) > 0")) {
+                    pstmt.setBigDecimal(1, run.periodRate());
+                    pstmt.setInt(2, fromId);
+                    pstmt.setInt(3, toId);
+                    pstmt.setBigDecimal(4, run.periodRate());
+                    int updated = pstmt.executeUpdate();
+                    if (updated != credits.size()) {
+                        throw new SQLException("Interest chunk " + fromId + "-" + toId + " updated " + updated + " accounts, expected " + credits.size() + ".");
+                    }
+                }
+                for (int from = 0; from < credits.size(); from += TransactionDAO.MAX_ROWS_PER_INSERT) {
+                    transactionDAO.insertTransactions(conn, credits.subList(from, Math.min(from + TransactionDAO.MAX_ROWS_PER_INSERT, credits.size())));
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE interest_run_chunks SET accounts_credited = ?, interest = ? WHERE run_id = ? AND chunk_start = ?")) {
+                    pstmt.setInt(1, credits.size());
+                    SqlMoney.setCents(pstmt, 2, interestCents);
+                    pstmt.setString(3, run.runId());
+                    pstmt.setInt(4, fromId);
+                    pstmt.executeUpdate();
+                }
+            }
+            conn.commit();
+            return credits.size();
+        } catch (SQLException e) {
+            try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            throw e;
+        } finally {
+            try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+        }
+    }
+
+    /**
+     * Interest on a balance, rounded half up to the cent as MySQL's ROUND does for positive DECIMALs.
+     */
+    static Money interestOn(BigDecimal balance, BigDecimal periodRate) {
+        return Money.of(balance.multiply(periodRate).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * A run's settings, as stored when it started.
+     *
+     * @param periodRate Interest credited per run, as a fraction of the balance.
+     * @param chunkSize  Account IDs per chunk.
+     * @param finished   Whether a previous attempt already completed it.
+     */
+    public record InterestRun(String runId, BigDecimal periodRate, int chunkSize, boolean finished) {
+    }
+
+    /**
+     * @param accountsCredited Accounts paid interest over the whole run.
+     * @param interest         Total interest paid.
+     */
+    public record RunTotals(long accountsCredited, Money interest) {
+    }
+}
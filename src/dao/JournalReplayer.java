@@ -0,0 +1,371 @@
+package dao;
+
+import database.Database;
+import journal.Journal;
+import journal.JournalRecord;
+import metrics.Metrics;
+import metrics.OperationMetrics;
+import model.Money;
+import model.Transaction;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies a {@link Journal} to the database in large batches: each batch adds the net balance change of every
+ * account it touches to accounts, inserts the ledger rows into transactions (which also maintains daily_account_totals)
+ * and advances the journal's row in journal_checkpoint, all in one database transaction.
+ * Because the checkpoint commits with the rows, replaying after a crash resumes exactly where the last commit left off.
+ * Segments that are fully applied are deleted from disk.
+ *
+ * Runs on its own background thread once started; {@link #drain()} replays synchronously (startup recovery).
+ * A {@link Listener} hears about every committed batch, with the touched accounts' balances as committed.
+ */
+public class JournalReplayer implements AutoCloseable {
+
+    private static final OperationMetrics REPLAY_METRICS = Metrics.operation("journal.replayBatch");
+    private static final String UPDATE_BALANCE_SQL = "UPDATE accounts SET balance = balance + ? WHERE id = ?";
+
+    private final Journal journal;
+    private final String journalId;
+    private final TransactionDAO transactionDAO;
+    private final int batchSize;
+    private final long idleMillis;
+    private volatile long appliedSequence;
+    private volatile boolean running;
+    private volatile Listener listener;
+    private Thread replayThread;
+
+    // --- Counters ---
+    private final LongAdder recordsApplied = new LongAdder();
+    private final LongAdder batchesApplied = new LongAdder();
+    private final LongAdder recordsDropped = new LongAdder();
+
+    /**
+     * @param appliedSequence The journal's checkpoint, from {@link #readCheckpoint(String)}.
+     * @param batchSize       Journal records per database transaction.
+     * @param idleMillis      How long the background thread sleeps when it has caught up.
+     */
+    public JournalReplayer(Journal journal, String journalId, long appliedSequence, TransactionDAO transactionDAO,
+                           int batchSize, long idleMillis) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.journal = journal;
+        this.journalId = journalId;
+        this.appliedSequence = appliedSequence;
+        this.transactionDAO = transactionDAO;
+        this.batchSize = batchSize;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Told what the replayer applies, so balances kept outside the database can follow it.
+     * Called on the replaying thread, never for two batches at once.
+     */
+    public interface Listener {
+
+        /**
+         * A batch has committed.
+         *
+         * @param appliedCents  The net change the batch made to each account it touched.
+         * @param balancesCents Those accounts' balances as the batch committed them, including changes made outside
+         *                      the journal; accounts that no longer exist are absent.
+         */
+        void batchApplied(Map<Integer, Long> appliedCents, Map<Integer, Long> balancesCents);
+
+        /**
+         * The background replayer has applied everything appended so far.
+         */
+        void caughtUp();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reads how far a journal has been applied, creating its checkpoint row on first use.
+     *
+     * @return The sequence number of the last applied record (0 if none).
+     */
+    public static long readCheckpoint(String journalId) throws SQLException {
+        try (Connection conn = Database.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT applied_sequence FROM journal_checkpoint WHERE journal_id = ?")) {
+                pstmt.setString(1, journalId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getLong("applied_sequence");
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO journal_checkpoint (journal_id, applied_sequence) VALUES (?, 0)")) {
+                pstmt.setString(1, journalId);
+                pstmt.executeUpdate();
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Applies the next batch of journal records, if there are any.
+     *
+     * @return The number of records applied (0 if the database has caught up with the journal).
+     * @throws SQLException if the batch could not be applied; nothing of it is, and it is retried on the next call.
+     */
+    public int replayBatch() throws SQLException {
+        List<JournalRecord> records = journal.read(appliedSequence, batchSize);
+        if (records.isEmpty()) {
+            return 0;
+        }
+        long lastSequence = records.get(records.size() - 1).sequence();
+
+        Listener batchListener = listener;
+        Map<Integer, Long> changes = netChanges(records);
+        Map<Integer, Long> balances = null;
+
+        long start = System.nanoTime();
+        boolean success = false;
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            conn.setAutoCommit(false); // Balances, ledger rows and checkpoint commit together
+
+            Set<Integer> missingAccounts = applyBalanceChanges(conn, changes);
+            List<Transaction> transactions = toTransactions(records, missingAccounts);
+            for (int from = 0; from < transactions.size(); from += TransactionDAO.MAX_ROWS_PER_INSERT) {
+                int to = Math.min(from + TransactionDAO.MAX_ROWS_PER_INSERT, transactions.size());
+                transactionDAO.insertTransactions(conn, transactions.subList(from, to));
+            }
+            advanceCheckpoint(conn, lastSequence);
+            if (batchListener != null && missingAccounts.size() < changes.size()) {
+                // The UPDATEs above hold these rows' locks, so this is exactly what the commit leaves behind
+                balances = AccountDAO.readBalancesCents(conn, changes.keySet(), true);
+            }
+
+            conn.commit();
+            success = true;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+            REPLAY_METRICS.record(start, success);
+        }
+
+        appliedSequence = lastSequence;
+        recordsApplied.add(records.size());
+        batchesApplied.increment();
+        if (batchListener != null) {
+            batchListener.batchApplied(changes, balances != null ? balances : Map.of());
+        }
+        try {
+            journal.deleteAppliedSegments(lastSequence);
+        } catch (IOException e) {
+            System.err.println("Error deleting applied journal segments: " + e.getMessage()); // Retried after the next batch
+        }
+        return records.size();
+    }
+
+    /**
+     * Replays batches until the database has caught up with everything appended so far.
+     *
+     * @return The number of records applied.
+     */
+    public long drain() throws SQLException {
+        long total = 0;
+        int applied;
+        while ((applied = replayBatch()) > 0) {
+            total += applied;
+        }
+        return total;
+    }
+
+    /**
+     * Starts replaying in the background.
+     */
+    public synchronized void start() {
+        if (replayThread != null) {
+            return;
+        }
+        running = true;
+        replayThread = new Thread(this::runReplayer, "journal-replayer");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    private void runReplayer() {
+        long backoffMillis = idleMillis;
+        while (running) {
+            try {
+                if (replayBatch() > 0) {
+                    backoffMillis = idleMillis;
+                    continue;
+                }
+                Listener idleListener = listener;
+                if (idleListener != null) {
+                    idleListener.caughtUp();
+                }
+                Thread.sleep(idleMillis);
+            } catch (SQLException | RuntimeException e) {
+                // The records stay in the journal; back off while the database is unavailable
+                System.err.println("Error replaying journal batch: " + e.getMessage());
+                backoffMillis = Math.min(Math.max(backoffMillis * 2, 1), 5_000);
+                sleepQuietly(backoffMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the background thread and makes a last attempt to apply what is left in the journal.
+     * Anything still unapplied is replayed on the next start.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = replayThread;
+            replayThread = null;
+        }
+        if (thread != null) {
+            // No interrupt: it could abort a batch mid-write. The idle sleep is short.
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        try {
+            drain();
+        } catch (SQLException e) {
+            System.err.println("Journal not fully applied at shutdown, it will be replayed on the next start: " + e.getMessage());
+        }
+    }
+
+    // Each account's net change over the batch, in account ID order
+    private static Map<Integer, Long> netChanges(List<JournalRecord> records) {
+        Map<Integer, Long> changes = new TreeMap<>();
+        for (JournalRecord record : records) {
+            long signed = switch (record.type()) {
+                case DEPOSIT, TRANSFER_IN -> record.amountCents();
+                case WITHDRAW, TRANSFER_OUT -> -record.amountCents();
+            };
+            changes.merge(record.accountId(), signed, Math::addExact);
+        }
+        return changes;
+    }
+
+    /**
+     * Adds each account's net change over the batch with one UPDATE per account, in account ID order
+     * (the same order AccountDAO locks accounts in, so replay cannot deadlock with a direct transfer).
+     *
+     * @return Accounts that no longer exist; their records are dropped.
+     */
+    private Set<Integer> applyBalanceChanges(Connection conn, Map<Integer, Long> changes) throws SQLException {
+        List<Integer> accountIds = new ArrayList<>(changes.keySet());
+        int[] updateCounts;
+        try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_BALANCE_SQL)) {
+            for (Integer accountId : accountIds) {
+                SqlMoney.setCents(pstmt, 1, changes.get(accountId));
+                pstmt.setInt(2, accountId);
+                pstmt.addBatch();
+            }
+            updateCounts = pstmt.executeBatch();
+        }
+
+        // Connector/J reports matched rows, so an account whose net change is zero still counts as found
+        Set<Integer> missing = new HashSet<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                missing.add(accountIds.get(i));
+            }
+        }
+        return missing;
+    }
+
+    private List<Transaction> toTransactions(List<JournalRecord> records, Set<Integer> missingAccounts) {
+        List<Transaction> transactions = new ArrayList<>(records.size());
+        for (JournalRecord record : records) {
+            if (missingAccounts.contains(record.accountId())) {
+                System.err.println("Dropping journal record " + record.sequence() + ": account " + record.accountId() + " no longer exists.");
+                recordsDropped.increment();
+                continue;
+            }
+            Integer related = record.relatedAccountIdOrNull();
+            if (related != null && missingAccounts.contains(related)) {
+                related = null; // Same as ON DELETE SET NULL would have done
+            }
+            LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestampMillis()), ZoneId.systemDefault())
+                    .truncatedTo(ChronoUnit.SECONDS); // transaction_date has whole seconds, see TransactionDAO.insertTransactions
+            transactions.add(new Transaction(0, record.accountId(), record.type(), Money.ofCents(record.amountCents()), date, related));
+        }
+        return transactions;
+    }
+
+    private void advanceCheckpoint(Connection conn, long lastSequence) throws SQLException {
+        // Conditional on the old value, so two processes replaying the same journal cannot both apply a batch
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE journal_checkpoint SET applied_sequence = ? WHERE journal_id = ? AND applied_sequence = ?")) {
+            pstmt.setLong(1, lastSequence);
+            pstmt.setString(2, journalId);
+            pstmt.setLong(3, appliedSequence);
+            if (pstmt.executeUpdate() != 1) {
+                throw new SQLException("Checkpoint of journal '" + journalId + "' is no longer at " + appliedSequence +
+                        "; is another process replaying it?");
+            }
+        }
+    }
+
+    // --- Statistics ---
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    public long getLag() {
+        return journal.getLastSequence() - appliedSequence;
+    }
+
+    public long getRecordsApplied() {
+        return recordsApplied.sum();
+    }
+
+    public long getBatchesApplied() {
+        return batchesApplied.sum();
+    }
+
+    public long getRecordsDropped() {
+        return recordsDropped.sum();
+    }
+}
@@ -0,0 +1,405 @@
+package dao;
+
+import database.Database;
+import journal.Journal;
+import journal.JournalRecord;
+import metrics.Metrics;
+import metrics.OperationMetrics;
+import model.Account;
+import model.Money;
+import model.Transaction;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deposit, withdraw and transfer acknowledged as soon as the operation is durable in a local {@link Journal},
+ * instead of after a MySQL commit; a {@link JournalReplayer} applies the journal to accounts and transactions
+ * in the background. Operations therefore complete at disk-append latency while the database is slow or briefly
+ * unavailable, and the database (balances, history) trails them by the replay lag.
+ *
+ * Funds are checked against balances kept here: the account's database balance plus the journaled changes the
+ * replayer has not applied yet. Only accounts with unapplied changes are kept; the others are read from the database
+ * when next used. The database part is re-read with every replayed batch that touches the account, and refreshed
+ * for all kept accounts every bank.journal.refreshMillis, so money moved outside the journal (interest runs, scheduled or batch transfers, another process) is seen.
+ * Until then an operation is checked against the older balance, so a withdrawal racing an outside debit inside
+ * that window can still overdraw the account.
+ *
+ * Enabled with -Dbank.journal.enabled=true; see {@link #startFromProperties()} for the other settings.
+ */
+public class JournaledAccountDAO implements AutoCloseable {
+
+    private static final OperationMetrics DEPOSIT_METRICS = Metrics.operation("journal.deposit");
+    private static final OperationMetrics WITHDRAW_METRICS = Metrics.operation("journal.withdraw");
+    private static final OperationMetrics TRANSFER_METRICS = Metrics.operation("journal.transfer");
+
+    private static volatile JournaledAccountDAO instance;
+
+    private final Journal journal;
+    private final JournalReplayer replayer;
+    private final AccountDAO accountDAO;
+    private final ConcurrentHashMap<Integer, Balance> balances = new ConcurrentHashMap<>();
+    private final long refreshNanos;
+    private long lastRefreshNanos = System.nanoTime(); // Only used on the replayer's thread
+
+    /**
+     * @param refreshMillis How often the database balances of all cached accounts are re-read.
+     */
+    public JournaledAccountDAO(Journal journal, JournalReplayer replayer, AccountDAO accountDAO, long refreshMillis) {
+        this.journal = journal;
+        this.replayer = replayer;
+        this.accountDAO = accountDAO;
+        this.refreshNanos = refreshMillis * 1_000_000L;
+        replayer.setListener(new JournalReplayer.Listener() {
+            @Override
+            public void batchApplied(Map<Integer, Long> appliedCents, Map<Integer, Long> balancesCents) {
+                applied(appliedCents, balancesCents);
+            }
+
+            @Override
+            public void caughtUp() {
+                refreshIfDue();
+            }
+        });
+    }
+
+    /**
+     * Opens the journal, replays whatever a previous run left unapplied (so the balances read afterwards are current)
+     * and starts the background replayer. Settings:
+     * bank.journal.enabled (false), bank.journal.dir ("journal"), bank.journal.id ("default", the journal's
+     * journal_checkpoint row), bank.journal.segmentBytes (64 MiB), bank.journal.sync (true: msync every append),
+     * bank.journal.batchSize (1000 records per replay transaction), bank.journal.idleMillis (20),
+     * bank.journal.refreshMillis (1000).
+     *
+     * @return The started instance, or null if the journal is disabled or could not be recovered
+     * (money operations then go straight to the database).
+     */
+    public static synchronized JournaledAccountDAO startFromProperties() {
+        if (!Boolean.getBoolean("bank.journal.enabled") || instance != null) {
+            return instance;
+        }
+        String journalId = System.getProperty("bank.journal.id", "default");
+        Journal journal = null;
+        try {
+            long appliedSequence = JournalReplayer.readCheckpoint(journalId);
+            journal = Journal.open(Path.of(System.getProperty("bank.journal.dir", "journal")),
+                    Integer.getInteger("bank.journal.segmentBytes", 64 << 20),
+                    Boolean.parseBoolean(System.getProperty("bank.journal.sync", "true")),
+                    appliedSequence + 1);
+            JournalReplayer replayer = new JournalReplayer(journal, journalId, appliedSequence, new TransactionDAO(),
+                    Integer.getInteger("bank.journal.batchSize", 1000), Long.getLong("bank.journal.idleMillis", 20));
+
+            long recovered = replayer.drain();
+            if (recovered > 0) {
+                System.out.println("Replayed " + recovered + " journal records left by the previous run.");
+            }
+            replayer.start();
+            instance = new JournaledAccountDAO(journal, replayer, new AccountDAO(), Long.getLong("bank.journal.refreshMillis", 1000));
+            return instance;
+        } catch (SQLException | IOException | RuntimeException e) {
+            System.err.println("Error starting the transaction journal, using direct database writes: " + e.getMessage());
+            if (journal != null) {
+                try { journal.close(); } catch (IOException ex) { /* ignore */ }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return The running instance, or null if the journal is not in use.
+     */
+    public static JournaledAccountDAO getInstance() {
+        return instance;
+    }
+
+    /**
+     * Stops the running instance, if any; see {@link #close()}.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Deposits an amount into an account.
+     *
+     * @return true once the deposit is durable in the journal, false if the account does not exist or the journal failed.
+     */
+    public boolean deposit(int accountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = false;
+        if (amount == null || !amount.isPositive()) {
+            System.err.println("Deposit amount must be positive.");
+        } else {
+            Balance balance = lockedBalance(accountId);
+            if (balance != null) {
+                try {
+                    Math.addExact(balance.available(), amount.getCents());
+                    journal.append(List.of(record(accountId, Transaction.TransactionType.DEPOSIT, amount, null)));
+                    balance.pendingCents += amount.getCents();
+                    success = true;
+                } catch (IOException | ArithmeticException e) { // ArithmeticException: the new balance overflowed
+                    System.err.println("Error during journaled deposit: " + e.getMessage());
+                } finally {
+                    balance.lock.unlock();
+                }
+            }
+        }
+        DEPOSIT_METRICS.record(start, success);
+        return success;
+    }
+
+    /**
+     * Withdraws an amount from an account.
+     *
+     * @return true once the withdrawal is durable in the journal, false on insufficient funds, an unknown account or a journal failure.
+     */
+    public boolean withdraw(int accountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = false;
+        if (amount == null || !amount.isPositive()) {
+            System.err.println("Withdrawal amount must be positive.");
+        } else {
+            Balance balance = lockedBalance(accountId);
+            if (balance != null) {
+                try {
+                    if (balance.available() < amount.getCents()) {
+                        System.err.println("Insufficient funds for withdrawal.");
+                        WITHDRAW_METRICS.insufficientFunds();
+                    } else {
+                        journal.append(List.of(record(accountId, Transaction.TransactionType.WITHDRAW, amount, null)));
+                        balance.pendingCents -= amount.getCents();
+                        success = true;
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error during journaled withdrawal: " + e.getMessage());
+                } finally {
+                    balance.lock.unlock();
+                }
+            }
+        }
+        WITHDRAW_METRICS.record(start, success);
+        return success;
+    }
+
+    /**
+     * Transfers an amount between two accounts. Both ledger records are appended as one journal operation,
+     * so a crash keeps both or neither.
+     *
+     * @return true once the transfer is durable in the journal, false on insufficient funds, an unknown account or a journal failure.
+     */
+    public boolean transfer(int fromAccountId, int toAccountId, Money amount) {
+        long start = System.nanoTime();
+        boolean success = transferOnce(fromAccountId, toAccountId, amount);
+        TRANSFER_METRICS.record(start, success);
+        return success;
+    }
+
+    private boolean transferOnce(int fromAccountId, int toAccountId, Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            System.err.println("Transfer amount must be positive.");
+            return false;
+        }
+        if (fromAccountId == toAccountId) {
+            System.err.println("Cannot transfer to the same account.");
+            return false;
+        }
+        // Lock in account ID order, as AccountDAO does, so opposite transfers cannot deadlock
+        Balance first = lockedBalance(Math.min(fromAccountId, toAccountId));
+        if (first == null) {
+            return false;
+        }
+        Balance second = lockedBalance(Math.max(fromAccountId, toAccountId));
+        if (second == null) {
+            first.lock.unlock();
+            return false;
+        }
+        Balance from = fromAccountId < toAccountId ? first : second;
+        Balance to = from == first ? second : first;
+        try {
+            if (from.available() < amount.getCents()) {
+                System.err.println("Insufficient funds for transfer.");
+                TRANSFER_METRICS.insufficientFunds();
+                return false;
+            }
+            Math.addExact(to.available(), amount.getCents());
+            journal.append(List.of(
+                    record(fromAccountId, Transaction.TransactionType.TRANSFER_OUT, amount, toAccountId),
+                    record(toAccountId, Transaction.TransactionType.TRANSFER_IN, amount, fromAccountId)));
+            from.pendingCents -= amount.getCents();
+            to.pendingCents += amount.getCents();
+            return true;
+        } catch (IOException | ArithmeticException e) {
+            System.err.println("Error during journaled transfer: " + e.getMessage());
+            return false;
+        } finally {
+            second.lock.unlock();
+            first.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The balance including journaled operations the database has not applied yet,
+     * or null if no journaled operation has touched the account (the database balance is then current).
+     */
+    public Money getBalance(int accountId) {
+        Balance balance = balances.get(accountId);
+        if (balance == null) {
+            return null;
+        }
+        balance.lock.lock();
+        try {
+            return Money.ofCents(balance.available());
+        } finally {
+            balance.lock.unlock();
+        }
+    }
+
+    /**
+     * @return Journal records appended but not yet applied to the database.
+     */
+    public long getReplayLag() {
+        return replayer.getLag();
+    }
+
+    /**
+     * Stops the background replayer after a last attempt to apply the journal, and closes the journal.
+     */
+    @Override
+    public void close() {
+        replayer.close();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the transaction journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The account's kept balance with its lock held, loaded from the database if it is not kept;
+     * null if the account does not exist.
+     */
+    private Balance lockedBalance(int accountId) {
+        while (true) {
+            // Loaded inside computeIfAbsent so no journaled operation can slip in between the read and the insert
+            Balance balance = balances.computeIfAbsent(accountId, id -> {
+                Account account = accountDAO.getAccountById(id);
+                return account != null ? new Balance(account.getBalance().getCents()) : null;
+            });
+            if (balance == null) {
+                return null;
+            }
+            balance.lock.lock();
+            if (!balance.dropped) {
+                return balance;
+            }
+            balance.lock.unlock(); // Dropped while we waited; its changes are in the database, so load it again
+        }
+    }
+
+    // With its lock held: forget the balance, so operations that already hold it look the account up again
+    private void drop(int accountId, Balance balance) {
+        balance.dropped = true;
+        balances.remove(accountId, balance);
+    }
+
+    // A replayed batch moved its changes from pending into the database balance it committed
+    private void applied(Map<Integer, Long> appliedCents, Map<Integer, Long> balancesCents) {
+        appliedCents.forEach((accountId, cents) -> {
+            Balance balance = balances.get(accountId);
+            if (balance == null) {
+                return;
+            }
+            balance.lock.lock();
+            try {
+                balance.pendingCents -= cents;
+                Long committed = balancesCents.get(accountId);
+                if (committed == null || balance.pendingCents == 0) {
+                    // Deleted (its records were dropped), or everything journaled is now in the database,
+                    // which the next operation reads afresh; keeping it would only grow the refresh
+                    drop(accountId, balance);
+                } else {
+                    balance.databaseCents = committed;
+                }
+            } finally {
+                balance.lock.unlock();
+            }
+        });
+        refreshIfDue();
+    }
+
+    /**
+     * Re-reads the database balance of every kept account and drops those with nothing pending. Runs on the replayer's
+     * thread, so no batch is applied between the read and the update and the pending changes still match what the
+     * database lacks.
+     */
+    private void refreshIfDue() {
+        long now = System.nanoTime();
+        if (now - lastRefreshNanos < refreshNanos) {
+            return;
+        }
+        lastRefreshNanos = now;
+
+        List<Integer> accountIds = new ArrayList<>(balances.keySet());
+        for (int from = 0; from < accountIds.size(); from += TransactionDAO.MAX_ROWS_PER_INSERT) {
+            List<Integer> chunk = accountIds.subList(from, Math.min(from + TransactionDAO.MAX_ROWS_PER_INSERT, accountIds.size()));
+            Map<Integer, Long> current;
+            try (Connection conn = Database.getConnection()) {
+                current = AccountDAO.readBalancesCents(conn, chunk, false);
+            } catch (SQLException e) {
+                System.err.println("Error refreshing journaled balances: " + e.getMessage()); // Retried at the next refresh
+                return;
+            }
+            for (int accountId : chunk) {
+                Balance balance = balances.get(accountId);
+                if (balance == null) {
+                    continue;
+                }
+                balance.lock.lock();
+                try {
+                    Long cents = current.get(accountId);
+                    if (cents == null || balance.pendingCents == 0) {
+                        drop(accountId, balance); // Deleted outside the journal, or only used by operations that failed
+                    } else {
+                        balance.databaseCents = cents;
+                    }
+                } finally {
+                    balance.lock.unlock();
+                }
+            }
+        }
+    }
+
+    private static JournalRecord record(int accountId, Transaction.TransactionType type, Money amount, Integer relatedAccountId) {
+        return JournalRecord.of(accountId, type, amount.getCents(), System.currentTimeMillis(), relatedAccountId);
+    }
+
+    /**
+     * An account's acknowledged balance, split into the database balance last read and the net change of journaled
+     * operations not applied yet. Only changed with its lock held; pendingCents only after the journal append succeeded.
+     * Once dropped it is no longer in the map and must not be used.
+     */
+    private static final class Balance {
+        final ReentrantLock lock = new ReentrantLock();
+        long databaseCents;
+        long pendingCents;
+        boolean dropped;
+
+        Balance(long databaseCents) {
+            this.databaseCents = databaseCents;
+        }
+
+        long available() {
+            return databaseCents + pendingCents;
+        }
+    }
+}
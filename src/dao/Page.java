@@ -0,0 +1,50 @@
+package dao;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated query.
+ * The next cursor is opaque to callers: pass it back unchanged to fetch the following page.
+ *
+ * @param <T> The row type.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor; // null when this is the last page
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Checks a requested page size; every paged query reads one row past the page, which needs at least one row.
+     *
+     * @throws IllegalArgumentException if pageSize is less than 1.
+     */
+    static void checkPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1, got " + pageSize);
+        }
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + items.size() +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -0,0 +1,270 @@
+package dao;
+
+import database.Database;
+import metrics.Metrics;
+import metrics.OperationMetrics;
+import model.Money;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Database side of the ledger reconciliation (job.LedgerReconciler): checks accounts.balance against the signed
+ * sum of each account's transactions, one partition of accounts at a time, and records runs and drift.
+ *
+ * A partition's balances and ledger sums are read in one read-only REPEATABLE READ transaction, so they come from
+ * the same snapshot: a transfer committing meanwhile is either in both or in neither, and never shows as drift.
+ */
+public class ReconciliationDAO {
+
+    private static final OperationMetrics PARTITION_METRICS = Metrics.operation("reconcile.partition");
+
+    // Deposits and incoming transfers add to the balance, withdrawals and outgoing transfers take from it
+    private static final String SIGNED_AMOUNT = "CASE WHEN type IN ('DEPOSIT', 'TRANSFER_IN') THEN amount ELSE -amount END";
+
+    /**
+     * Records the start of a run.
+     *
+     * @param fromTransactionId Transactions after this ID were checked (0 for a full run).
+     * @return The run's ID.
+     */
+    public int startRun(boolean incremental, long fromTransactionId, long toTransactionId) throws SQLException {
+        String sql = "INSERT INTO reconciliation_runs (mode, from_transaction_id, to_transaction_id) VALUES (?, ?, ?)";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, incremental ? "INCREMENTAL" : "FULL");
+            pstmt.setLong(2, fromTransactionId);
+            pstmt.setLong(3, toTransactionId);
+            pstmt.executeUpdate();
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("No ID generated for the reconciliation run.");
+                }
+                return generatedKeys.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Records the end of a run; only finished runs count as a watermark for the next incremental run.
+     */
+    public void finishRun(int runId, long accountsChecked, long accountsDrifted) throws SQLException {
+        String sql = "UPDATE reconciliation_runs SET finished_at = CURRENT_TIMESTAMP, accounts_checked = ?, accounts_drifted = ? WHERE id = ?";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, accountsChecked);
+            pstmt.setLong(2, accountsDrifted);
+            pstmt.setInt(3, runId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @return The highest transaction ID the last finished run covered, or -1 if no run has finished yet.
+     */
+    public long getLastWatermark() throws SQLException {
+        String sql = "SELECT to_transaction_id FROM reconciliation_runs WHERE finished_at IS NOT NULL ORDER BY id DESC LIMIT 1";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : -1;
+        }
+    }
+
+    /**
+     * @return The highest transaction ID, or 0 if there are none.
+     */
+    public long getMaxTransactionId() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM transactions"); // End of the primary key
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * @return The lowest and highest account IDs, or null if there are no accounts.
+     */
+    public int[] getAccountIdRange() throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT MIN(id), MAX(id) FROM accounts");
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next() || rs.getObject(1) == null) {
+                return null;
+            }
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+
+    /**
+     * Finds the accounts with transactions in an ID range, streaming a primary key range scan.
+     *
+     * @return The account IDs, as set bits.
+     */
+    public BitSet findChangedAccounts(long afterTransactionId, long toTransactionId) throws SQLException {
+        String sql = "SELECT account_id FROM transactions WHERE id > ? AND id <= ?";
+        BitSet accountIds = new BitSet();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            TransactionDAO.enableStreaming(conn, pstmt);
+            pstmt.setLong(1, afterTransactionId);
+            pstmt.setLong(2, toTransactionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    accountIds.set(rs.getInt(1));
+                }
+            }
+        }
+        return accountIds;
+    }
+
+    /**
+     * Reconciles every account with an ID in [fromId, toId].
+     */
+    public PartitionResult reconcileRange(int fromId, int toId) throws SQLException {
+        return reconcile("BETWEEN ? AND ?", List.of(fromId, toId));
+    }
+
+    /**
+     * Reconciles the given accounts; IDs that no longer exist are ignored.
+     */
+    public PartitionResult reconcileAccounts(List<Integer> accountIds) throws SQLException {
+        StringBuilder filter = new StringBuilder("IN (");
+        for (int i = 0; i < accountIds.size(); i++) {
+            filter.append(i == 0 ? "?" : ", ?");
+        }
+        return reconcile(filter.append(")").toString(), accountIds);
+    }
+
+    private PartitionResult reconcile(String idFilter, List<Integer> params) throws SQLException {
+        long start = System.nanoTime();
+        boolean success = false;
+        Connection conn = null;
+        int isolation = Connection.TRANSACTION_REPEATABLE_READ;
+        try {
+            conn = Database.getConnection();
+            isolation = conn.getTransactionIsolation();
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setReadOnly(true);
+            conn.setAutoCommit(false); // Both reads below see the snapshot taken by the first
+
+            Map<Integer, Long> balances = new TreeMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT id, balance FROM accounts WHERE id " + idFilter)) {
+                bind(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        balances.put(rs.getInt("id"), SqlMoney.getCents(rs, "balance"));
+                    }
+                }
+            }
+            int checked = balances.size();
+
+            // Folded per account by the server, in account order along idx_account_date_id; only one row per account comes back
+            List<Drift> drifts = new ArrayList<>();
+            String sql = "SELECT account_id, SUM(" + SIGNED_AMOUNT + ") AS ledger_total FROM transactions " +
+                    "WHERE account_id " + idFilter + " GROUP BY account_id ORDER BY account_id";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                TransactionDAO.enableStreaming(conn, pstmt);
+                bind(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int accountId = rs.getInt("account_id");
+                        long ledgerCents = SqlMoney.getCents(rs, "ledger_total");
+                        Long balanceCents = balances.remove(accountId);
+                        if (balanceCents != null && balanceCents != ledgerCents) {
+                            drifts.add(new Drift(accountId, Money.ofCents(balanceCents), Money.ofCents(ledgerCents)));
+                        }
+                    }
+                }
+            }
+            // Accounts without any transactions should hold nothing
+            for (Map.Entry<Integer, Long> balance : balances.entrySet()) {
+                if (balance.getValue() != 0) {
+                    drifts.add(new Drift(balance.getKey(), Money.ofCents(balance.getValue()), Money.ZERO));
+                }
+            }
+            conn.commit();
+            success = true;
+            drifts.sort(Comparator.comparingInt(Drift::accountId));
+            return new PartitionResult(checked, drifts);
+        } catch (SQLException e) {
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.setReadOnly(false); } catch (SQLException ex) { /* ignore */ }
+                try { conn.setTransactionIsolation(isolation); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+            PARTITION_METRICS.record(start, success);
+        }
+    }
+
+    /**
+     * Stores a run's drift rows with one multi-row INSERT per batch.
+     */
+    public void saveDrifts(int runId, List<Drift> drifts) throws SQLException {
+        if (drifts.isEmpty()) {
+            return;
+        }
+        try (Connection conn = Database.getConnection()) {
+            for (int from = 0; from < drifts.size(); from += TransactionDAO.MAX_ROWS_PER_INSERT) {
+                List<Drift> batch = drifts.subList(from, Math.min(from + TransactionDAO.MAX_ROWS_PER_INSERT, drifts.size()));
+                StringBuilder sqlBuilder = new StringBuilder("INSERT INTO reconciliation_drift (run_id, account_id, balance, ledger_total) VALUES ");
+                for (int i = 0; i < batch.size(); i++) {
+                    sqlBuilder.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
+                    int index = 1;
+                    for (Drift drift : batch) {
+                        pstmt.setInt(index++, runId);
+                        pstmt.setInt(index++, drift.accountId());
+                        SqlMoney.set(pstmt, index++, drift.balance());
+                        SqlMoney.set(pstmt, index++, drift.ledgerTotal());
+                    }
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement pstmt, List<Integer> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setInt(i + 1, params.get(i));
+        }
+    }
+
+    /**
+     * Outcome of one partition.
+     *
+     * @param accountsChecked Accounts that exist in the partition.
+     * @param drifts          Those whose balance differs from their ledger, by account ID.
+     */
+    public record PartitionResult(int accountsChecked, List<Drift> drifts) {
+    }
+
+    /**
+     * An account whose stored balance does not match its transactions.
+     */
+    public record Drift(int accountId, Money balance, Money ledgerTotal) {
+        /**
+         * @return balance - ledger total: positive if the balance holds money its history does not explain.
+         */
+        public Money drift() {
+            return Money.ofCents(balance.getCents() - ledgerTotal.getCents());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package dao;
+
+import database.Database;
+import metrics.Metrics;
+import metrics.OperationMetrics;
+import model.ScheduledTransfer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Data Access Object for scheduled_transfers: one-off future transfers and standing orders.
+ * {@link #runOccurrence} is what makes execution exactly-once: it claims an occurrence by its due time,
+ * runs the transfer and advances the schedule in one transaction.
+ */
+public class ScheduledTransferDAO {
+
+    private static final String COLUMNS = "id, from_account_id, to_account_id, amount, frequency, first_run_at, end_at, " +
+            "runs_done, next_run_at, last_run_at, last_status";
+
+    private static final OperationMetrics CREATE_METRICS = Metrics.operation("schedule.create");
+    private static final OperationMetrics RUN_METRICS = Metrics.operation("schedule.runOccurrence");
+
+    private static final int MAX_RUN_ATTEMPTS = Integer.getInteger("bank.account.transferAttempts", 3);
+
+    private final AccountDAO accountDAO;
+
+    public ScheduledTransferDAO() {
+        this(new AccountDAO());
+    }
+
+    public ScheduledTransferDAO(AccountDAO accountDAO) {
+        this.accountDAO = accountDAO;
+    }
+
+    /**
+     * Stores a new schedule; its first occurrence is due at firstRunAt.
+     *
+     * @return The schedule with its generated ID, or null if it is invalid or could not be stored.
+     */
+    public ScheduledTransfer create(ScheduledTransfer schedule) {
+        if (schedule.getAmount() == null || !schedule.getAmount().isPositive()
+                || schedule.getFromAccountId() == schedule.getToAccountId() || schedule.getFirstRunAt() == null) {
+            System.err.println("Scheduled transfer needs a positive amount, two different accounts and a first run time.");
+            return null;
+        }
+        String sql = "INSERT INTO scheduled_transfers (from_account_id, to_account_id, amount, frequency, first_run_at, end_at, next_run_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        long start = System.nanoTime();
+        schedule.setRunsDone(0);
+        schedule.setNextRunAt(schedule.occurrence(0));
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, schedule.getFromAccountId());
+            pstmt.setInt(2, schedule.getToAccountId());
+            SqlMoney.set(pstmt, 3, schedule.getAmount());
+            pstmt.setString(4, schedule.getFrequency().name());
+            pstmt.setTimestamp(5, Timestamp.valueOf(schedule.getFirstRunAt()));
+            pstmt.setTimestamp(6, schedule.getEndAt() != null ? Timestamp.valueOf(schedule.getEndAt()) : null);
+            pstmt.setTimestamp(7, schedule.getNextRunAt() != null ? Timestamp.valueOf(schedule.getNextRunAt()) : null);
+            pstmt.executeUpdate();
+
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    schedule.setId(generatedKeys.getInt(1));
+                    CREATE_METRICS.record(start, true);
+                    return schedule;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error creating scheduled transfer: " + e.getMessage());
+        }
+        CREATE_METRICS.record(start, false);
+        return null;
+    }
+
+    /**
+     * Stops a schedule; an occurrence already running still completes.
+     *
+     * @return true if the schedule existed and had occurrences left.
+     */
+    public boolean cancel(int scheduleId) {
+        String sql = "UPDATE scheduled_transfers SET next_run_at = NULL WHERE id = ? AND next_run_at IS NOT NULL";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, scheduleId);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.err.println("Error cancelling scheduled transfer: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Streams every schedule with an occurrence due before a time, overdue ones included, earliest first.
+     *
+     * @param until  Exclusive upper bound on next_run_at.
+     * @param action Called once per schedule.
+     * @return The number of schedules streamed.
+     * @throws SQLException if a database error occurs part-way.
+     */
+    public long forEachDueBefore(LocalDateTime until, Consumer<ScheduledTransfer> action) throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM scheduled_transfers WHERE next_run_at < ? ORDER BY next_run_at";
+        long count = 0;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            TransactionDAO.enableStreaming(conn, pstmt);
+            pstmt.setTimestamp(1, Timestamp.valueOf(until));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapResultSetToSchedule(rs));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Runs one occurrence of a schedule, at most once however often and wherever it is called:
+     * locks the schedule row, checks that the occurrence due at dueAt is still the next one, makes the transfer
+     * through {@link AccountDAO}'s locking transfer, and advances next_run_at, all in one transaction.
+     * An occurrence that cannot be paid (e.g. insufficient funds) is used up and recorded in last_status;
+     * it is not retried.
+     *
+     * @param dueAt The due time the caller scheduled it for.
+     * @return The schedule after the run (next run, last status), or null if that occurrence is no longer due:
+     * it already ran, or the schedule was cancelled or changed.
+     * @throws SQLException if a database error persists after deadlock retries; nothing is changed then.
+     */
+    public ScheduledTransfer runOccurrence(int scheduleId, LocalDateTime dueAt) throws SQLException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    ScheduledTransfer result = runOccurrenceOnce(scheduleId, dueAt);
+                    success = true;
+                    return result;
+                } catch (SQLException e) {
+                    if (!AccountDAO.isDeadlock(e) || attempt >= MAX_RUN_ATTEMPTS) {
+                        throw e;
+                    }
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextLong(1, 5L * attempt + 1));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            RUN_METRICS.record(start, success);
+        }
+    }
+
+    private ScheduledTransfer runOccurrenceOnce(int scheduleId, LocalDateTime dueAt) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            conn.setAutoCommit(false); // Claim, transfer and advance commit together
+
+            // The schedule row lock serializes runs of the same occurrence across threads and processes
+            ScheduledTransfer schedule = lockSchedule(conn, scheduleId);
+            if (schedule == null || schedule.getNextRunAt() == null || !schedule.getNextRunAt().equals(dueAt)) {
+                conn.rollback();
+                return null;
+            }
+
+            Savepoint beforeTransfer = conn.setSavepoint();
+            AccountRepository.TransferStatus status;
+            try {
+                status = accountDAO.transferInTransaction(conn, schedule.getFromAccountId(), schedule.getToAccountId(), schedule.getAmount());
+            } catch (ArithmeticException e) {
+                status = AccountRepository.TransferStatus.INVALID; // The credit would overflow
+            }
+            if (status != AccountRepository.TransferStatus.COMPLETED) {
+                conn.rollback(beforeTransfer); // Keeps the schedule lock, undoes any partial transfer
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime nextRunAt = schedule.followingRunAt();
+            String sql = "UPDATE scheduled_transfers SET runs_done = runs_done + 1, next_run_at = ?, last_run_at = ?, last_status = ? WHERE id = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setTimestamp(1, nextRunAt != null ? Timestamp.valueOf(nextRunAt) : null);
+                pstmt.setTimestamp(2, Timestamp.valueOf(now));
+                pstmt.setString(3, status.name());
+                pstmt.setInt(4, scheduleId);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+
+            schedule.setRunsDone(schedule.getRunsDone() + 1);
+            schedule.setNextRunAt(nextRunAt);
+            schedule.setLastRunAt(now);
+            schedule.setLastStatus(status.name());
+            return schedule;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+        }
+    }
+
+    private ScheduledTransfer lockSchedule(Connection conn, int scheduleId) throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM scheduled_transfers WHERE id = ? FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, scheduleId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapResultSetToSchedule(rs) : null;
+            }
+        } // Let SQLException propagate to the calling transactional method
+    }
+
+    private ScheduledTransfer mapResultSetToSchedule(ResultSet rs) throws SQLException {
+        ScheduledTransfer schedule = new ScheduledTransfer();
+        schedule.setId(rs.getInt("id"));
+        schedule.setFromAccountId(rs.getInt("from_account_id"));
+        schedule.setToAccountId(rs.getInt("to_account_id"));
+        schedule.setAmount(SqlMoney.get(rs, "amount"));
+        schedule.setFrequency(ScheduledTransfer.Frequency.valueOf(rs.getString("frequency")));
+        schedule.setFirstRunAt(toLocalDateTime(rs.getTimestamp("first_run_at")));
+        schedule.setEndAt(toLocalDateTime(rs.getTimestamp("end_at")));
+        schedule.setRunsDone(rs.getInt("runs_done"));
+        schedule.setNextRunAt(toLocalDateTime(rs.getTimestamp("next_run_at")));
+        schedule.setLastRunAt(toLocalDateTime(rs.getTimestamp("last_run_at")));
+        schedule.setLastStatus(rs.getString("last_status"));
+        return schedule;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,40 @@
+package dao;
+
+import model.Money;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Conversions between Money and the DECIMAL(15,2) money columns: the only place the DAOs touch BigDecimal.
+ */
+final class SqlMoney {
+
+    private SqlMoney() {
+    }
+
+    static void set(PreparedStatement pstmt, int index, Money amount) throws SQLException {
+        pstmt.setBigDecimal(index, amount.toBigDecimal());
+    }
+
+    static void setCents(PreparedStatement pstmt, int index, long cents) throws SQLException {
+        pstmt.setBigDecimal(index, BigDecimal.valueOf(cents, 2));
+    }
+
+    /**
+     * @return The column value, or null if it is SQL NULL.
+     */
+    static Money get(ResultSet rs, String column) throws SQLException {
+        BigDecimal value = rs.getBigDecimal(column);
+        return value != null ? Money.of(value) : null;
+    }
+
+    /**
+     * Reads a NOT NULL money column straight into cents, without creating a Money.
+     */
+    static long getCents(ResultSet rs, String column) throws SQLException {
+        return rs.getBigDecimal(column).setScale(2).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,54 @@
+package dao;
+
+/**
+ * The repositories the application reads and writes through, all from one engine:
+ * "jdbc" (the DAOs, over MySQL through database.Database) or "memory" (concurrent maps in this process,
+ * for benchmarks, demos and tests without MySQL; everything is lost on exit).
+ *
+ * Chosen with -Dbank.storage=jdbc|memory (jdbc by default). The transaction journal, the transfer scheduler
+ * and the batch jobs work on the database directly and are only available with jdbc.
+ */
+public record StorageEngine(String name, UserRepository users, AccountRepository accounts, TransactionRepository transactions) {
+
+    // One in-memory store per process, so every AsyncDAO sees the same data
+    private static final class SharedMemory {
+        static final StorageEngine INSTANCE = newInMemory();
+    }
+
+    /**
+     * @return A new JDBC engine over the shared connection pool.
+     */
+    public static StorageEngine jdbc() {
+        return new StorageEngine("jdbc", new UserDAO(), new AccountDAO(), new TransactionDAO());
+    }
+
+    /**
+     * @return A new, empty in-memory engine.
+     */
+    public static StorageEngine newInMemory() {
+        InMemoryStore store = new InMemoryStore();
+        return new StorageEngine("memory", new InMemoryUserRepository(store), new InMemoryAccountRepository(store),
+                new InMemoryTransactionRepository(store));
+    }
+
+    /**
+     * @return The engine bank.storage selects; the in-memory one is shared by all callers in the process.
+     * @throws IllegalArgumentException if bank.storage names no engine.
+     */
+    public static StorageEngine fromProperties() {
+        return isDatabaseBacked() ? jdbc() : SharedMemory.INSTANCE;
+    }
+
+    /**
+     * @return true unless bank.storage selects the in-memory engine.
+     * @throws IllegalArgumentException if bank.storage names no engine.
+     */
+    public static boolean isDatabaseBacked() {
+        String name = System.getProperty("bank.storage", "jdbc");
+        return switch (name) {
+            case "jdbc" -> true;
+            case "memory" -> false;
+            default -> throw new IllegalArgumentException("Unknown storage engine '" + name + "' (use jdbc or memory).");
+        };
+    }
+}
@@ -1,57 +1,253 @@
 package dao;
 
 import database.Database;
+import metrics.Metrics;
+import metrics.OperationMetrics;
 import model.Account;
+import model.ActivitySummary;
+import model.Money;
 import model.Transaction; // Assuming Transaction model exists
 
-import java.math.BigDecimal;
 import java.sql.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Transaction operations.
  */
-public class TransactionDAO {
+public class TransactionDAO implements TransactionRepository {
+
+    private static final String INSERT_SQL_PREFIX = "INSERT INTO transactions (account_id, type, amount, transaction_date, related_account_id) VALUES ";
+    private static final String INSERT_VALUES_ROW = "(?, ?, ?, ?, ?)";
+    // Rows per multi-row INSERT in saveBatch; keeps each statement well under max_allowed_packet
+    static final int MAX_ROWS_PER_INSERT = 500;
+
+    private static final String TOTALS_COLUMNS = "deposits, deposit_count, withdrawals, withdrawal_count, " +
+            "transfers_in, transfer_in_count, transfers_out, transfer_out_count";
+    private static final String UPSERT_TOTALS_PREFIX = "INSERT INTO daily_account_totals (account_id, day, " + TOTALS_COLUMNS + ") VALUES ";
+    private static final String UPSERT_TOTALS_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // VALUES(col) is the row that failed to insert; also understood by H2 in MySQL mode
+    private static final String UPSERT_TOTALS_SUFFIX = " ON DUPLICATE KEY UPDATE " +
+            "deposits = deposits + VALUES(deposits), deposit_count = deposit_count + VALUES(deposit_count), " +
+            "withdrawals = withdrawals + VALUES(withdrawals), withdrawal_count = withdrawal_count + VALUES(withdrawal_count), " +
+            "transfers_in = transfers_in + VALUES(transfers_in), transfer_in_count = transfer_in_count + VALUES(transfer_in_count), " +
+            "transfers_out = transfers_out + VALUES(transfers_out), transfer_out_count = transfer_out_count + VALUES(transfer_out_count)";
+
+    private static final OperationMetrics SAVE_METRICS = Metrics.operation("transaction.saveTransaction");
+    private static final OperationMetrics SAVE_BATCH_METRICS = Metrics.operation("transaction.saveBatch");
+    private static final OperationMetrics HISTORY_BY_ACCOUNT_METRICS = Metrics.operation("transaction.getHistoryByAccountId");
+    private static final OperationMetrics HISTORY_BY_USER_METRICS = Metrics.operation("transaction.getHistoryByUserId");
+    private static final OperationMetrics HISTORY_PAGE_BY_ACCOUNT_METRICS = Metrics.operation("transaction.getHistoryPageByAccountId");
+    private static final OperationMetrics HISTORY_PAGE_BY_USER_METRICS = Metrics.operation("transaction.getHistoryPageByUserId");
+    private static final OperationMetrics STREAM_METRICS = Metrics.operation("transaction.forEach");
+    private static final OperationMetrics DAILY_TOTALS_METRICS = Metrics.operation("transaction.getDailyTotals");
+    private static final OperationMetrics ACTIVITY_SUMMARY_METRICS = Metrics.operation("transaction.getActivitySummary");
 
     /**
-     * Saves a transaction record to the database.
+     * Saves a transaction record to the database, together with its daily totals in one database transaction.
+     * When the TransactionLogWriter is running, the record is group-committed with other callers' records
+     * and this waits for that commit.
      *
      * @param transaction The Transaction object to save.
      * @return true if the transaction was saved successfully, false otherwise.
      */
     public boolean saveTransaction(Transaction transaction) {
-        String sql = "INSERT INTO transactions (account_id, type, amount, transaction_date, related_account_id) VALUES (?, ?, ?, ?, ?)";
+        long start = System.nanoTime();
+        TransactionLogWriter writer = TransactionLogWriter.getInstance();
+        try {
+            if (writer != null) {
+                writer.submit(transaction).join();
+            } else {
+                writeBatch(List.of(transaction));
+            }
+            SAVE_METRICS.record(start, true);
+            return true; // Indicate success
+        } catch (SQLException | CompletionException e) {
+            System.err.println("Error saving transaction: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            SAVE_METRICS.record(start, false);
+            return false;
+        }
+    }
 
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+    /**
+     * Saves a list of transaction records in one database transaction,
+     * sent as multi-row INSERTs of up to 500 rows each.
+     *
+     * @param transactions The Transaction objects to save; their IDs are set on success.
+     * @return true if every record was saved, false otherwise (nothing is saved on failure).
+     */
+    public boolean saveBatch(List<Transaction> transactions) {
+        long start = System.nanoTime();
+        try {
+            writeBatch(transactions);
+            SAVE_BATCH_METRICS.record(start, true);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error saving transaction batch of " + transactions.size() + ": " + e.getMessage());
+            SAVE_BATCH_METRICS.record(start, false);
+            return false;
+        }
+    }
 
-            pstmt.setInt(1, transaction.getAccountId());
-            pstmt.setString(2, transaction.getType().name()); // Store enum name
-            pstmt.setBigDecimal(3, transaction.getAmount());
-            pstmt.setTimestamp(4, Timestamp.valueOf(transaction.getTransactionDate() != null ? transaction.getTransactionDate() : LocalDateTime.now()));
+    /**
+     * Same as {@link #saveBatch(List)} but lets the SQLException through,
+     * so the asynchronous TransactionLogWriter can hand it to waiting callers.
+     */
+    void writeBatch(List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return;
+        }
 
-            if (transaction.getRelatedAccountId() != null) {
-                pstmt.setInt(5, transaction.getRelatedAccountId());
-            } else {
-                pstmt.setNull(5, Types.INTEGER);
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false); // One commit for the whole batch
+            try {
+                for (int from = 0; from < transactions.size(); from += MAX_ROWS_PER_INSERT) {
+                    int to = Math.min(from + MAX_ROWS_PER_INSERT, transactions.size());
+                    insertTransactions(conn, transactions.subList(from, to));
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+                throw e;
+            } finally {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
             }
+        }
+    }
 
-            int affectedRows = pstmt.executeUpdate();
+    /**
+     * Inserts transaction records as a single multi-row INSERT on the caller's connection,
+     * and adds them to daily_account_totals.
+     * Does not commit: it is meant to run inside the caller's transaction (see AccountDAO)
+     * so the ledger rows and totals commit or roll back together with the balance updates.
+     *
+     * @param conn         The active database connection (within a transaction).
+     * @param transactions The records to insert; their IDs are set from the generated keys.
+     * @throws SQLException if a database error occurs.
+     */
+    void insertTransactions(Connection conn, List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            // Fixed here so the row and its daily total agree on the day. transaction_date has no fractional seconds
+            // and MySQL rounds them, which would store 23:59:59.6 on the next day; truncate before either sees it.
+            LocalDateTime date = transaction.getTransactionDate() != null ? transaction.getTransactionDate() : LocalDateTime.now();
+            transaction.setTransactionDate(date.truncatedTo(ChronoUnit.SECONDS));
+        }
+        StringBuilder sqlBuilder = new StringBuilder(INSERT_SQL_PREFIX).append(INSERT_VALUES_ROW);
+        for (int i = 1; i < transactions.size(); i++) {
+            sqlBuilder.append(", ").append(INSERT_VALUES_ROW);
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (Transaction transaction : transactions) {
+                index = bindTransaction(pstmt, index, transaction);
+            }
+            pstmt.executeUpdate();
 
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        transaction.setId(generatedKeys.getInt(1));
-                        return true; // Indicate success
+            // MySQL returns one generated key per inserted row, in insertion order
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                for (Transaction transaction : transactions) {
+                    if (!generatedKeys.next()) {
+                        break;
                     }
+                    transaction.setId(generatedKeys.getInt(1));
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Error saving transaction: " + e.getMessage());
+        } // Let SQLException propagate to the calling transactional method
+
+        upsertDailyTotals(conn, transactions);
+    }
+
+    /**
+     * Adds the records to their accounts' daily totals with one multi-row upsert.
+     * Rows are written in (account_id, day) order, so concurrent batches lock totals rows in the same order
+     * and cannot deadlock on each other.
+     */
+    private void upsertDailyTotals(Connection conn, List<Transaction> transactions) throws SQLException {
+        Map<DayKey, ActivitySummary> totals = new TreeMap<>(DayKey.ORDER);
+        for (Transaction transaction : transactions) {
+            LocalDate day = transaction.getTransactionDate().toLocalDate();
+            ActivitySummary summary = totals.computeIfAbsent(new DayKey(transaction.getAccountId(), day),
+                    key -> new ActivitySummary(key.accountId(), day, day));
+            addToSummary(summary, transaction.getType(), transaction.getAmount());
+        }
+
+        StringBuilder sqlBuilder = new StringBuilder(UPSERT_TOTALS_PREFIX).append(UPSERT_TOTALS_ROW);
+        for (int i = 1; i < totals.size(); i++) {
+            sqlBuilder.append(", ").append(UPSERT_TOTALS_ROW);
+        }
+        sqlBuilder.append(UPSERT_TOTALS_SUFFIX);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
+            int index = 1;
+            for (ActivitySummary summary : totals.values()) {
+                pstmt.setInt(index++, summary.getAccountId());
+                pstmt.setDate(index++, Date.valueOf(summary.getFromDay()));
+                SqlMoney.set(pstmt, index++, summary.getDeposits());
+                pstmt.setInt(index++, summary.getDepositCount());
+                SqlMoney.set(pstmt, index++, summary.getWithdrawals());
+                pstmt.setInt(index++, summary.getWithdrawalCount());
+                SqlMoney.set(pstmt, index++, summary.getTransfersIn());
+                pstmt.setInt(index++, summary.getTransferInCount());
+                SqlMoney.set(pstmt, index++, summary.getTransfersOut());
+                pstmt.setInt(index++, summary.getTransferOutCount());
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    static void addToSummary(ActivitySummary summary, Transaction.TransactionType type, Money amount) {
+        switch (type) {
+            case DEPOSIT -> {
+                summary.setDeposits(summary.getDeposits().plus(amount));
+                summary.setDepositCount(summary.getDepositCount() + 1);
+            }
+            case WITHDRAW -> {
+                summary.setWithdrawals(summary.getWithdrawals().plus(amount));
+                summary.setWithdrawalCount(summary.getWithdrawalCount() + 1);
+            }
+            case TRANSFER_IN -> {
+                summary.setTransfersIn(summary.getTransfersIn().plus(amount));
+                summary.setTransferInCount(summary.getTransferInCount() + 1);
+            }
+            case TRANSFER_OUT -> {
+                summary.setTransfersOut(summary.getTransfersOut().plus(amount));
+                summary.setTransferOutCount(summary.getTransferOutCount() + 1);
+            }
         }
-        return false;
+    }
+
+    private record DayKey(int accountId, LocalDate day) {
+        static final Comparator<DayKey> ORDER = Comparator.comparingInt(DayKey::accountId).thenComparing(DayKey::day);
+    }
+
+    // Binds one row of the INSERT starting at the given parameter index; returns the next free index
+    private int bindTransaction(PreparedStatement pstmt, int index, Transaction transaction) throws SQLException {
+        pstmt.setInt(index, transaction.getAccountId());
+        pstmt.setString(index + 1, transaction.getType().name()); // Store enum name
+        SqlMoney.set(pstmt, index + 2, transaction.getAmount());
+        pstmt.setTimestamp(index + 3, Timestamp.valueOf(transaction.getTransactionDate() != null ? transaction.getTransactionDate() : LocalDateTime.now()));
+
+        if (transaction.getRelatedAccountId() != null) {
+            pstmt.setInt(index + 4, transaction.getRelatedAccountId());
+        } else {
+            pstmt.setNull(index + 4, Types.INTEGER);
+        }
+        return index + 5;
     }
 
     /**
@@ -69,6 +265,8 @@ public class TransactionDAO {
             sqlBuilder.append(" LIMIT ?");
         }
         String sql = sqlBuilder.toString();
+        long start = System.nanoTime();
+        boolean success = true;
 
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -85,7 +283,9 @@ public class TransactionDAO {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving transaction history for account ID " + accountId + ": " + e.getMessage());
+            success = false;
         }
+        HISTORY_BY_ACCOUNT_METRICS.record(start, success);
         return transactions;
     }
 
@@ -112,6 +312,8 @@ public class TransactionDAO {
             sqlBuilder.append(" LIMIT ?");
         }
         String sql = sqlBuilder.toString();
+        long start = System.nanoTime();
+        boolean success = true;
 
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -128,10 +330,336 @@ public class TransactionDAO {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving transaction history for user ID " + userId + ": " + e.getMessage());
+            success = false;
         }
+        HISTORY_BY_USER_METRICS.record(start, success);
         return transactions;
     }
 
+    /**
+     * Retrieves one page of an account's transaction history, newest first, using keyset pagination on
+     * (transaction_date, id). Each page is an index range scan on idx_account_date_id no matter how deep it is.
+     *
+     * @param accountId The ID of the account.
+     * @param cursor    The next cursor from the previous page, or null for the first page.
+     * @param pageSize  The maximum number of transactions in the page.
+     * @return The page of transactions (empty if an error occurs).
+     * @throws IllegalArgumentException if pageSize is less than 1.
+     */
+    public Page<Transaction> getHistoryPageByAccountId(int accountId, String cursor, int pageSize) {
+        Page.checkPageSize(pageSize);
+        String sql = "SELECT id, account_id, type, amount, transaction_date, related_account_id FROM transactions " +
+                "WHERE account_id = ?" + (cursor != null ? " AND (transaction_date < ? OR (transaction_date = ? AND id < ?))" : "") +
+                " ORDER BY transaction_date DESC, id DESC LIMIT ?";
+        return fetchHistoryPage(sql, accountId, cursor, pageSize, "account ID " + accountId, HISTORY_PAGE_BY_ACCOUNT_METRICS);
+    }
+
+    /**
+     * Retrieves one page of the transaction history of all of a user's accounts, newest first,
+     * using keyset pagination on (transaction_date, id).
+     *
+     * @param userId   The ID of the user.
+     * @param cursor   The next cursor from the previous page, or null for the first page.
+     * @param pageSize The maximum number of transactions in the page.
+     * @return The page of transactions (empty if an error occurs).
+     * @throws IllegalArgumentException if pageSize is less than 1.
+     */
+    public Page<Transaction> getHistoryPageByUserId(int userId, String cursor, int pageSize) {
+        Page.checkPageSize(pageSize);
+        String sql = "SELECT t.id, t.account_id, t.type, t.amount, t.transaction_date, t.related_account_id " +
+                "FROM transactions t JOIN accounts a ON t.account_id = a.id " +
+                "WHERE a.user_id = ?" + (cursor != null ? " AND (t.transaction_date < ? OR (t.transaction_date = ? AND t.id < ?))" : "") +
+                " ORDER BY t.transaction_date DESC, t.id DESC LIMIT ?";
+        return fetchHistoryPage(sql, userId, cursor, pageSize, "user ID " + userId, HISTORY_PAGE_BY_USER_METRICS);
+    }
+
+    /**
+     * Streams an account's full transaction history, oldest first, to a callback one row at a time.
+     * Uses a forward-only, streaming result set so memory use does not grow with the number of rows.
+     * The callback runs while the result set is open, so it should not issue queries of its own on this thread.
+     *
+     * @param accountId The ID of the account.
+     * @param action    Called once per transaction, in (transaction_date, id) order.
+     * @return The number of transactions streamed.
+     * @throws SQLException if a database error occurs part-way (the caller decides what to do with a partial stream).
+     */
+    public long forEachByAccountId(int accountId, Consumer<Transaction> action) throws SQLException {
+        String sql = "SELECT id, account_id, type, amount, transaction_date, related_account_id FROM transactions " +
+                "WHERE account_id = ? ORDER BY transaction_date, id";
+        return streamHistory(sql, accountId, action);
+    }
+
+    /**
+     * Streams the full transaction history of all of a user's accounts, oldest first, to a callback.
+     *
+     * @param userId The ID of the user.
+     * @param action Called once per transaction, in (transaction_date, id) order.
+     * @return The number of transactions streamed.
+     * @throws SQLException if a database error occurs part-way.
+     * @see #forEachByAccountId(int, Consumer)
+     */
+    public long forEachByUserId(int userId, Consumer<Transaction> action) throws SQLException {
+        String sql = "SELECT t.id, t.account_id, t.type, t.amount, t.transaction_date, t.related_account_id " +
+                "FROM transactions t JOIN accounts a ON t.account_id = a.id " +
+                "WHERE a.user_id = ? ORDER BY t.transaction_date, t.id";
+        return streamHistory(sql, userId, action);
+    }
+
+    private long streamHistory(String sql, int ownerId, Consumer<Transaction> action) throws SQLException {
+        long count = 0;
+        long start = System.nanoTime();
+        boolean success = false;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            enableStreaming(conn, pstmt);
+            pstmt.setInt(1, ownerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapResultSetToTransaction(rs));
+                    count++;
+                }
+            }
+            success = true;
+        } finally {
+            STREAM_METRICS.record(start, success);
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves an account's totals for each day in a range that had transactions, from the daily rollups.
+     *
+     * @param accountId The ID of the account.
+     * @param fromDay   The first day (inclusive).
+     * @param toDay     The last day (inclusive).
+     * @return One summary per day with activity, oldest first (empty if an error occurs).
+     */
+    public List<ActivitySummary> getDailyTotals(int accountId, LocalDate fromDay, LocalDate toDay) {
+        String sql = "SELECT account_id, day, " + TOTALS_COLUMNS + " FROM daily_account_totals " +
+                "WHERE account_id = ? AND day BETWEEN ? AND ? ORDER BY day";
+        List<ActivitySummary> days = new ArrayList<>();
+        long start = System.nanoTime();
+        boolean success = true;
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, accountId);
+            pstmt.setDate(2, Date.valueOf(fromDay));
+            pstmt.setDate(3, Date.valueOf(toDay));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    LocalDate day = rs.getDate("day").toLocalDate();
+                    ActivitySummary summary = new ActivitySummary(accountId, day, day);
+                    mapTotals(rs, summary);
+                    days.add(summary);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving daily totals for account ID " + accountId + ": " + e.getMessage());
+            success = false;
+        }
+        DAILY_TOTALS_METRICS.record(start, success);
+        return days;
+    }
+
+    /**
+     * Totals an account's transactions over a range of days from the daily rollups:
+     * one primary-key range read of at most one row per day, instead of a scan of the transactions.
+     *
+     * @param accountId The ID of the account.
+     * @param fromDay   The first day (inclusive).
+     * @param toDay     The last day (inclusive).
+     * @return The summary (all zero for a period without activity), or null if an error occurs.
+     */
+    public ActivitySummary getActivitySummary(int accountId, LocalDate fromDay, LocalDate toDay) {
+        String sql = "SELECT COALESCE(SUM(deposits), 0) AS deposits, COALESCE(SUM(deposit_count), 0) AS deposit_count, " +
+                "COALESCE(SUM(withdrawals), 0) AS withdrawals, COALESCE(SUM(withdrawal_count), 0) AS withdrawal_count, " +
+                "COALESCE(SUM(transfers_in), 0) AS transfers_in, COALESCE(SUM(transfer_in_count), 0) AS transfer_in_count, " +
+                "COALESCE(SUM(transfers_out), 0) AS transfers_out, COALESCE(SUM(transfer_out_count), 0) AS transfer_out_count " +
+                "FROM daily_account_totals WHERE account_id = ? AND day BETWEEN ? AND ?";
+        ActivitySummary summary = null;
+        long start = System.nanoTime();
+        boolean success = true;
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, accountId);
+            pstmt.setDate(2, Date.valueOf(fromDay));
+            pstmt.setDate(3, Date.valueOf(toDay));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) { // An aggregate without GROUP BY always returns one row
+                    summary = new ActivitySummary(accountId, fromDay, toDay);
+                    mapTotals(rs, summary);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving activity summary for account ID " + accountId + ": " + e.getMessage());
+            success = false;
+        }
+        ACTIVITY_SUMMARY_METRICS.record(start, success);
+        return summary;
+    }
+
+    /**
+     * Totals an account's transactions over a calendar month, e.g. for a monthly statement.
+     *
+     * @see #getActivitySummary(int, LocalDate, LocalDate)
+     */
+    public ActivitySummary getMonthlySummary(int accountId, YearMonth month) {
+        return getActivitySummary(accountId, month.atDay(1), month.atEndOfMonth());
+    }
+
+    /**
+     * Recomputes one day's totals for every account from the transactions table, replacing what the rollup held.
+     * Used by the backfill job for history written before the rollup existed, and to repair a day.
+     * The DELETE and the INSERT ... SELECT (a locking read in InnoDB) run in one transaction, so a ledger write
+     * for that day running at the same time is either counted by the rebuild or waits and adds itself after it.
+     *
+     * @param day The day to rebuild.
+     * @return The number of accounts with activity that day.
+     * @throws SQLException if a database error occurs (the day is left as it was).
+     */
+    public int rebuildDailyTotals(LocalDate day) throws SQLException {
+        String deleteSql = "DELETE FROM daily_account_totals WHERE day = ?";
+        String insertSql = "INSERT INTO daily_account_totals (account_id, day, " + TOTALS_COLUMNS + ") " +
+                "SELECT account_id, ?, " +
+                "COALESCE(SUM(CASE WHEN type = 'DEPOSIT' THEN amount END), 0), SUM(CASE WHEN type = 'DEPOSIT' THEN 1 ELSE 0 END), " +
+                "COALESCE(SUM(CASE WHEN type = 'WITHDRAW' THEN amount END), 0), SUM(CASE WHEN type = 'WITHDRAW' THEN 1 ELSE 0 END), " +
+                "COALESCE(SUM(CASE WHEN type = 'TRANSFER_IN' THEN amount END), 0), SUM(CASE WHEN type = 'TRANSFER_IN' THEN 1 ELSE 0 END), " +
+                "COALESCE(SUM(CASE WHEN type = 'TRANSFER_OUT' THEN amount END), 0), SUM(CASE WHEN type = 'TRANSFER_OUT' THEN 1 ELSE 0 END) " +
+                "FROM transactions WHERE transaction_date >= ? AND transaction_date < ? GROUP BY account_id"; // Range on idx_transaction_date
+
+        try (Connection conn = Database.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement(deleteSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                delete.setDate(1, Date.valueOf(day));
+                delete.executeUpdate();
+
+                insert.setDate(1, Date.valueOf(day));
+                insert.setTimestamp(2, Timestamp.valueOf(day.atStartOfDay()));
+                insert.setTimestamp(3, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+                int accounts = insert.executeUpdate();
+                conn.commit();
+                return accounts;
+            } catch (SQLException e) {
+                try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+                throw e;
+            } finally {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+            }
+        }
+    }
+
+    /**
+     * @return The day of the oldest transaction, or null if there are none.
+     * @throws SQLException if a database error occurs.
+     */
+    public LocalDate getFirstTransactionDay() throws SQLException {
+        String sql = "SELECT MIN(transaction_date) FROM transactions"; // Read from the end of idx_transaction_date
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            Timestamp first = rs.next() ? rs.getTimestamp(1) : null;
+            return first != null ? first.toLocalDateTime().toLocalDate() : null;
+        }
+    }
+
+    private static void mapTotals(ResultSet rs, ActivitySummary summary) throws SQLException {
+        summary.setDeposits(SqlMoney.get(rs, "deposits"));
+        summary.setDepositCount(rs.getInt("deposit_count"));
+        summary.setWithdrawals(SqlMoney.get(rs, "withdrawals"));
+        summary.setWithdrawalCount(rs.getInt("withdrawal_count"));
+        summary.setTransfersIn(SqlMoney.get(rs, "transfers_in"));
+        summary.setTransferInCount(rs.getInt("transfer_in_count"));
+        summary.setTransfersOut(SqlMoney.get(rs, "transfers_out"));
+        summary.setTransferOutCount(rs.getInt("transfer_out_count"));
+    }
+
+    /**
+     * Makes the driver fetch rows as they are read instead of buffering the whole result.
+     * MySQL Connector/J only streams with a fetch size of Integer.MIN_VALUE; other drivers take a normal fetch size.
+     */
+    static void enableStreaming(Connection conn, PreparedStatement pstmt) throws SQLException {
+        if (conn.getMetaData().getURL().startsWith("jdbc:mysql:")) {
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            pstmt.setFetchSize(1000);
+        }
+    }
+
+    private Page<Transaction> fetchHistoryPage(String sql, int ownerId, String cursor, int pageSize, String description,
+                                               OperationMetrics metrics) {
+        List<Transaction> transactions = new ArrayList<>();
+        long start = System.nanoTime();
+        boolean success = true;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            pstmt.setInt(index++, ownerId);
+            if (cursor != null) {
+                HistoryCursor position = HistoryCursor.decode(cursor);
+                pstmt.setTimestamp(index++, position.transactionDate);
+                pstmt.setTimestamp(index++, position.transactionDate);
+                pstmt.setInt(index++, position.id);
+            }
+            pstmt.setInt(index, pageSize + 1); // One extra row tells us whether there is a next page
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    transactions.add(mapResultSetToTransaction(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving transaction history page for " + description + ": " + e.getMessage());
+            success = false;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid transaction history cursor for " + description + ": " + e.getMessage());
+            success = false;
+        }
+        metrics.record(start, success);
+
+        if (transactions.size() <= pageSize) {
+            return new Page<>(transactions, null);
+        }
+        transactions.remove(pageSize);
+        Transaction last = transactions.get(pageSize - 1);
+        return new Page<>(transactions, new HistoryCursor(Timestamp.valueOf(last.getTransactionDate()), last.getId()).encode());
+    }
+
+    /**
+     * Position after the last row of a page; encoded as URL-safe Base64 so callers treat it as opaque.
+     */
+    private static class HistoryCursor {
+        private final Timestamp transactionDate;
+        private final int id;
+
+        HistoryCursor(Timestamp transactionDate, int id) {
+            this.transactionDate = transactionDate;
+            this.id = id;
+        }
+
+        String encode() {
+            String raw = transactionDate.toLocalDateTime() + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("malformed cursor");
+            }
+            try {
+                LocalDateTime date = LocalDateTime.parse(raw.substring(0, separator));
+                return new HistoryCursor(Timestamp.valueOf(date), Integer.parseInt(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("malformed cursor", e);
+            }
+        }
+    }
+
 
     // Helper method to map ResultSet to Transaction object
     private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
@@ -139,7 +667,7 @@ public class TransactionDAO {
         transaction.setId(rs.getInt("id"));
         transaction.setAccountId(rs.getInt("account_id"));
         transaction.setType(Transaction.TransactionType.valueOf(rs.getString("type"))); // Convert string back to enum
-        transaction.setAmount(rs.getBigDecimal("amount"));
+        transaction.setAmount(SqlMoney.get(rs, "amount"));
         Timestamp ts = rs.getTimestamp("transaction_date");
         transaction.setTransactionDate(ts != null ? ts.toLocalDateTime() : null);
         transaction.setRelatedAccountId(rs.getObject("related_account_id", Integer.class)); // Handle potential NULL
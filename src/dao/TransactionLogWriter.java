@@ -0,0 +1,243 @@
+package dao;
+
+import model.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Asynchronous, group-committed writer for transaction records.
+ * Records submitted by many threads are collected by a single writer thread and saved with
+ * {@link TransactionDAO#saveBatch(List)} once either the batch is full or the oldest record
+ * has waited for the maximum latency, whichever comes first.
+ * Each caller gets a future that completes with the generated transaction ID.
+ *
+ * Enabled with -Dbank.transactionLog.enabled=true (see {@link #startFromProperties()}); {@link TransactionDAO#saveTransaction}
+ * then goes through the running writer, so concurrent callers share commits instead of paying one each.
+ * Ledger rows of deposits, withdrawals and transfers are not written here: they commit with the balance change.
+ */
+public class TransactionLogWriter implements AutoCloseable {
+
+    private static volatile TransactionLogWriter instance;
+
+    private final TransactionDAO transactionDAO;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final BlockingQueue<PendingRecord> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    // Submitters hold the read lock while queuing; close takes the write lock to stop, so nothing is queued after it
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    // --- Counters ---
+    private final LongAdder recordsWritten = new LongAdder();
+    private final LongAdder batchesWritten = new LongAdder();
+    private final LongAdder recordsFailed = new LongAdder();
+
+    /**
+     * Creates and starts a writer.
+     *
+     * @param transactionDAO   The DAO used to save batches.
+     * @param maxBatchSize     Flush as soon as this many records are waiting.
+     * @param maxLatencyMillis Flush once the oldest waiting record is this old, even if the batch is not full.
+     */
+    public TransactionLogWriter(TransactionDAO transactionDAO, int maxBatchSize, long maxLatencyMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.transactionDAO = transactionDAO;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        // Bounded so producers are slowed down (back-pressure) instead of growing the heap when the DB falls behind
+        this.queue = new LinkedBlockingQueue<>(maxBatchSize * 16);
+
+        this.writerThread = new Thread(this::runWriter, "transaction-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Starts the shared writer if bank.transactionLog.enabled is set. Settings: bank.transactionLog.batchSize (500),
+     * bank.transactionLog.maxLatencyMillis (5).
+     *
+     * @return The running instance, or null if the writer is disabled.
+     */
+    public static synchronized TransactionLogWriter startFromProperties() {
+        if (Boolean.getBoolean("bank.transactionLog.enabled") && instance == null) {
+            instance = new TransactionLogWriter(new TransactionDAO(),
+                    Integer.getInteger("bank.transactionLog.batchSize", TransactionDAO.MAX_ROWS_PER_INSERT),
+                    Long.getLong("bank.transactionLog.maxLatencyMillis", 5));
+        }
+        return instance;
+    }
+
+    /**
+     * @return The running instance, or null if the writer is not in use.
+     */
+    public static TransactionLogWriter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Stops the running instance, if any, after writing what it has queued; see {@link #close()}.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            TransactionLogWriter writer = instance;
+            instance = null; // New saves go straight to the database while the queue drains
+            writer.close();
+        }
+    }
+
+    /**
+     * Queues a transaction record for the next batch. Blocks if the queue is full.
+     *
+     * @param transaction The record to save.
+     * @return A future completed with the generated ID once the batch containing the record has committed,
+     * or completed exceptionally if the batch failed or the writer is closed.
+     */
+    public CompletableFuture<Integer> submit(Transaction transaction) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        closeLock.readLock().lock();
+        try {
+            if (!running) {
+                future.completeExceptionally(new IllegalStateException("Transaction log writer is closed."));
+                return future;
+            }
+            // The writer keeps draining while a put waits here: close cannot stop it until this returns
+            queue.put(new PendingRecord(transaction, future));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return future;
+    }
+
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the batch is full or the first record has waited long enough
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Write what was collected; the loop drains the rest before exiting
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // A failed batch saves nothing; unless the connection is at fault, halve it and retry until only the records
+    // that fail by themselves (an account deleted meanwhile, say) are left, so other callers' records still commit
+    private void flush(List<PendingRecord> batch) {
+        List<Transaction> transactions = new ArrayList<>(batch.size());
+        for (PendingRecord record : batch) {
+            transactions.add(record.transaction);
+        }
+
+        try {
+            transactionDAO.writeBatch(transactions);
+            batchesWritten.increment();
+            recordsWritten.add(batch.size());
+            for (PendingRecord record : batch) {
+                record.future.complete(record.transaction.getId());
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (batch.size() > 1 && !isConnectionFailure(e)) {
+                int middle = batch.size() / 2;
+                flush(batch.subList(0, middle));
+                flush(batch.subList(middle, batch.size()));
+                return;
+            }
+            System.err.println("Error writing transaction batch of " + batch.size() + ": " + e.getMessage());
+            recordsFailed.add(batch.size());
+            for (PendingRecord record : batch) {
+                record.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    // SQLState class 08: the connection is gone, and retrying smaller batches would only fail the same way
+    private static boolean isConnectionFailure(Exception e) {
+        return e instanceof SQLException sqlException && sqlException.getSQLState() != null
+                && sqlException.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Stops accepting records, flushes everything already queued and waits for the writer thread to finish.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        // No interrupt: it could abort a batch mid-write. The writer's polls time out on their own.
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Only reached if the join was interrupted before the writer drained the queue
+        PendingRecord record;
+        while ((record = queue.poll()) != null) {
+            record.future.completeExceptionally(new IllegalStateException("Transaction log writer is closed."));
+        }
+    }
+
+    // --- Statistics ---
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.sum();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.sum();
+    }
+
+    public long getRecordsFailed() {
+        return recordsFailed.sum();
+    }
+
+    private record PendingRecord(Transaction transaction, CompletableFuture<Integer> future) {
+    }
+}
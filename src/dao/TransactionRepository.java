@@ -0,0 +1,63 @@
+package dao;
+
+import model.ActivitySummary;
+import model.Transaction;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Storage of the transaction ledger, independent of the engine behind it (see {@link StorageEngine}).
+ * Histories are newest first.
+ */
+public interface TransactionRepository {
+
+    /**
+     * Records a transaction without touching any balance.
+     *
+     * @return true if it was saved.
+     */
+    boolean saveTransaction(Transaction transaction);
+
+    /**
+     * Records several transactions, all or none.
+     *
+     * @return true if every one was saved.
+     */
+    boolean saveBatch(List<Transaction> transactions);
+
+    /**
+     * @param limit The maximum number of transactions (0 for no limit).
+     */
+    List<Transaction> getHistoryByAccountId(int accountId, int limit);
+
+    /**
+     * @param limit The maximum number of transactions (0 for no limit).
+     */
+    List<Transaction> getHistoryByUserId(int userId, int limit);
+
+    /**
+     * @param cursor The next cursor from the previous page, or null for the first page.
+     */
+    Page<Transaction> getHistoryPageByAccountId(int accountId, String cursor, int pageSize);
+
+    /**
+     * @param cursor The next cursor from the previous page, or null for the first page.
+     */
+    Page<Transaction> getHistoryPageByUserId(int userId, String cursor, int pageSize);
+
+    /**
+     * Totals an account's transactions over a range of days (both inclusive).
+     *
+     * @return The summary (all zero for a period without activity), or null if an error occurs.
+     */
+    ActivitySummary getActivitySummary(int accountId, LocalDate fromDay, LocalDate toDay);
+
+    /**
+     * Totals an account's transactions over a calendar month, e.g. for a monthly statement.
+     */
+    default ActivitySummary getMonthlySummary(int accountId, YearMonth month) {
+        return getActivitySummary(accountId, month.atDay(1), month.atEndOfMonth());
+    }
+}
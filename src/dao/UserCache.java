@@ -0,0 +1,196 @@
+package dao;
+
+import model.User;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of User rows with a time-to-live, keyed by username with a secondary index by ID.
+ * Shared by every UserDAO; UserDAO invalidates entries after each write to the users table.
+ *
+ * Keys are lower-cased: MySQL compares usernames case-insensitively, so "ALICE" and "alice" name the same row
+ * and a write through either spelling must evict it.
+ *
+ * Callers always get a copy, so changing a returned User never changes the cached one.
+ * The TTL bounds how long a change made outside this process (another app instance, manual SQL) can go unseen.
+ */
+public class UserCache implements UserCacheMXBean {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> byUsername;
+    private final Map<Integer, String> usernameById = new HashMap<>();
+
+    // Bumped on every invalidation; a load that started before an invalidation must not be cached
+    private long generation = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    UserCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // Access order makes iteration start at the least recently used entry
+        this.byUsername = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserCache.this.maxSize) {
+                    usernameById.remove(eldest.getValue().user.getId());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private record Entry(User user, long expiresAtNanos) {
+    }
+
+    /**
+     * @return A copy of the cached user, or null if absent or expired.
+     */
+    synchronized User getByUsername(String username) {
+        Entry entry = username != null ? byUsername.get(key(username)) : null;
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos > 0) {
+            remove(username);
+            expirations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.user);
+    }
+
+    synchronized User getById(int id) {
+        String username = usernameById.get(id);
+        if (username == null) {
+            misses.increment();
+            return null;
+        }
+        return getByUsername(username);
+    }
+
+    /**
+     * @return A token to pass to {@link #put(User, long)} after loading from the database.
+     */
+    synchronized long startLoad() {
+        return generation;
+    }
+
+    /**
+     * Caches a freshly loaded user, unless an invalidation happened since the load started
+     * (the row read may then already be out of date).
+     */
+    synchronized void put(User user, long loadToken) {
+        if (maxSize <= 0 || loadToken != generation) {
+            return;
+        }
+        remove(user.getUsername());
+        byUsername.put(key(user.getUsername()), new Entry(copy(user), System.nanoTime() + ttlNanos));
+        usernameById.put(user.getId(), user.getUsername());
+    }
+
+    synchronized void invalidate(String username) {
+        generation++;
+        invalidations.increment();
+        remove(username);
+    }
+
+    synchronized void invalidateById(int id) {
+        generation++;
+        invalidations.increment();
+        String username = usernameById.get(id);
+        if (username != null) {
+            remove(username);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        generation++;
+        byUsername.clear();
+        usernameById.clear();
+    }
+
+    private void remove(String username) {
+        Entry removed = username != null ? byUsername.remove(key(username)) : null;
+        if (removed != null) {
+            usernameById.remove(removed.user.getId());
+        }
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static User copy(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getRole(), user.isLocked(), user.getFailedAttempts());
+    }
+
+    // --- Statistics ---
+
+    @Override
+    public synchronized int getSize() {
+        return byUsername.size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getTtlMillis() {
+        return ttlNanos / 1_000_000L;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("UserCache{size=%d/%d, hitRate=%.3f, hits=%d, misses=%d, expirations=%d, evictions=%d, invalidations=%d}",
+                getSize(), maxSize, getHitRate(), getHits(), getMisses(), getExpirations(), getEvictions(), getInvalidations());
+    }
+}
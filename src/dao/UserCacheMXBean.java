@@ -0,0 +1,30 @@
+package dao;
+
+/**
+ * JMX view of the shared user cache, registered as "bank:type=UserCache".
+ */
+public interface UserCacheMXBean {
+
+    int getSize();
+
+    int getMaxSize();
+
+    long getTtlMillis();
+
+    long getHits();
+
+    long getMisses();
+
+    /**
+     * @return hits / (hits + misses), or 0 before the first lookup.
+     */
+    double getHitRate();
+
+    long getExpirations();
+
+    long getEvictions();
+
+    long getInvalidations();
+
+    void clear();
+}
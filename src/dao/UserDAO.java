@@ -1,19 +1,95 @@
 package dao;
 
 import database.Database;
+import metrics.Metrics;
+import metrics.OperationMetrics;
 import model.User;
 import util.PasswordUtil;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Data Access Object for User operations (CRUD).
  */
-public class UserDAO {
+public class UserDAO implements UserRepository {
 
-    private static final int MAX_LOGIN_ATTEMPTS = 3;
+    static final int MAX_LOGIN_ATTEMPTS = 3;
+
+    private static final OperationMetrics REGISTER_METRICS = Metrics.operation("user.register");
+    private static final OperationMetrics LOGIN_METRICS = Metrics.operation("user.login");
+    private static final OperationMetrics GET_BY_USERNAME_METRICS = Metrics.operation("user.getUserByUsername");
+    private static final OperationMetrics GET_ALL_METRICS = Metrics.operation("user.getAllUsers");
+    private static final OperationMetrics GET_PAGE_METRICS = Metrics.operation("user.getUsersPage");
+    private static final OperationMetrics SEARCH_METRICS = Metrics.operation("user.searchUsers");
+
+    // Shared by all instances; every write to the users table below invalidates the affected entry
+    private static final UserCache CACHE = new UserCache(
+            Integer.getInteger("bank.user.cacheSize", 1000),
+            Long.getLong("bank.user.cacheTtlMs", 30_000L));
+
+    // Trigram index for substring and fuzzy search, loaded once by startSearchIndexBuild() and kept current by register/delete
+    private static final UsernameIndex SEARCH_INDEX = new UsernameIndex();
+    private static final AtomicBoolean searchIndexStarted = new AtomicBoolean(false);
+    private static volatile boolean searchIndexReady = false;
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(CACHE, new ObjectName("bank:type=UserCache"));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Could not register user cache MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The user cache shared by all UserDAO instances (exposes hit-rate statistics).
+     */
+    public static UserCache getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Loads every username into the in-memory search index on a background thread.
+     * Call once at startup; until the load finishes, substring search falls back to SQL and fuzzy search finds nothing.
+     */
+    public static void startSearchIndexBuild() {
+        if (searchIndexStarted.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("username-index-build").start(UserDAO::buildSearchIndex);
+        }
+    }
+
+    private static void buildSearchIndex() {
+        String sql = "SELECT id, username FROM users";
+        long start = System.nanoTime();
+        SEARCH_INDEX.beginLoad();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            TransactionDAO.enableStreaming(conn, pstmt); // Millions of rows must not be buffered in memory at once
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    SEARCH_INDEX.addLoaded(rs.getInt(1), rs.getString(2));
+                }
+            }
+            searchIndexReady = true;
+            System.out.println("Username search index built: " + SEARCH_INDEX.size() + " users in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms.");
+        } catch (SQLException e) {
+            System.err.println("Error building username search index: " + e.getMessage());
+        } finally {
+            SEARCH_INDEX.endLoad();
+        }
+    }
 
     /**
      * Registers a new user in the database.
@@ -23,6 +99,17 @@ public class UserDAO {
      * @return The created User object with its generated ID, or null if registration fails (e.g., username exists).
      */
     public User register(User user) {
+        long start = System.nanoTime();
+        User created = registerOnce(user);
+        CACHE.invalidate(user.getUsername());
+        if (created != null) {
+            SEARCH_INDEX.add(created.getId(), created.getUsername());
+        }
+        REGISTER_METRICS.record(start, created != null);
+        return created;
+    }
+
+    private User registerOnce(User user) {
         // Hash the password before storing
         String hashedPassword = PasswordUtil.hashPassword(user.getPassword());
         user.setPassword(hashedPassword); // Store hashed password in the object for insertion
@@ -62,6 +149,85 @@ public class UserDAO {
         return null; // Return null if registration failed
     }
 
+    /**
+     * Inserts users whose passwords are already hashed as one multi-row INSERT on the caller's connection,
+     * and sets their generated IDs. Does not commit: it runs inside the caller's transaction (see UserImportDAO);
+     * call {@link #usersCreated(List)} once it has committed.
+     *
+     * @param conn  The active database connection (within a transaction).
+     * @param users New, unlocked users with hashed passwords.
+     * @throws SQLException if a database error occurs (error code 1062 if a username is taken).
+     */
+    void insertUsers(Connection conn, List<User> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        StringBuilder sqlBuilder = new StringBuilder("INSERT INTO users (username, password, role, locked, failed_attempts) VALUES (?, ?, ?, FALSE, 0)");
+        for (int i = 1; i < users.size(); i++) {
+            sqlBuilder.append(", (?, ?, ?, FALSE, 0)");
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int index = 1;
+            for (User user : users) {
+                pstmt.setString(index++, user.getUsername());
+                pstmt.setString(index++, user.getPassword());
+                pstmt.setString(index++, user.getRole().name());
+            }
+            pstmt.executeUpdate();
+
+            // MySQL returns one generated key per inserted row, in insertion order
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                for (User user : users) {
+                    if (!generatedKeys.next()) {
+                        break;
+                    }
+                    user.setId(generatedKeys.getInt(1));
+                }
+            }
+        } // Let SQLException propagate to the calling transactional method
+    }
+
+    /**
+     * Finds which usernames are already taken, on the caller's connection.
+     *
+     * @return The taken usernames, lower-cased (the username column compares case-insensitively).
+     */
+    Set<String> findExistingUsernames(Connection conn, List<String> usernames) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        if (usernames.isEmpty()) {
+            return existing;
+        }
+        StringBuilder sqlBuilder = new StringBuilder("SELECT username FROM users WHERE username IN (?");
+        for (int i = 1; i < usernames.size(); i++) {
+            sqlBuilder.append(", ?");
+        }
+        sqlBuilder.append(")");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sqlBuilder.toString())) {
+            for (int i = 0; i < usernames.size(); i++) {
+                pstmt.setString(i + 1, usernames.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString("username").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Makes users committed by {@link #insertUsers(Connection, List)} visible to the cache and the search index,
+     * as {@link #register(User)} does for a single user.
+     */
+    static void usersCreated(List<User> users) {
+        for (User user : users) {
+            CACHE.invalidate(user.getUsername());
+            SEARCH_INDEX.add(user.getId(), user.getUsername());
+        }
+    }
+
     /**
      * Attempts to log in a user. Verifies username and password.
      * Handles account locking based on failed attempts.
@@ -71,6 +237,13 @@ public class UserDAO {
      * @return The User object if login is successful, null otherwise (invalid credentials, locked account, or user not found).
      */
     public User login(String username, String plainPassword) {
+        long start = System.nanoTime();
+        User user = loginOnce(username, plainPassword);
+        LOGIN_METRICS.record(start, user != null);
+        return user;
+    }
+
+    private User loginOnce(String username, String plainPassword) {
         User user = getUserByUsername(username);
 
         if (user == null) {
@@ -83,15 +256,19 @@ public class UserDAO {
         }
 
         if (PasswordUtil.verifyPassword(plainPassword, user.getPassword())) {
-            // Login successful, reset failed attempts
-            resetFailedAttempts(username);
+            // Login successful, reset failed attempts (no write at all in the common case where there were none)
+            if (user.getFailedAttempts() > 0) {
+                resetFailedAttempts(username);
+            }
+            // Upgrade hashes made with an older work factor while we have the plain password
+            String storedHash = user.getPassword();
+            PasswordUtil.rehashInBackgroundIfNeeded(plainPassword, storedHash,
+                    newHash -> updatePasswordHash(username, storedHash, newHash));
             return user; // Return the authenticated user object
         } else {
-            // Login failed, increment failed attempts
-            incrementFailedAttempts(username);
-            // Check if account should be locked now
-            if (getFailedAttempts(username) >= MAX_LOGIN_ATTEMPTS) {
-                lockAccount(username);
+            // Login failed: count the attempt and lock at the threshold in one atomic statement
+            int failedAttempts = recordFailedAttempt(username);
+            if (failedAttempts >= MAX_LOGIN_ATTEMPTS) {
                 System.out.println("Account for user '" + username + "' locked due to too many failed login attempts.");
             }
             return null; // Invalid password
@@ -100,13 +277,23 @@ public class UserDAO {
 
     /**
      * Retrieves a user by their username.
+     * Served from the user cache when possible.
      *
      * @param username The username to search for.
      * @return The User object if found, null otherwise.
      */
     public User getUserByUsername(String username) {
+        long start = System.nanoTime();
+        User cached = CACHE.getByUsername(username);
+        if (cached != null) {
+            GET_BY_USERNAME_METRICS.record(start, true);
+            return cached;
+        }
+
         String sql = "SELECT id, username, password, role, locked, failed_attempts FROM users WHERE username = ?";
         User user = null;
+        boolean success = true;
+        long loadToken = CACHE.startLoad();
 
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -115,16 +302,46 @@ public class UserDAO {
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                user = new User();
-                user.setId(rs.getInt("id"));
-                user.setUsername(rs.getString("username"));
-                user.setPassword(rs.getString("password")); // Store the hash
-                user.setRole(User.Role.valueOf(rs.getString("role"))); // Convert string back to enum
-                user.setLocked(rs.getBoolean("locked"));
-                user.setFailedAttempts(rs.getInt("failed_attempts"));
+                user = mapResultSetToUser(rs);
+                CACHE.put(user, loadToken);
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving user by username: " + e.getMessage());
+            success = false;
+        }
+        GET_BY_USERNAME_METRICS.record(start, success);
+        return user;
+    }
+
+    /**
+     * Retrieves a user by their ID.
+     * Served from the user cache when possible.
+     *
+     * @param userId The ID of the user.
+     * @return The User object if found, null otherwise.
+     */
+    public User getUserById(int userId) {
+        User cached = CACHE.getById(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        String sql = "SELECT id, username, password, role, locked, failed_attempts FROM users WHERE id = ?";
+        User user = null;
+        long loadToken = CACHE.startLoad();
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                user = mapResultSetToUser(rs);
+                CACHE.put(user, loadToken);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving user by ID " + userId + ": " + e.getMessage());
         }
         return user;
     }
@@ -137,6 +354,8 @@ public class UserDAO {
     public List<User> getAllUsers() {
         String sql = "SELECT id, username, role, locked, failed_attempts FROM users ORDER BY username";
         List<User> users = new ArrayList<>();
+        long start = System.nanoTime();
+        boolean success = true;
 
         try (Connection conn = Database.getConnection();
              Statement stmt = conn.createStatement();
@@ -154,11 +373,248 @@ public class UserDAO {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving all users: " + e.getMessage());
+            success = false;
         }
+        GET_ALL_METRICS.record(start, success);
         return users;
     }
 
 
+    /**
+     * Counts all users (sizes the admin table without loading it).
+     *
+     * @return The number of users, or 0 if an error occurs.
+     */
+    public int countUsers() {
+        String sql = "SELECT COUNT(*) FROM users";
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error counting users: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Retrieves one page of users ordered by username, using keyset pagination on the username index,
+     * so every page costs the same however far into the list it is.
+     *
+     * @param cursor   The next cursor from the previous page, or null for the first page.
+     * @param pageSize The maximum number of users in the page.
+     * @return The page of users, without password hashes (empty if an error occurs).
+     * @throws IllegalArgumentException if pageSize is less than 1.
+     */
+    public Page<User> getUsersPage(String cursor, int pageSize) {
+        Page.checkPageSize(pageSize);
+        String sql = "SELECT id, username, role, locked, failed_attempts FROM users" +
+                (cursor != null ? " WHERE username > ?" : "") + " ORDER BY username LIMIT ?";
+        List<User> users = new ArrayList<>();
+        long start = System.nanoTime();
+        boolean success = true;
+
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (cursor != null) {
+                pstmt.setString(index++, cursor); // The cursor is the last username of the previous page
+            }
+            pstmt.setInt(index, pageSize + 1); // One extra row tells us whether there is a next page
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = new User();
+                    user.setId(rs.getInt("id"));
+                    user.setUsername(rs.getString("username"));
+                    // Note: Password hash is not retrieved for security in list views
+                    user.setRole(User.Role.valueOf(rs.getString("role")));
+                    user.setLocked(rs.getBoolean("locked"));
+                    user.setFailedAttempts(rs.getInt("failed_attempts"));
+                    users.add(user);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving users page: " + e.getMessage());
+            success = false;
+        }
+        GET_PAGE_METRICS.record(start, success);
+
+        if (users.size() <= pageSize) {
+            return new Page<>(users, null);
+        }
+        users.remove(pageSize);
+        return new Page<>(users, users.get(pageSize - 1).getUsername());
+    }
+
+    /**
+     * Retrieves the page of users starting at a row position, for jumping to a part of the list whose
+     * preceding page has not been read. Only the username index is scanned to skip the leading rows;
+     * the page itself is then read by keyset like {@link #getUsersPage(String, int)}.
+     *
+     * @param offset   The position of the page's first row in username order.
+     * @param pageSize The maximum number of users in the page.
+     * @throws IllegalArgumentException if pageSize is less than 1.
+     */
+    public Page<User> getUsersPageAtOffset(int offset, int pageSize) {
+        Page.checkPageSize(pageSize);
+        if (offset <= 0) {
+            return getUsersPage(null, pageSize);
+        }
+        String sql = "SELECT username FROM users ORDER BY username LIMIT 1 OFFSET ?";
+        String cursor = null;
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, offset - 1); // The row just before the page is its cursor
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    cursor = rs.getString(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error locating users page at offset " + offset + ": " + e.getMessage());
+        }
+        return cursor != null ? getUsersPage(cursor, pageSize) : new Page<>(new ArrayList<>(), null);
+    }
+
+    /**
+     * Type-ahead search for the admin console: usernames starting with the query first, then usernames
+     * containing it, and only if neither matches anything, usernames similar to it (to survive typos).
+     * Case-insensitive.
+     *
+     * @param query The text typed so far.
+     * @param limit The maximum number of users returned.
+     * @return The matching users, without password hashes (empty if the query is blank or an error occurs).
+     */
+    public List<User> searchUsers(String query, int limit) {
+        String text = query == null ? "" : query.trim();
+        if (text.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+
+        List<User> results = searchByPrefix(text, limit);
+        if (results.size() < limit) {
+            Set<Integer> seen = new HashSet<>();
+            for (User user : results) {
+                seen.add(user.getId());
+            }
+            // Every prefix match is also a substring match, so ask for enough to still fill the page after skipping them
+            for (User user : searchBySubstring(text, limit + results.size())) {
+                if (results.size() < limit && seen.add(user.getId())) {
+                    results.add(user);
+                }
+            }
+        }
+        if (results.isEmpty()) {
+            results = searchFuzzy(text, limit);
+        }
+        SEARCH_METRICS.record(start, true);
+        return results;
+    }
+
+    /**
+     * Finds users whose username starts with the prefix. LIKE with a constant prefix is a range scan
+     * on the username index, so the cost depends on the number of matches, not the number of users.
+     *
+     * @return Up to limit users in username order, without password hashes (empty if an error occurs).
+     */
+    public List<User> searchByPrefix(String prefix, int limit) {
+        return searchByPattern(escapeLike(prefix) + "%", limit);
+    }
+
+    /**
+     * Finds users whose username contains the text anywhere, using the in-memory trigram index
+     * (a leading wildcard cannot use the username index, so the SQL fallback scans the table).
+     *
+     * @return Up to limit users in username order, without password hashes (empty if an error occurs).
+     */
+    public List<User> searchBySubstring(String text, int limit) {
+        if (!searchIndexReady) {
+            return searchByPattern("%" + escapeLike(text) + "%", limit);
+        }
+        List<User> users = getUsersByIds(SEARCH_INDEX.searchSubstring(text, limit));
+        users.sort(Comparator.comparing(User::getUsername, String.CASE_INSENSITIVE_ORDER));
+        return users;
+    }
+
+    /**
+     * Finds users whose username is similar to the text by shared trigrams, e.g. "jonh" finds "john".
+     *
+     * @return Up to limit users, most similar first, without password hashes
+     *         (empty while the search index is still loading, or if an error occurs).
+     */
+    public List<User> searchFuzzy(String text, int limit) {
+        if (!searchIndexReady) {
+            return new ArrayList<>();
+        }
+        return getUsersByIds(SEARCH_INDEX.searchFuzzy(text, limit));
+    }
+
+    private List<User> searchByPattern(String pattern, int limit) {
+        String sql = "SELECT id, username, role, locked, failed_attempts FROM users " +
+                "WHERE username LIKE ? ESCAPE '!' ORDER BY username LIMIT ?";
+        List<User> users = new ArrayList<>();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, pattern);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapResultSetToUserSummary(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error searching users: " + e.getMessage());
+        }
+        return users;
+    }
+
+    /**
+     * Reads the users with the given IDs in one query, in the order of the IDs.
+     * IDs of users deleted outside this process are skipped.
+     */
+    private List<User> getUsersByIds(List<Integer> ids) {
+        List<User> users = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return users;
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, username, role, locked, failed_attempts FROM users WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        Map<Integer, User> byId = new HashMap<>();
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = mapResultSetToUserSummary(rs);
+                    byId.put(user.getId(), user);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving users by ID: " + e.getMessage());
+        }
+        for (int id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    // Makes %, _ and the escape character itself match literally in a LIKE ... ESCAPE '!' pattern
+    private static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
     /**
      * Updates the lock status of a user account.
      *
@@ -178,6 +634,8 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error updating lock status for user " + username + ": " + e.getMessage());
             return false;
+        } finally {
+            CACHE.invalidate(username);
         }
     }
 
@@ -194,54 +652,139 @@ public class UserDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                SEARCH_INDEX.remove(userId);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting user with ID " + userId + ": " + e.getMessage());
             return false;
+        } finally {
+            CACHE.invalidateById(userId);
         }
     }
 
     // --- Helper methods for login attempts ---
 
-    private void incrementFailedAttempts(String username) {
-        String sql = "UPDATE users SET failed_attempts = failed_attempts + 1 WHERE username = ?";
-        try (Connection conn = Database.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            pstmt.executeUpdate();
+    /**
+     * Increments the failed-attempt counter and locks the account once it reaches MAX_LOGIN_ATTEMPTS,
+     * as a single UPDATE, so parallel bad logins cannot race between reading and writing the counter.
+     * Already-locked accounts are left untouched.
+     *
+     * On MySQL the new counter value comes back in the same round trip: LAST_INSERT_ID(expr) stores it in the
+     * session and the driver returns it as the statement's generated key. Other databases read it back with a
+     * SELECT on the same connection while the UPDATE still holds the row lock.
+     *
+     * @return The new number of failed attempts, or -1 if the user does not exist, is already locked, or on error.
+     */
+    private int recordFailedAttempt(String username) {
+        Connection conn = null;
+        try {
+            conn = Database.getConnection();
+            boolean mysql = conn.getMetaData().getURL().startsWith("jdbc:mysql:");
+            // locked is assigned first: MySQL applies SET assignments left to right, so it must still see the old counter
+            String sql = "UPDATE users SET locked = (failed_attempts + 1 >= ?), failed_attempts = " +
+                    (mysql ? "LAST_INSERT_ID(failed_attempts + 1)" : "failed_attempts + 1") +
+                    " WHERE username = ? AND locked = false";
+
+            if (mysql) {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    pstmt.setInt(1, MAX_LOGIN_ATTEMPTS);
+                    pstmt.setString(2, username);
+                    if (pstmt.executeUpdate() == 0) {
+                        return -1;
+                    }
+                    try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                        return keys.next() ? keys.getInt(1) : -1;
+                    }
+                }
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(sql);
+                 PreparedStatement select = conn.prepareStatement("SELECT failed_attempts FROM users WHERE username = ?")) {
+                update.setInt(1, MAX_LOGIN_ATTEMPTS);
+                update.setString(2, username);
+                if (update.executeUpdate() == 0) {
+                    conn.rollback();
+                    return -1;
+                }
+                select.setString(1, username);
+                int failedAttempts;
+                try (ResultSet rs = select.executeQuery()) {
+                    failedAttempts = rs.next() ? rs.getInt(1) : -1;
+                }
+                conn.commit();
+                return failedAttempts;
+            }
         } catch (SQLException e) {
-            System.err.println("Error incrementing failed attempts for user " + username + ": " + e.getMessage());
+            System.err.println("Error recording failed login for user " + username + ": " + e.getMessage());
+            if (conn != null) {
+                try { conn.rollback(); } catch (SQLException ex) { /* ignore: also fails in auto-commit mode */ }
+            }
+            return -1;
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+            }
+            CACHE.invalidate(username);
         }
     }
 
     private void resetFailedAttempts(String username) {
-        String sql = "UPDATE users SET failed_attempts = 0 WHERE username = ?";
+        String sql = "UPDATE users SET failed_attempts = 0 WHERE username = ? AND failed_attempts <> 0";
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
             pstmt.executeUpdate();
         } catch (SQLException e) {
             System.err.println("Error resetting failed attempts for user " + username + ": " + e.getMessage());
+        } finally {
+            CACHE.invalidate(username);
         }
     }
 
-    private int getFailedAttempts(String username) {
-        String sql = "SELECT failed_attempts FROM users WHERE username = ?";
+    /**
+     * Replaces a password hash, but only if it has not changed since it was read
+     * (so a background re-hash never overwrites a password changed in the meantime).
+     */
+    private void updatePasswordHash(String username, String oldHash, String newHash) {
+        String sql = "UPDATE users SET password = ? WHERE username = ? AND password = ?";
         try (Connection conn = Database.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, username);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("failed_attempts");
-            }
+            pstmt.setString(1, newHash);
+            pstmt.setString(2, username);
+            pstmt.setString(3, oldHash);
+            pstmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Error getting failed attempts for user " + username + ": " + e.getMessage());
+            System.err.println("Error updating password hash for user " + username + ": " + e.getMessage());
+        } finally {
+            CACHE.invalidate(username);
         }
-        return 0; // Return 0 if user not found or error occurs
     }
 
-    private void lockAccount(String username) {
-        updateUserLockStatus(username, true);
+    // Helper method to map a list-view row (no password column) to a User object
+    private User mapResultSetToUserSummary(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setUsername(rs.getString("username"));
+        // Note: Password hash is not retrieved for security in list views
+        user.setRole(User.Role.valueOf(rs.getString("role")));
+        user.setLocked(rs.getBoolean("locked"));
+        user.setFailedAttempts(rs.getInt("failed_attempts"));
+        return user;
     }
 
+    // Helper method to map ResultSet to User object (including the password hash)
+    private User mapResultSetToUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getInt("id"));
+        user.setUsername(rs.getString("username"));
+        user.setPassword(rs.getString("password")); // Store the hash
+        user.setRole(User.Role.valueOf(rs.getString("role"))); // Convert string back to enum
+        user.setLocked(rs.getBoolean("locked"));
+        user.setFailedAttempts(rs.getInt("failed_attempts"));
+        return user;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,160 @@
+package dao;
+
+import database.Database;
+import model.Account;
+import model.Money;
+import model.Transaction;
+import model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Bulk creation of users and their accounts for job.UserImporter.
+ * Each chunk of input is one database transaction: multi-row inserts of the users, of one account per user
+ * (keyed by the generated user IDs), of a DEPOSIT ledger row per non-zero opening balance, and the import's
+ * row in import_checkpoint. A chunk is therefore either fully imported and checkpointed or not at all,
+ * and a restarted import resumes right after the last committed chunk.
+ */
+public class UserImportDAO {
+
+    // Rows per multi-row INSERT; keeps each statement well under max_allowed_packet
+    private static final int MAX_ROWS_PER_INSERT = 500;
+    // A username registered through the app between the existence check and the insert fails the chunk; check again
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final UserDAO userDAO;
+    private final AccountDAO accountDAO;
+    private final TransactionDAO transactionDAO;
+
+    public UserImportDAO() {
+        this(new UserDAO(), new AccountDAO(), new TransactionDAO());
+    }
+
+    public UserImportDAO(UserDAO userDAO, AccountDAO accountDAO, TransactionDAO transactionDAO) {
+        this.userDAO = userDAO;
+        this.accountDAO = accountDAO;
+        this.transactionDAO = transactionDAO;
+    }
+
+    /**
+     * @param source The import's name (see job.UserImporter).
+     * @return The number of input lines already imported under that name (0 if it never ran).
+     */
+    public long readCheckpoint(String source) throws SQLException {
+        try (Connection conn = Database.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT lines_done FROM import_checkpoint WHERE source = ?")) {
+            pstmt.setString(1, source);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong("lines_done") : 0;
+            }
+        }
+    }
+
+    /**
+     * Imports one chunk and advances the checkpoint to linesDone, in one transaction.
+     * Users whose username is already taken are skipped, not imported.
+     *
+     * @param users           New users with hashed passwords; their IDs are set on success.
+     * @param openingBalances Each user's opening balance, in the same order.
+     * @param linesDone       The input line number the chunk ends at.
+     * @return The users created (with their new accounts) and the users skipped.
+     * @throws SQLException if the chunk could not be imported; nothing of it is then.
+     */
+    public ImportedChunk importChunk(String source, List<User> users, List<Money> openingBalances, long linesDone) throws SQLException {
+        List<String> usernames = new ArrayList<>(users.size());
+        for (User user : users) {
+            usernames.add(user.getUsername());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            Connection conn = null;
+            try {
+                conn = Database.getConnection();
+                conn.setAutoCommit(false); // Users, accounts, ledger rows and checkpoint commit together
+
+                Set<String> taken = new HashSet<>();
+                for (int from = 0; from < usernames.size(); from += MAX_ROWS_PER_INSERT) {
+                    taken.addAll(userDAO.findExistingUsernames(conn, usernames.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, usernames.size()))));
+                }
+                List<User> created = new ArrayList<>(users.size());
+                List<Account> accounts = new ArrayList<>(users.size());
+                List<User> skipped = new ArrayList<>();
+                for (int i = 0; i < users.size(); i++) {
+                    User user = users.get(i);
+                    if (taken.contains(user.getUsername().toLowerCase(Locale.ROOT))) {
+                        skipped.add(user);
+                    } else {
+                        created.add(user);
+                        accounts.add(new Account(0, openingBalances.get(i)));
+                    }
+                }
+
+                for (int from = 0; from < created.size(); from += MAX_ROWS_PER_INSERT) {
+                    userDAO.insertUsers(conn, created.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, created.size())));
+                }
+                for (int i = 0; i < accounts.size(); i++) {
+                    accounts.get(i).setUserId(created.get(i).getId());
+                }
+                for (int from = 0; from < accounts.size(); from += MAX_ROWS_PER_INSERT) {
+                    accountDAO.insertAccounts(conn, accounts.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, accounts.size())));
+                }
+                // Opening balances get a ledger row, so balances keep matching their transaction history
+                List<Transaction> openingDeposits = new ArrayList<>();
+                for (Account account : accounts) {
+                    if (account.getBalance().isPositive()) {
+                        openingDeposits.add(new Transaction(account.getId(), Transaction.TransactionType.DEPOSIT, account.getBalance(), null));
+                    }
+                }
+                for (int from = 0; from < openingDeposits.size(); from += TransactionDAO.MAX_ROWS_PER_INSERT) {
+                    transactionDAO.insertTransactions(conn, openingDeposits.subList(from, Math.min(from + TransactionDAO.MAX_ROWS_PER_INSERT, openingDeposits.size())));
+                }
+                advanceCheckpoint(conn, source, linesDone, created.size());
+
+                conn.commit();
+                UserDAO.usersCreated(created);
+                return new ImportedChunk(created, accounts, skipped);
+            } catch (SQLException e) {
+                if (conn != null) {
+                    try { conn.rollback(); } catch (SQLException ex) { System.err.println("Rollback failed: " + ex.getMessage()); }
+                }
+                if (e.getErrorCode() != 1062 || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            } finally {
+                if (conn != null) {
+                    try { conn.setAutoCommit(true); } catch (SQLException ex) { /* ignore */ }
+                    try { conn.close(); } catch (SQLException ex) { /* ignore */ } // Returns the connection to the pool
+                }
+            }
+        }
+    }
+
+    private static void advanceCheckpoint(Connection conn, String source, long linesDone, int usersCreated) throws SQLException {
+        String sql = "INSERT INTO import_checkpoint (source, lines_done, users_created) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE lines_done = VALUES(lines_done), users_created = users_created + VALUES(users_created)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, source);
+            pstmt.setLong(2, linesDone);
+            pstmt.setInt(3, usersCreated);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Outcome of one chunk.
+     *
+     * @param created  Users inserted, with their IDs.
+     * @param accounts Their accounts, with IDs, in the same order.
+     * @param skipped  Users not inserted because the username was taken.
+     */
+    public record ImportedChunk(List<User> created, List<Account> accounts, List<User> skipped) {
+    }
+}
@@ -0,0 +1,54 @@
+package dao;
+
+import model.User;
+
+import java.util.List;
+
+/**
+ * Storage of users and their credentials, independent of the engine behind it (see {@link StorageEngine}).
+ * Usernames are unique and compared case-insensitively; lists and pages are in username order
+ * and never carry password hashes.
+ */
+public interface UserRepository {
+
+    /**
+     * Registers a user, hashing the plain password it carries.
+     *
+     * @return The created user with its generated ID, or null if registration fails (e.g. the username is taken).
+     */
+    User register(User user);
+
+    /**
+     * Checks a password, counting failures and locking the user after too many.
+     *
+     * @return The user if the login succeeded, null otherwise.
+     */
+    User login(String username, String plainPassword);
+
+    User getUserByUsername(String username);
+
+    User getUserById(int userId);
+
+    List<User> getAllUsers();
+
+    int countUsers();
+
+    /**
+     * @param cursor The next cursor from the previous page, or null for the first page.
+     */
+    Page<User> getUsersPage(String cursor, int pageSize);
+
+    Page<User> getUsersPageAtOffset(int offset, int pageSize);
+
+    /**
+     * Type-ahead search: usernames starting with the query first, then usernames containing it.
+     */
+    List<User> searchUsers(String query, int limit);
+
+    boolean updateUserLockStatus(String username, boolean locked);
+
+    /**
+     * Deletes a user together with their accounts and those accounts' transactions.
+     */
+    boolean deleteUser(int userId);
+}
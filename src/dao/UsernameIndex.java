@@ -0,0 +1,246 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over usernames, for substring ("infix") and fuzzy search that a B-tree index cannot serve.
+ *
+ * Every username is lower-cased, padded with boundary markers (two in front, one behind, as PostgreSQL's pg_trgm does)
+ * and split into overlapping 3-character grams; each gram maps to the IDs of the users containing it.
+ * <ul>
+ *   <li>Substring search reads the posting list of the query's rarest gram and checks each candidate with contains(),
+ *   so it touches a small fraction of the users rather than all of them.</li>
+ *   <li>Fuzzy search ranks users by how many grams they share with the query (Jaccard similarity),
+ *   which tolerates typos, swapped letters and missing characters.</li>
+ * </ul>
+ * Thread-safe: searches share a read lock, add/remove take the write lock.
+ */
+class UsernameIndex {
+
+    private static final char BOUNDARY = '\u0001';
+    private static final double MIN_FUZZY_SIMILARITY = 0.2; // Low on purpose: fuzzy search only runs when nothing matched exactly
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, String> usernames = new HashMap<>(); // ID -> lower-cased username
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private Set<Integer> removedDuringLoad; // Non-null between beginLoad() and endLoad()
+
+    void add(int id, String username) {
+        String key = username.toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        try {
+            String previous = usernames.put(id, key);
+            if (previous != null) {
+                removeGrams(id, previous);
+            }
+            for (long gram : grams(key, true)) {
+                postings.computeIfAbsent(gram, g -> new IntList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (removedDuringLoad != null) {
+                removedDuringLoad.add(id);
+            }
+            String previous = usernames.remove(id);
+            if (previous != null) {
+                removeGrams(id, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a bulk load from the database while add/remove keep being applied by concurrent writers.
+     * Until {@link #endLoad()}, removed IDs are remembered so a row the load read before its deletion
+     * is not put back by {@link #addLoaded(int, String)}.
+     */
+    void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            removedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void addLoaded(int id, String username) {
+        lock.writeLock().lock(); // Re-entrant, so the check and add() are one step for concurrent writers
+        try {
+            if (removedDuringLoad == null || !removedDuringLoad.contains(id)) {
+                add(id, username);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void endLoad() {
+        lock.writeLock().lock();
+        try {
+            removedDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return usernames.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return IDs of users whose username contains the text (case-insensitive), up to limit, in no particular order.
+     */
+    List<Integer> searchSubstring(String text, int limit) {
+        String query = text.toLowerCase(Locale.ROOT);
+        List<Integer> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (query.length() < 3) {
+                // Too short to have a gram: scan, stopping as soon as we have enough
+                for (Map.Entry<Integer, String> entry : usernames.entrySet()) {
+                    if (entry.getValue().contains(query)) {
+                        matches.add(entry.getKey());
+                        if (matches.size() >= limit) {
+                            break;
+                        }
+                    }
+                }
+                return matches;
+            }
+
+            IntList rarest = null;
+            for (long gram : grams(query, false)) {
+                IntList list = postings.get(gram);
+                if (list == null) {
+                    return matches; // Some gram occurs in no username, so nothing can match
+                }
+                if (rarest == null || list.size < rarest.size) {
+                    rarest = list;
+                }
+            }
+            for (int i = 0; i < rarest.size && matches.size() < limit; i++) {
+                int id = rarest.values[i];
+                if (usernames.get(id).contains(query)) {
+                    matches.add(id);
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return IDs of users whose username is similar to the text, most similar first, up to limit.
+     */
+    List<Integer> searchFuzzy(String text, int limit) {
+        long[] queryGrams = grams(text.toLowerCase(Locale.ROOT), true);
+        Map<Integer, Integer> shared = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (long gram : queryGrams) {
+                IntList list = postings.get(gram);
+                if (list != null) {
+                    for (int i = 0; i < list.size; i++) {
+                        shared.merge(list.values[i], 1, Integer::sum);
+                    }
+                }
+            }
+
+            List<double[]> scored = new ArrayList<>(); // {similarity, id}
+            for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+                // A padded name of length n has n + 1 grams (fewer if some repeat, which only makes this a lower bound on similarity)
+                int userGrams = usernames.get(entry.getKey()).length() + 1;
+                int common = entry.getValue();
+                double similarity = (double) common / (queryGrams.length + userGrams - common);
+                if (similarity >= MIN_FUZZY_SIMILARITY) {
+                    scored.add(new double[]{similarity, entry.getKey()});
+                }
+            }
+            scored.sort((a, b) -> Double.compare(b[0], a[0]));
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < scored.size() && i < limit; i++) {
+                ids.add((int) scored.get(i)[1]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeGrams(int id, String username) {
+        for (long gram : grams(username, true)) {
+            IntList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Distinct 3-character grams of the text, each packed into a long (3 x 16-bit chars).
+     *
+     * @param padded true to add boundary markers, so the first and last characters form grams of their own
+     *               (which weighs the start of a name, where typos are rarest, more heavily).
+     */
+    private static long[] grams(String text, boolean padded) {
+        String s = padded ? "" + BOUNDARY + BOUNDARY + text + BOUNDARY : text;
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            grams.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+        }
+        long[] result = new long[grams.size()];
+        int i = 0;
+        for (long gram : grams) {
+            result[i++] = gram;
+        }
+        return result;
+    }
+
+    /**
+     * Growable array of user IDs; much smaller than a List of Integers with millions of postings.
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size]; // Order does not matter
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of physical JDBC connections.
+ * Connections handed out by {@link #borrow()} go back to the pool when the caller closes them,
+ * so DAOs can keep using try-with-resources without paying for a new MySQL handshake each time.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    // Most recently returned connections sit at the head, so the tail holds the longest-idle ones
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // One permit per connection that may be lent out at the same time
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed = false;
+
+    // --- Counters ---
+    private final AtomicInteger borrowed = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder validationFailureCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private ConnectionPool(Builder builder) {
+        this.url = builder.url;
+        this.connectionProperties = new Properties();
+        this.connectionProperties.putAll(builder.connectionProperties);
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.borrowTimeoutMillis = builder.borrowTimeoutMillis;
+        this.validateAfterIdleMillis = builder.validateAfterIdleMillis;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.permits = new Semaphore(maxSize, true); // Fair, so waiting callers are served in arrival order
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMillis / 2, 30_000L));
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder(String url) {
+        return new Builder(url);
+    }
+
+    /**
+     * Opens the minimum number of connections up front.
+     * Failures are logged and left to the first borrow to surface.
+     */
+    void warmUp() {
+        try {
+            fillToMinimum();
+        } catch (SQLException e) {
+            System.err.println("Failed to pre-open pooled connections: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the configured borrow timeout.
+     * Closing the returned connection hands it back to the pool.
+     *
+     * @return A logical connection backed by a pooled physical connection.
+     * @throws SQLTimeoutException if no connection became available in time.
+     * @throws SQLException        if the pool is closed or a new connection could not be opened.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                validationFailureCount.increment();
+                pooled.closePhysical();
+            }
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            borrowCount.increment();
+            borrowed.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Called by a {@link PooledConnection} when its borrower closes it.
+     */
+    void release(PooledConnection pooled) {
+        borrowed.decrementAndGet();
+        try {
+            if (closed || pooled.isBroken() || !pooled.resetForReuse()) {
+                pooled.closePhysical();
+            } else {
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (pooled.isBroken()) {
+            return false;
+        }
+        // Skip the validation round trip for connections that were in use a moment ago
+        if (pooled.idleMillis() < validateAfterIdleMillis) {
+            return true;
+        }
+        return pooled.isValid(validationTimeoutSeconds);
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, connectionProperties);
+        createdCount.increment();
+        return new PooledConnection(this, physical, statementCacheSize);
+    }
+
+    private void fillToMinimum() throws SQLException {
+        // Each new connection holds a permit while it is opened, as a borrower's does, so connections never outnumber
+        // the permits; if none is free the pool is busy and needs no topping up
+        while (!closed && idle.size() + borrowed.get() < minSize && permits.tryAcquire()) {
+            try {
+                idle.offerLast(createConnection());
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Closes connections that have been idle longer than the idle timeout, never going below the minimum size,
+     * then tops the pool back up to the minimum.
+     */
+    private void evictIdleConnections() {
+        try {
+            Iterator<PooledConnection> it = idle.descendingIterator(); // Oldest first
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (idle.size() + borrowed.get() <= minSize) {
+                    break;
+                }
+                if (pooled.idleMillis() >= idleTimeoutMillis && idle.remove(pooled)) {
+                    evictedCount.increment();
+                    pooled.closePhysical();
+                }
+            }
+            fillToMinimum();
+        } catch (SQLException e) {
+            System.err.println("Failed to refill connection pool: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool eviction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops the evictor.
+     * Borrowed connections are closed as they are returned.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // --- Statistics ---
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return Connections currently lent out. */
+    public int getBorrowedCount() {
+        return borrowed.get();
+    }
+
+    /** @return Open connections waiting in the pool. */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** @return Callers currently blocked waiting for a connection. */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getTotalBorrows() {
+        return borrowCount.sum();
+    }
+
+    public long getBorrowTimeouts() {
+        return timeoutCount.sum();
+    }
+
+    public long getConnectionsCreated() {
+        return createdCount.sum();
+    }
+
+    public long getConnectionsEvicted() {
+        return evictedCount.sum();
+    }
+
+    public long getValidationFailures() {
+        return validationFailureCount.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    /** @return PreparedStatements served from a connection's statement cache, across all connections. */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /** @return PreparedStatements that had to be prepared on the server, across all connections. */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        long borrows = getTotalBorrows();
+        return "ConnectionPool{" +
+                "borrowed=" + getBorrowedCount() +
+                ", idle=" + getIdleCount() +
+                ", waiting=" + getWaitingCount() +
+                ", max=" + maxSize +
+                ", borrows=" + borrows +
+                ", timeouts=" + getBorrowTimeouts() +
+                ", avgWaitMicros=" + (borrows == 0 ? 0 : getTotalWaitNanos() / borrows / 1000) +
+                ", stmtCacheHits=" + getStatementCacheHits() +
+                ", stmtCacheMisses=" + getStatementCacheMisses() +
+                '}';
+    }
+
+    /**
+     * Builder for {@link ConnectionPool}; defaults suit a single desktop client.
+     */
+    public static class Builder {
+        private final String url;
+        private final Properties connectionProperties = new Properties();
+        private int minSize = 1;
+        private int maxSize = 10;
+        private long idleTimeoutMillis = TimeUnit.MINUTES.toMillis(10);
+        private long borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+        private long validateAfterIdleMillis = 500;
+        private int validationTimeoutSeconds = 2;
+        private int statementCacheSize = 64;
+
+        private Builder(String url) {
+            this.url = url;
+        }
+
+        public Builder credentials(String user, String password) {
+            connectionProperties.setProperty("user", user);
+            connectionProperties.setProperty("password", password);
+            return this;
+        }
+
+        public Builder property(String key, String value) {
+            connectionProperties.setProperty(key, value);
+            return this;
+        }
+
+        public Builder minSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        public Builder borrowTimeoutMillis(long borrowTimeoutMillis) {
+            this.borrowTimeoutMillis = borrowTimeoutMillis;
+            return this;
+        }
+
+        public Builder validateAfterIdleMillis(long validateAfterIdleMillis) {
+            this.validateAfterIdleMillis = validateAfterIdleMillis;
+            return this;
+        }
+
+        public Builder validationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * Maximum PreparedStatements cached per connection (LRU); 0 disables the cache.
+         */
+        public Builder statementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        public ConnectionPool build() {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("Pool max size must be at least 1");
+            }
+            if (minSize < 0 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool min size must be between 0 and max size");
+            }
+            return new ConnectionPool(this);
+        }
+    }
+}
@@ -1,74 +1,109 @@
 package database;
 
+import metrics.Metrics;
+import metrics.OperationMetrics;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Singleton class to manage the MySQL database connection.
+ * Singleton class to manage the MySQL connection pool.
+ * Connection settings can be overridden with system properties (e.g. -Dbank.db.url=...).
  */
 public class Database {
 
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/bank_app"; // Replace with your DB URL
-    private static final String DB_USER = "root"; // Replace with your DB username
-    private static final String DB_PASSWORD = ""; // Replace with your DB password
+    private static final String DB_URL = System.getProperty("bank.db.url", "jdbc:mysql://localhost:3306/bank_app"); // Replace with your DB URL
+    private static final String DB_USER = System.getProperty("bank.db.user", "root"); // Replace with your DB username
+    private static final String DB_PASSWORD = System.getProperty("bank.db.password", ""); // Replace with your DB password
+
+    // Pool sizing and timeouts
+    private static final int POOL_MIN_SIZE = Integer.getInteger("bank.db.pool.min", 1);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("bank.db.pool.max", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("bank.db.pool.idleTimeoutMs", 600_000L);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("bank.db.pool.borrowTimeoutMs", 30_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("bank.db.pool.statementCacheSize", 64);
+
+    // Time spent waiting for a pooled connection (includes creating the pool on first use)
+    private static final OperationMetrics GET_CONNECTION_METRICS = Metrics.operation("database.getConnection");
 
-    private static Connection connection = null;
+    private static volatile ConnectionPool pool = null;
 
     // Private constructor to prevent instantiation
     private Database() {
     }
 
     /**
-     * Returns the singleton instance of the database connection.
-     * Establishes the connection if it doesn't exist.
+     * Borrows a connection from the pool, creating the pool on first use.
+     * Closing the returned connection hands it back to the pool.
      *
-     * @return The active database connection.
-     * @throws SQLException if a database access error occurs.
+     * @return A pooled database connection.
+     * @throws SQLException if a database access error occurs or no connection became available in time.
      */
     public static Connection getConnection() throws SQLException {
-        // Use double-checked locking for thread safety (optional for simple desktop apps, crucial for concurrent env)
-        if (connection == null || connection.isClosed()) {
+        long start = System.nanoTime();
+        try {
+            Connection conn = getPool().borrow();
+            GET_CONNECTION_METRICS.record(start, true);
+            return conn;
+        } catch (SQLException e) {
+            GET_CONNECTION_METRICS.record(start, false);
+            System.err.println("Database connection failed: " + e.getMessage());
+            throw e; // Re-throw the exception to be handled by the caller (DAO)
+        }
+    }
+
+    /**
+     * Returns the shared connection pool, creating it if it doesn't exist.
+     *
+     * @return The active connection pool (exposes borrow/idle/wait statistics).
+     */
+    public static ConnectionPool getPool() {
+        // Use double-checked locking for thread safety
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
             synchronized (Database.class) {
-                if (connection == null || connection.isClosed()) {
-                    try {
-                        // Ensure the JDBC driver is loaded (often not needed with modern JDBC)
-                        // Class.forName("com.mysql.cj.jdbc.Driver");
-                        connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                        System.out.println("Database connection established.");
-                    } catch (SQLException e) {
-                        System.err.println("Database connection failed: " + e.getMessage());
-                        throw e; // Re-throw the exception to be handled by the caller (DAO)
+                current = pool;
+                if (current == null || current.isClosed()) {
+                    ConnectionPool.Builder builder = ConnectionPool.builder(DB_URL)
+                            .credentials(DB_USER, DB_PASSWORD)
+                            .minSize(POOL_MIN_SIZE)
+                            .maxSize(POOL_MAX_SIZE)
+                            .idleTimeoutMillis(POOL_IDLE_TIMEOUT_MS)
+                            .borrowTimeoutMillis(POOL_BORROW_TIMEOUT_MS)
+                            .statementCacheSize(STATEMENT_CACHE_SIZE);
+                    if (DB_URL.startsWith("jdbc:mysql:")) {
+                        // Server-side prepares so MySQL parses each cached statement once per connection;
+                        // the driver's own client-side cache is redundant with the pool's statement cache
+                        builder.property("useServerPrepStmts", "true")
+                                .property("cachePrepStmts", "false");
                     }
+                    current = builder.build();
+                    current.warmUp();
+                    pool = current;
+                    System.out.println("Database connection pool started (max " + POOL_MAX_SIZE + " connections).");
                 }
             }
         }
-        return connection;
+        return current;
     }
 
     /**
-     * Closes the database connection ifs it is open.
+     * Closes the connection pool if it is open.
      */
     public static void closeConnection() {
-        if (connection != null) {
+        if (pool != null) {
             synchronized (Database.class) {
-                if (connection != null) {
-                    try {
-                        if (!connection.isClosed()) {
-                            connection.close();
-                            connection = null; // Reset connection variable
-                            System.out.println("Database connection closed.");
-                        }
-                    } catch (SQLException e) {
-                        System.err.println("Failed to close database connection: " + e.getMessage());
-                    }
+                if (pool != null) {
+                    pool.close();
+                    System.out.println("Database connection pool closed: " + pool);
+                    pool = null; // Reset pool variable
                 }
             }
         }
     }
 
-    // Optional: Add a shutdown hook to ensure connection is closed when JVM exits
+    // Optional: Add a shutdown hook to ensure connections are closed when JVM exits
     static {
         Runtime.getRuntime().addShutdownHook(new Thread(Database::closeConnection));
     }
-}
\ No newline at end of file
+}
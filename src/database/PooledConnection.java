@@ -0,0 +1,163 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A physical connection owned by a {@link ConnectionPool}.
+ * Each borrow gets its own proxy ("lease") whose {@code close()} returns the connection to the pool
+ * instead of closing the socket; a lease cannot be used again once closed.
+ * PreparedStatements are served from a per-connection {@link StatementCache} when one is configured.
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final StatementCache statementCache; // null when caching is disabled
+    private volatile long lastUsedNanos = System.nanoTime();
+    private volatile boolean broken = false;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCache = statementCacheSize > 0 ? new StatementCache(this, physical, statementCacheSize, pool) : null;
+    }
+
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Lease());
+    }
+
+    long idleMillis() {
+        return (System.nanoTime() - lastUsedNanos) / 1_000_000L;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * Marks the connection broken if the error means the connection itself is gone, so it is closed instead of reused.
+     */
+    void recordFailure(SQLException e) {
+        if (isFatal(e)) {
+            broken = true;
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return !physical.isClosed() && physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Undoes whatever the borrower left behind so the next borrower starts clean.
+     *
+     * @return false if the connection could not be reset and should be discarded.
+     */
+    boolean resetForReuse() {
+        try {
+            if (physical.isClosed()) {
+                return false; // The driver closed it after a communications failure
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback(); // Discard any transaction the borrower forgot to finish
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            physical.clearWarnings();
+            lastUsedNanos = System.nanoTime();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Discarding pooled connection that could not be reset: " + e.getMessage());
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The logical connection handed to a single borrower.
+     */
+    private class Lease implements InvocationHandler {
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + (closed ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            try {
+                if (statementCache != null && isCacheablePrepare(method, args)) {
+                    int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                    return statementCache.prepare((Connection) proxy, (String) args[0], autoGeneratedKeys);
+                }
+                return method.invoke(physical, args);
+            } catch (SQLException e) {
+                recordFailure(e);
+                throw e;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException) {
+                    recordFailure(sqlException);
+                }
+                throw cause;
+            }
+        }
+    }
+
+    // Only the plain prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) overloads are cached
+    private static boolean isCacheablePrepare(Method method, Object[] args) {
+        if (!method.getName().equals("prepareStatement") || args == null) {
+            return false;
+        }
+        Class<?>[] params = method.getParameterTypes();
+        return params.length == 1 || (params.length == 2 && params[1] == int.class);
+    }
+
+    // SQLState class 08 means the connection itself is gone
+    private static boolean isFatal(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
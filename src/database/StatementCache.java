@@ -0,0 +1,205 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of PreparedStatements for one physical connection, keyed by SQL text.
+ * A cached statement's {@code close()} only resets it and hands it back to the cache, so the
+ * (server-side) prepare happens once per connection rather than once per DAO call.
+ * Not thread-safe: a pooled connection is only ever used by the borrower holding it.
+ */
+class StatementCache {
+
+    private final PooledConnection connection; // Marked broken when a statement fails because the connection is gone
+    private final Connection physical;
+    private final int maxSize;
+    private final ConnectionPool pool; // Receives hit/miss counts
+    private final LinkedHashMap<Key, CachedStatement> statements;
+
+    StatementCache(PooledConnection connection, Connection physical, int maxSize, ConnectionPool pool) {
+        this.connection = connection;
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.pool = pool;
+        // Access order makes iteration start at the least recently used entry
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a statement for the given SQL, reusing the cached one when it is not already in use.
+     *
+     * @param owner             The logical connection the statement is handed out on (returned by getConnection()).
+     * @param sql               The SQL text.
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS.
+     * @return A statement whose close() returns it to the cache.
+     * @throws SQLException if the statement could not be prepared.
+     */
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            pool.recordStatementCacheHit();
+            return cached.checkOut(owner);
+        }
+
+        pool.recordStatementCacheMiss();
+        PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // Same SQL is already open on this connection (nested use): hand out an uncached copy
+            return new CachedStatement(statement, false).checkOut(owner);
+        }
+        CachedStatement created = new CachedStatement(statement, true);
+        statements.put(key, created);
+        return created.checkOut(owner);
+    }
+
+    /**
+     * Closes every cached statement. Called before the physical connection is closed.
+     */
+    void clear() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    private record Key(String sql, int autoGeneratedKeys) {
+        private Key {
+            Objects.requireNonNull(sql);
+        }
+    }
+
+    private class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean cached;
+        private boolean inUse = false;
+        private ResultSet lastResultSet;
+
+        CachedStatement(PreparedStatement statement, boolean cached) {
+            this.statement = statement;
+            this.cached = cached;
+        }
+
+        PreparedStatement checkOut(Connection owner) {
+            this.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Handle(owner));
+        }
+
+        /**
+         * One borrower's view of the statement; stops working once that borrower closes it.
+         */
+        private class Handle implements InvocationHandler {
+            private final Connection owner;
+            private boolean closed = false;
+
+            Handle(Connection owner) {
+                this.owner = owner;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            checkIn();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed || statement.isClosed();
+                    case "getConnection":
+                        return owner;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedStatement[" + statement + "]";
+                    default:
+                        break;
+                }
+
+                if (closed) {
+                    throw new SQLException("Statement has already been closed.");
+                }
+                try {
+                    Object result = method.invoke(statement, args);
+                    if (result instanceof ResultSet rs && method.getName().equals("executeQuery")) {
+                        lastResultSet = rs; // Closed on check-in even if the caller forgot to
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    // Executing is where a dropped connection shows up; the lease never sees these calls
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException sqlException) {
+                        connection.recordFailure(sqlException);
+                    }
+                    throw cause;
+                }
+            }
+        }
+
+        private void checkIn() throws SQLException {
+            inUse = false;
+            if (!cached) {
+                statement.close();
+                return;
+            }
+            if (lastResultSet != null) {
+                lastResultSet.close();
+                lastResultSet = null;
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            // A borrower may have switched it to streaming (fetch size Integer.MIN_VALUE) or capped it;
+            // the next one gets the driver defaults, 0 for all three (client-side only, no round trip)
+            statement.setFetchSize(0);
+            statement.setMaxRows(0);
+            statement.setQueryTimeout(0);
+        }
+
+        // Dropped from the cache: close now, or on check-in if a borrower still holds it
+        void evict() {
+            if (inUse) {
+                cached = false;
+            } else {
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to close cached statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package job;
+
+import dao.TransactionDAO;
+import database.Database;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Fills daily_account_totals from the existing transactions table, one day per database transaction,
+ * so each step holds its locks only briefly and an interrupted run can simply be started again.
+ * Rebuilding a day replaces its totals, so days the live code already maintains can be included safely.
+ *
+ * Usage: java job.DailyTotalsBackfill [&lt;from yyyy-mm-dd&gt; [&lt;to yyyy-mm-dd&gt;]]
+ * (defaults: the day of the oldest transaction, and today)
+ */
+public class DailyTotalsBackfill {
+
+    private final TransactionDAO transactionDAO;
+
+    public DailyTotalsBackfill() {
+        this(new TransactionDAO());
+    }
+
+    public DailyTotalsBackfill(TransactionDAO transactionDAO) {
+        this.transactionDAO = transactionDAO;
+    }
+
+    /**
+     * Rebuilds every day in the range, oldest first.
+     *
+     * @return The number of (account, day) rows written.
+     */
+    public long backfill(LocalDate fromDay, LocalDate toDay) throws SQLException {
+        long rows = 0;
+        for (LocalDate day = fromDay; !day.isAfter(toDay); day = day.plusDays(1)) {
+            rows += transactionDAO.rebuildDailyTotals(day);
+            if (day.getDayOfMonth() == 1) {
+                System.out.println("Backfilled through " + day + " (" + rows + " rows so far)");
+            }
+        }
+        return rows;
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 2) {
+            System.err.println("Usage: DailyTotalsBackfill [<from yyyy-mm-dd> [<to yyyy-mm-dd>]]");
+            System.exit(2);
+        }
+        try {
+            DailyTotalsBackfill backfill = new DailyTotalsBackfill();
+            LocalDate fromDay = args.length > 0 ? LocalDate.parse(args[0]) : backfill.transactionDAO.getFirstTransactionDay();
+            LocalDate toDay = args.length > 1 ? LocalDate.parse(args[1]) : LocalDate.now();
+            if (fromDay == null) {
+                System.out.println("No transactions to backfill.");
+                return;
+            }
+
+            long start = System.nanoTime();
+            long rows = backfill.backfill(fromDay, toDay);
+            System.out.printf("Backfilled %d daily totals from %s to %s in %.1f s%n", rows, fromDay, toDay, (System.nanoTime() - start) / 1e9);
+        } catch (DateTimeParseException e) {
+            System.err.println("Invalid date: " + e.getMessage());
+            System.exit(2);
+        } catch (SQLException e) {
+            System.err.println("Backfill failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            Database.closeConnection();
+        }
+    }
+}
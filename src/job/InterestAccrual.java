@@ -0,0 +1,168 @@
+package job;
+
+import dao.InterestDAO;
+import database.Database;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Month-end interest run: credits every account with a positive balance with balance * rate, rounded to the cent,
+ * and records each credit as a DEPOSIT.
+ *
+ * The account ID range is cut into chunks (bank.interest.chunkSize IDs, default 1000) and split recursively on a
+ * fork/join pool (bank.interest.threads workers, default the lesser of the cores and bank.db.pool.max) until each
+ * task holds bank.interest.chunksPerTask chunks (default 16); a task credits its chunks in order on one connection,
+ * one short transaction per chunk (see {@link InterestDAO}). Daytime withdrawals and transfers only ever wait
+ * for the one chunk their account is in.
+ *
+ * Runs are identified by an ID such as the month. Running the same ID again, after a crash or a failed chunk,
+ * credits only the chunks not yet credited, with the rate and chunk size the run started with.
+ *
+ * Usage: java job.InterestAccrual &lt;run id&gt; &lt;annual rate %&gt;
+ * (e.g. "2026-10 3.0": 3% a year, credited monthly as 0.25%)
+ */
+public class InterestAccrual {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("bank.interest.chunkSize", 1000);
+    private static final int CHUNKS_PER_TASK = Integer.getInteger("bank.interest.chunksPerTask", 16);
+
+    private final InterestDAO interestDAO;
+    private final AtomicLong credited = new AtomicLong();
+
+    public InterestAccrual() {
+        this(new InterestDAO());
+    }
+
+    public InterestAccrual(InterestDAO interestDAO) {
+        this.interestDAO = interestDAO;
+    }
+
+    /**
+     * Credits every chunk of the run not credited yet, in parallel.
+     *
+     * @return The accounts credited by this call (not by earlier attempts at the run).
+     * @throws SQLException if a chunk failed; chunks credited before the failure stay credited.
+     */
+    public long accrue(InterestDAO.InterestRun run, int parallelism) throws SQLException {
+        int[] idRange = interestDAO.getAccountIdRange();
+        if (idRange == null) {
+            return 0;
+        }
+        // Chunks are aligned to multiples of the chunk size, so every attempt at a run cuts the same chunks
+        long firstChunk = (idRange[0] - 1L) / run.chunkSize();
+        long endChunk = (idRange[1] - 1L) / run.chunkSize() + 1;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ChunkRange(run, firstChunk, endChunk));
+        } catch (ChunkFailedException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return credited.get();
+    }
+
+    /**
+     * A range of chunk numbers: split in half until small enough, then credited on one connection.
+     */
+    private final class ChunkRange extends RecursiveTask<Void> {
+        private static final long serialVersionUID = 1L; // Tasks are never serialized; RecursiveTask is Serializable
+
+        private final transient InterestDAO.InterestRun run;
+        private final long firstChunk;
+        private final long endChunk;
+
+        ChunkRange(InterestDAO.InterestRun run, long firstChunk, long endChunk) {
+            this.run = run;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected Void compute() {
+            if (endChunk - firstChunk > CHUNKS_PER_TASK) {
+                long middle = (firstChunk + endChunk) >>> 1;
+                invokeAll(new ChunkRange(run, firstChunk, middle), new ChunkRange(run, middle, endChunk));
+                return null;
+            }
+            try {
+                long done = interestDAO.accrueChunks(run, firstChunk * run.chunkSize() + 1, endChunk * run.chunkSize() + 1);
+                long total = credited.addAndGet(done);
+                if (done > 0) {
+                    System.out.println("Credited accounts " + (firstChunk * run.chunkSize() + 1) + "-" + endChunk * run.chunkSize()
+                            + " (" + total + " so far)");
+                }
+            } catch (SQLException e) {
+                throw new ChunkFailedException(e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Carries a chunk's SQLException out of the fork/join pool.
+     */
+    private static final class ChunkFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkFailedException(SQLException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: InterestAccrual <run id> <annual rate %>");
+            System.exit(2);
+        }
+        BigDecimal periodRate;
+        try {
+            periodRate = new BigDecimal(args[1]).divide(BigDecimal.valueOf(1200), 10, RoundingMode.HALF_EVEN);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid rate: " + args[1]);
+            System.exit(2);
+            return;
+        }
+        if (periodRate.signum() <= 0) {
+            System.err.println("Rate must be positive.");
+            System.exit(2);
+        }
+        int parallelism = Integer.getInteger("bank.interest.threads",
+                Math.min(Runtime.getRuntime().availableProcessors(), Integer.getInteger("bank.db.pool.max", 10)));
+
+        try {
+            InterestAccrual accrual = new InterestAccrual();
+            InterestDAO.InterestRun run = accrual.interestDAO.startRun(args[0], periodRate, CHUNK_SIZE);
+            if (run.finished()) {
+                System.out.println("Interest run " + run.runId() + " has already finished.");
+                return;
+            }
+            if (run.periodRate().compareTo(periodRate) != 0) {
+                System.err.println("Interest run " + run.runId() + " was started at a period rate of " + run.periodRate().toPlainString()
+                        + "; resuming it at that rate.");
+            }
+
+            long start = System.nanoTime();
+            long credited = accrual.accrue(run, parallelism);
+            InterestDAO.RunTotals totals = accrual.interestDAO.finishRun(run.runId());
+            System.out.printf("Credited %d accounts in %.1f s; run %s has paid %s to %d accounts in total%n",
+                    credited, (System.nanoTime() - start) / 1e9, run.runId(), totals.interest(), totals.accountsCredited());
+        } catch (SQLException e) {
+            System.err.println("Interest run failed (run it again to resume): " + e.getMessage());
+            System.exit(1);
+        } finally {
+            Database.closeConnection();
+        }
+    }
+}
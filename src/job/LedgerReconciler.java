@@ -0,0 +1,172 @@
+package job;
+
+import dao.ReconciliationDAO;
+import database.Database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks every account's stored balance against the signed sum of its transactions and writes the accounts that
+ * differ to reconciliation_drift, under a row in reconciliation_runs.
+ *
+ * Accounts are checked in partitions of bank.reconcile.partitionSize accounts (default 5000) on
+ * bank.reconcile.threads workers (default the lesser of the cores and bank.db.pool.max); each partition is one
+ * consistent snapshot (see {@link ReconciliationDAO}).
+ *
+ * A full run checks every account. An incremental run, the default once a run has finished, checks only the accounts
+ * with transactions added since the last finished run's watermark (the highest transaction ID it saw). It starts
+ * bank.reconcile.idOverlap IDs (default 10000) before the watermark, because a transaction given an ID just below it
+ * may have committed only after that run read its snapshot. Balances changed without any ledger row are only found
+ * by a full run, so schedule one now and then. Accounts opened with a balance through AccountDAO.createAccount have
+ * no opening ledger row and show as drift by that amount.
+ *
+ * Usage: java job.LedgerReconciler [--full]
+ */
+public class LedgerReconciler {
+
+    private static final int PARTITION_SIZE = Integer.getInteger("bank.reconcile.partitionSize", 5000);
+    private static final long ID_OVERLAP = Long.getLong("bank.reconcile.idOverlap", 10_000);
+    // Drifted accounts printed at the end of a run; all of them are in reconciliation_drift
+    private static final int REPORT_LIMIT = 20;
+
+    private final ReconciliationDAO reconciliationDAO;
+
+    public LedgerReconciler() {
+        this(new ReconciliationDAO());
+    }
+
+    public LedgerReconciler(ReconciliationDAO reconciliationDAO) {
+        this.reconciliationDAO = reconciliationDAO;
+    }
+
+    /**
+     * Runs one reconciliation and records it.
+     *
+     * @param full Check every account, even if an earlier run left a watermark.
+     * @return The run's summary.
+     * @throws SQLException if a partition could not be checked; the run is then left unfinished and sets no watermark.
+     */
+    public RunSummary reconcile(boolean full, int threads) throws SQLException {
+        long watermark = full ? -1 : reconciliationDAO.getLastWatermark();
+        boolean incremental = watermark >= 0;
+        long fromTransactionId = incremental ? Math.max(0, watermark - ID_OVERLAP) : 0;
+        long toTransactionId = reconciliationDAO.getMaxTransactionId(); // Read before any snapshot, so every partition sees at least this much
+
+        List<Callable<ReconciliationDAO.PartitionResult>> partitions = incremental
+                ? changedPartitions(fromTransactionId, toTransactionId)
+                : rangePartitions();
+        int runId = reconciliationDAO.startRun(incremental, fromTransactionId, toTransactionId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long checked = 0;
+        long drifted = 0;
+        List<ReconciliationDAO.Drift> sample = new ArrayList<>();
+        try {
+            List<Future<ReconciliationDAO.PartitionResult>> results = new ArrayList<>(partitions.size());
+            for (Callable<ReconciliationDAO.PartitionResult> partition : partitions) {
+                results.add(executor.submit(partition));
+            }
+            // Collected in partition order, so the report lists accounts in ID order
+            for (Future<ReconciliationDAO.PartitionResult> future : results) {
+                ReconciliationDAO.PartitionResult result = future.get();
+                reconciliationDAO.saveDrifts(runId, result.drifts());
+                checked += result.accountsChecked();
+                drifted += result.drifts().size();
+                for (ReconciliationDAO.Drift drift : result.drifts()) {
+                    if (sample.size() < REPORT_LIMIT) {
+                        sample.add(drift);
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("Reconciliation partition failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Reconciliation interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        reconciliationDAO.finishRun(runId, checked, drifted);
+        return new RunSummary(runId, incremental, fromTransactionId, toTransactionId, checked, drifted, sample);
+    }
+
+    private List<Callable<ReconciliationDAO.PartitionResult>> rangePartitions() throws SQLException {
+        List<Callable<ReconciliationDAO.PartitionResult>> partitions = new ArrayList<>();
+        int[] idRange = reconciliationDAO.getAccountIdRange();
+        if (idRange != null) {
+            for (long from = idRange[0]; from <= idRange[1]; from += PARTITION_SIZE) {
+                int fromId = (int) from;
+                int toId = (int) Math.min(from + PARTITION_SIZE - 1, idRange[1]);
+                partitions.add(() -> reconciliationDAO.reconcileRange(fromId, toId));
+            }
+        }
+        return partitions;
+    }
+
+    private List<Callable<ReconciliationDAO.PartitionResult>> changedPartitions(long afterTransactionId, long toTransactionId) throws SQLException {
+        List<Callable<ReconciliationDAO.PartitionResult>> partitions = new ArrayList<>();
+        BitSet changed = reconciliationDAO.findChangedAccounts(afterTransactionId, toTransactionId);
+        List<Integer> accountIds = new ArrayList<>(PARTITION_SIZE);
+        for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+            accountIds.add(id);
+            if (accountIds.size() == PARTITION_SIZE) {
+                List<Integer> partition = accountIds;
+                partitions.add(() -> reconciliationDAO.reconcileAccounts(partition));
+                accountIds = new ArrayList<>(PARTITION_SIZE);
+            }
+        }
+        if (!accountIds.isEmpty()) {
+            List<Integer> partition = accountIds;
+            partitions.add(() -> reconciliationDAO.reconcileAccounts(partition));
+        }
+        return partitions;
+    }
+
+    /**
+     * @param sample The first drifted accounts, by ID; all of them are stored under the run ID.
+     */
+    public record RunSummary(int runId, boolean incremental, long fromTransactionId, long toTransactionId,
+                             long accountsChecked, long accountsDrifted, List<ReconciliationDAO.Drift> sample) {
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 1 || (args.length == 1 && !args[0].equals("--full"))) {
+            System.err.println("Usage: LedgerReconciler [--full]");
+            System.exit(2);
+        }
+        int threads = Integer.getInteger("bank.reconcile.threads",
+                Math.min(Runtime.getRuntime().availableProcessors(), Integer.getInteger("bank.db.pool.max", 10)));
+
+        try {
+            long start = System.nanoTime();
+            RunSummary summary = new LedgerReconciler().reconcile(args.length == 1, threads);
+            System.out.printf("Reconciliation run %d (%s, transactions %d-%d): checked %d accounts in %.1f s, %d drifted%n",
+                    summary.runId(), summary.incremental() ? "incremental" : "full", summary.fromTransactionId() + 1,
+                    summary.toTransactionId(), summary.accountsChecked(), (System.nanoTime() - start) / 1e9, summary.accountsDrifted());
+            for (ReconciliationDAO.Drift drift : summary.sample()) {
+                System.out.println("  account " + drift.accountId() + ": balance " + drift.balance()
+                        + ", ledger " + drift.ledgerTotal() + ", drift " + drift.drift());
+            }
+            if (summary.accountsDrifted() > summary.sample().size()) {
+                System.out.println("  ... see reconciliation_drift for run " + summary.runId());
+            }
+        } catch (SQLException e) {
+            System.err.println("Reconciliation failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            Database.closeConnection();
+        }
+    }
+}
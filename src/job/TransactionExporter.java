@@ -0,0 +1,164 @@
+package job;
+
+import dao.TransactionDAO;
+import database.Database;
+import model.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+
+/**
+ * Exports an account's or a user's full transaction history to a CSV or NDJSON file.
+ * Rows are streamed from {@link TransactionDAO} straight into a buffered file channel,
+ * so heap use stays flat however many transactions there are.
+ *
+ * Usage: java job.TransactionExporter (account|user) &lt;id&gt; (csv|ndjson) &lt;output file&gt;
+ */
+public class TransactionExporter {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public enum Scope {
+        ACCOUNT, USER
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransactionDAO transactionDAO;
+
+    public TransactionExporter() {
+        this(new TransactionDAO());
+    }
+
+    public TransactionExporter(TransactionDAO transactionDAO) {
+        this.transactionDAO = transactionDAO;
+    }
+
+    /**
+     * Writes the history to a temporary file next to the target and moves it into place when complete,
+     * so a failed export never leaves a truncated file behind.
+     *
+     * @return The number of transactions written.
+     */
+    public long export(Scope scope, int id, Format format, Path output) throws IOException, SQLException {
+        Path absolute = output.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".part");
+        long count;
+        try (ChannelWriter writer = new ChannelWriter(FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            if (format == Format.CSV) {
+                writer.write("id,account_id,type,amount,transaction_date,related_account_id\n");
+            }
+            try {
+                count = scope == Scope.ACCOUNT
+                        ? transactionDAO.forEachByAccountId(id, t -> writer.write(format == Format.CSV ? toCsv(t) : toJson(t)))
+                        : transactionDAO.forEachByUserId(id, t -> writer.write(format == Format.CSV ? toCsv(t) : toJson(t)));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } catch (IOException | SQLException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    private static String toCsv(Transaction t) {
+        // No field can contain a comma or quote, so no escaping is needed
+        return t.getId() + "," + t.getAccountId() + "," + t.getType() + "," + t.getAmount() + "," +
+                (t.getTransactionDate() != null ? t.getTransactionDate() : "") + "," +
+                (t.getRelatedAccountId() != null ? t.getRelatedAccountId() : "") + "\n";
+    }
+
+    private static String toJson(Transaction t) {
+        return "{\"id\":" + t.getId() +
+                ",\"accountId\":" + t.getAccountId() +
+                ",\"type\":\"" + t.getType() + "\"" +
+                ",\"amount\":\"" + t.getAmount() + "\"" + // String keeps exact decimal value
+                ",\"transactionDate\":" + (t.getTransactionDate() != null ? "\"" + t.getTransactionDate() + "\"" : "null") +
+                ",\"relatedAccountId\":" + t.getRelatedAccountId() +
+                "}\n";
+    }
+
+    /**
+     * Accumulates text in a direct buffer and writes it to the channel whenever the buffer fills up.
+     */
+    private static class ChannelWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(String text) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            try {
+                if (bytes.length > buffer.remaining()) {
+                    drain();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(bytes));
+                } else {
+                    buffer.put(bytes);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // Lets the error out of the DAO callback
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: TransactionExporter (account|user) <id> (csv|ndjson) <output file>");
+            System.exit(2);
+        }
+        try {
+            Scope scope = Scope.valueOf(args[0].toUpperCase());
+            int id = Integer.parseInt(args[1]);
+            Format format = Format.valueOf(args[2].toUpperCase());
+            Path output = Path.of(args[3]);
+
+            long start = System.nanoTime();
+            long count = new TransactionExporter().export(scope, id, format, output);
+            System.out.printf("Exported %d transactions to %s in %.1f s%n", count, output, (System.nanoTime() - start) / 1e9);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid argument: " + e.getMessage());
+            System.exit(2);
+        } catch (IOException | SQLException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            Database.closeConnection();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package job;
+
+import dao.JournaledAccountDAO;
+import dao.ScheduledTransferDAO;
+import database.Database;
+import model.ScheduledTransfer;
+import util.HierarchicalTimingWheel;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs scheduled transfers and standing orders when they fall due.
+ *
+ * Rather than polling scheduled_transfers every second, the scheduler reads only the schedules due within
+ * a horizon (an hour by default) into a {@link HierarchicalTimingWheel} and reads again once per reload interval;
+ * a 1-second ticker fires what the wheel hands it on virtual threads. After a run, a schedule's next occurrence goes
+ * straight back into the wheel if it falls inside the horizon.
+ *
+ * Occurrences missed while nothing was running are overdue on the first load and run at once, each in turn.
+ * Every run goes through {@link ScheduledTransferDAO#runOccurrence}, which claims the occurrence in the same
+ * transaction as the transfer, so an occurrence runs once even if several schedulers, or a restarted one, fire it.
+ *
+ * Enabled in the app with -Dbank.schedule.enabled=true, or run on its own:
+ * Usage: java job.TransferScheduler
+ * Settings: bank.schedule.horizonMinutes (60), bank.schedule.reloadSeconds (60),
+ * bank.schedule.concurrency (8, transfers running at once; keep it below bank.db.pool.max).
+ */
+public class TransferScheduler implements AutoCloseable {
+
+    private static final long TICK_MILLIS = 1000;
+
+    private static TransferScheduler instance;
+
+    private final ScheduledTransferDAO scheduledTransferDAO;
+    private final long horizonMillis;
+    private final long reloadMillis;
+    private final HierarchicalTimingWheel<Due> wheel;
+    // Occurrences in the wheel or running, by schedule ID, so a reload does not queue them twice
+    private final ConcurrentHashMap<Integer, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore running;
+    private final Thread ticker;
+    private volatile boolean stopped;
+
+    public TransferScheduler(ScheduledTransferDAO scheduledTransferDAO, long horizonMillis, long reloadMillis, int concurrency) {
+        this.scheduledTransferDAO = scheduledTransferDAO;
+        this.horizonMillis = horizonMillis;
+        this.reloadMillis = reloadMillis;
+        this.running = new Semaphore(concurrency);
+        // 64 slots x 3 levels of 1 s: about 3 days, well past any sensible horizon
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 6, 3, System.currentTimeMillis());
+        if (horizonMillis + reloadMillis >= wheel.getSpanMillis()) {
+            throw new IllegalArgumentException("Scheduling horizon must be shorter than " + wheel.getSpanMillis() / 60_000 + " minutes.");
+        }
+        this.ticker = new Thread(this::tickLoop, "transfer-scheduler");
+        this.ticker.setDaemon(true);
+    }
+
+    /**
+     * Starts the scheduler if bank.schedule.enabled is set.
+     *
+     * @return The started instance, or null if scheduling is disabled or cannot be used.
+     */
+    public static synchronized TransferScheduler startFromProperties() {
+        if (!Boolean.getBoolean("bank.schedule.enabled") || instance != null) {
+            return instance;
+        }
+        if (JournaledAccountDAO.getInstance() != null) {
+            // Scheduled runs write balances directly; the journal would only see them at its next balance refresh
+            System.err.println("Scheduled transfers cannot run while the transaction journal is enabled.");
+            return null;
+        }
+        try {
+            instance = new TransferScheduler(new ScheduledTransferDAO(),
+                    TimeUnit.MINUTES.toMillis(Integer.getInteger("bank.schedule.horizonMinutes", 60)),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger("bank.schedule.reloadSeconds", 60)),
+                    Integer.getInteger("bank.schedule.concurrency", 8));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error starting the transfer scheduler: " + e.getMessage());
+            return null;
+        }
+        instance.start();
+        return instance;
+    }
+
+    /**
+     * Stops the running instance, if any; see {@link #close()}.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    public void start() {
+        ticker.start();
+    }
+
+    /**
+     * Queues a schedule created in this process if it is due within the horizon, so it is not late waiting for the next reload.
+     */
+    public void add(ScheduledTransfer schedule) {
+        if (schedule.getNextRunAt() != null
+                && toEpochMillis(schedule.getNextRunAt()) < System.currentTimeMillis() + horizonMillis) {
+            enqueue(schedule.getId(), schedule.getNextRunAt());
+        }
+    }
+
+    /**
+     * @return Occurrences queued or running.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops firing and waits briefly for transfers already running. Occurrences not run stay due in the table.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        ticker.interrupt();
+        try {
+            ticker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Scheduled transfers still running at shutdown; they complete or roll back on their own.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void tickLoop() {
+        long nextReload = 0;
+        while (!stopped) {
+            long now = System.currentTimeMillis();
+            if (now >= nextReload) {
+                reload(now);
+                nextReload = now + reloadMillis;
+            }
+            wheel.advanceTo(now, this::submit);
+            try {
+                Thread.sleep(TICK_MILLIS - System.currentTimeMillis() % TICK_MILLIS);
+            } catch (InterruptedException e) {
+                return; // close()
+            }
+        }
+    }
+
+    // Queues everything due before the horizon (plus one reload interval, so nothing falls between two loads)
+    private void reload(long nowMillis) {
+        LocalDateTime until = toLocalDateTime(nowMillis + horizonMillis + reloadMillis);
+        try {
+            scheduledTransferDAO.forEachDueBefore(until, schedule -> enqueue(schedule.getId(), schedule.getNextRunAt()));
+        } catch (SQLException e) {
+            System.err.println("Error loading scheduled transfers: " + e.getMessage());
+        }
+    }
+
+    private void enqueue(int scheduleId, LocalDateTime dueAt) {
+        LocalDateTime previous = pending.put(scheduleId, dueAt);
+        if (!dueAt.equals(previous)) {
+            wheel.schedule(toEpochMillis(dueAt), new Due(scheduleId, dueAt));
+        }
+    }
+
+    private void submit(Due due) {
+        if (!stopped) {
+            executor.execute(() -> run(due));
+        }
+    }
+
+    private void run(Due due) {
+        ScheduledTransfer after = null;
+        try {
+            running.acquire();
+            try {
+                after = scheduledTransferDAO.runOccurrence(due.scheduleId(), due.dueAt());
+            } finally {
+                running.release();
+            }
+        } catch (SQLException e) {
+            // Left due in the table; the next reload queues it again
+            System.err.println("Error running scheduled transfer " + due.scheduleId() + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.remove(due.scheduleId(), due.dueAt());
+
+        // null: already run elsewhere, cancelled or changed; a reload picks up whatever is due now
+        if (after != null && after.getNextRunAt() != null
+                && toEpochMillis(after.getNextRunAt()) < System.currentTimeMillis() + horizonMillis) {
+            enqueue(after.getId(), after.getNextRunAt());
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private record Due(int scheduleId, LocalDateTime dueAt) {
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.err.println("Usage: TransferScheduler");
+            System.exit(2);
+        }
+        System.setProperty("bank.schedule.enabled", "true");
+        TransferScheduler scheduler = startFromProperties();
+        if (scheduler == null) {
+            Database.closeConnection();
+            System.exit(1);
+        }
+        System.out.println("Running scheduled transfers; stop with Ctrl+C.");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            shutdown();
+            Database.closeConnection();
+        }));
+        try {
+            scheduler.ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package job;
+
+import dao.UserImportDAO;
+import database.Database;
+import model.Money;
+import model.User;
+import util.PasswordUtil;
+import util.Validator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates users and their accounts in bulk from a CSV file, for onboarding another bank's customers.
+ *
+ * The file is streamed: while the password hashing pool (one thread per core for this job) hashes one chunk,
+ * the chunk before it is inserted by a single writer thread with {@link UserImportDAO}, in one transaction that
+ * also records how many input lines are done. Re-running the same import after a crash or a failure skips those
+ * lines and continues with the next chunk. Rejected lines (invalid fields, duplicate or taken usernames) are
+ * appended to &lt;input&gt;.rejects.csv as line number, reason and username, never with the password;
+ * progress is printed after every chunk.
+ *
+ * Input: a header line naming the columns, then one user per line. username and password are required;
+ * role (USER or ADMIN, default USER) and opening_balance (default 0.00) are optional. Fields may be quoted
+ * ("a,b" and "say ""hi""" as in RFC 4180), but a quoted field cannot span lines.
+ *
+ * Usage: java [-Dbank.import.chunkSize=2000] job.UserImporter &lt;users.csv&gt; [&lt;import name&gt;]
+ * (the import name keys the checkpoint; it defaults to the file name)
+ */
+public class UserImporter {
+
+    private static final int CHUNK_SIZE = Integer.getInteger("bank.import.chunkSize", 2000);
+    // Chunks hashed or waiting for the writer at once; bounds memory when the database is the bottleneck
+    private static final int CHUNKS_IN_FLIGHT = 3;
+    private static final int MAX_USERNAME_LENGTH = 50; // users.username VARCHAR(50)
+
+    private final UserImportDAO importDAO;
+
+    public UserImporter() {
+        this(new UserImportDAO());
+    }
+
+    public UserImporter(UserImportDAO importDAO) {
+        this.importDAO = importDAO;
+    }
+
+    /**
+     * Imports the file, resuming after the lines a previous run with the same name already imported.
+     *
+     * @return Counts for this run.
+     */
+    public Result importUsers(Path input, String source) throws IOException, SQLException {
+        long resumeAfter = importDAO.readCheckpoint(source);
+        Path rejectsFile = input.toAbsolutePath().resolveSibling(input.getFileName() + ".rejects.csv");
+        boolean newRejectsFile = !Files.exists(rejectsFile);
+        Result result = new Result();
+        long start = System.nanoTime();
+
+        ExecutorService writer = Executors.newSingleThreadExecutor(r -> new Thread(r, "user-import-writer"));
+        Semaphore inFlight = new Semaphore(CHUNKS_IN_FLIGHT);
+        CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newRejectsFile) {
+                rejects.write("line,reason,username\n");
+            }
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new IOException("Input file is empty");
+            }
+            Map<String, Integer> columns = parseHeader(headerLine);
+            long lineNumber = 1;
+            if (resumeAfter > 1) {
+                System.out.println("Resuming " + source + " after line " + resumeAfter + ".");
+            }
+            while (lineNumber < resumeAfter && reader.readLine() != null) {
+                lineNumber++;
+            }
+
+            Set<String> seen = new HashSet<>(); // Usernames in this run, lower-cased like the column's collation
+            Chunk chunk = new Chunk();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    chunk.rows.add(parseLine(lineNumber, line, columns, seen));
+                } catch (IllegalArgumentException e) {
+                    chunk.reject(lineNumber, e.getMessage(), usernameOf(line, columns));
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    chunk.lastLine = lineNumber;
+                    pending = submit(pending, chunk, source, rejects, result, inFlight, writer, start);
+                    chunk = new Chunk();
+                }
+                if (pending.isCompletedExceptionally()) {
+                    break; // A chunk failed; the rest is imported by the next run
+                }
+            }
+            if (!pending.isCompletedExceptionally()) {
+                chunk.lastLine = lineNumber; // Also covers trailing blank lines
+                pending = submit(pending, chunk, source, rejects, result, inFlight, writer, start);
+            }
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw e;
+        } finally {
+            writer.shutdown();
+        }
+        return result;
+    }
+
+    // Queues the chunk for the writer thread, after the chunks before it; its passwords start hashing right away
+    private CompletableFuture<Void> submit(CompletableFuture<Void> previous, Chunk chunk, String source, BufferedWriter rejects,
+                                           Result result, Semaphore inFlight, ExecutorService writer, long start) {
+        inFlight.acquireUninterruptibly();
+        chunk.startHashing();
+        CompletableFuture<Void> next = previous.thenRunAsync(() -> {
+            try {
+                write(chunk, source, rejects, result, start);
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, writer);
+        next.whenComplete((ignored, error) -> inFlight.release());
+        return next;
+    }
+
+    private void write(Chunk chunk, String source, BufferedWriter rejects, Result result, long start) throws IOException, SQLException {
+        List<User> users = new ArrayList<>(chunk.rows.size());
+        List<Money> balances = new ArrayList<>(chunk.rows.size());
+        Map<User, Long> lineOf = new HashMap<>();
+        for (Row row : chunk.rows) {
+            try {
+                row.user.setPassword(row.hash.join());
+            } catch (CompletionException e) {
+                chunk.reject(row.lineNumber, "password could not be hashed: " + e.getCause().getMessage(), row.user.getUsername());
+                continue;
+            }
+            users.add(row.user);
+            balances.add(row.openingBalance);
+            lineOf.put(row.user, row.lineNumber);
+        }
+
+        UserImportDAO.ImportedChunk imported = importDAO.importChunk(source, users, balances, chunk.lastLine);
+        for (User skipped : imported.skipped()) {
+            chunk.reject(lineOf.get(skipped), "username already exists", skipped.getUsername());
+        }
+
+        for (String reject : chunk.rejects) {
+            rejects.write(reject);
+        }
+        rejects.flush();
+        result.usersCreated.addAndGet(imported.created().size());
+        result.linesRejected.addAndGet(chunk.rejects.size());
+        result.lastLine = chunk.lastLine;
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Line %d: %d users created, %d lines rejected (%.0f users/s)%n",
+                chunk.lastLine, result.usersCreated.get(), result.linesRejected.get(), result.usersCreated.get() / Math.max(seconds, 1e-3));
+    }
+
+    private static Map<String, Integer> parseHeader(String headerLine) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseCsvLine(headerLine);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("password")) {
+            throw new IllegalArgumentException("Header must name at least the username and password columns");
+        }
+        return columns;
+    }
+
+    private static Row parseLine(long lineNumber, String line, Map<String, Integer> columns, Set<String> seen) {
+        List<String> fields = parseCsvLine(line);
+        String username = field(fields, columns, "username");
+        String password = field(fields, columns, "password");
+        String role = field(fields, columns, "role");
+        String openingBalance = field(fields, columns, "opening_balance");
+
+        if (username == null || !Validator.isValidUsername(username) || username.length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("invalid username");
+        }
+        if (!Validator.isValidPassword(password)) {
+            throw new IllegalArgumentException("password too short");
+        }
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        try {
+            user.setRole(role == null || role.isBlank() ? User.Role.USER : User.Role.valueOf(role.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid role");
+        }
+        Money balance;
+        try {
+            balance = openingBalance == null || openingBalance.isBlank() ? Money.ZERO : Money.parse(openingBalance.trim());
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("invalid opening balance");
+        }
+        if (balance.isNegative()) {
+            throw new IllegalArgumentException("negative opening balance");
+        }
+        if (!seen.add(username.toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("duplicate username in file");
+        }
+        return new Row(lineNumber, user, balance);
+    }
+
+    // For the rejects file: the line's username if it can be told, otherwise empty
+    private static String usernameOf(String line, Map<String, Integer> columns) {
+        try {
+            String username = field(parseCsvLine(line), columns, "username");
+            return username != null ? username : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    /**
+     * Splits one CSV line into fields; a field in double quotes may contain commas and "" for a quote.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String rejectLine(long lineNumber, String reason, String username) {
+        return lineNumber + "," + reason + ",\"" + username.replace("\"", "\"\"") + "\"\n";
+    }
+
+    private static final class Row {
+        final long lineNumber;
+        final User user;
+        final Money openingBalance;
+        CompletableFuture<String> hash;
+
+        Row(long lineNumber, User user, Money openingBalance) {
+            this.lineNumber = lineNumber;
+            this.user = user;
+            this.openingBalance = openingBalance;
+        }
+    }
+
+    private static final class Chunk {
+        final List<Row> rows = new ArrayList<>();
+        final List<String> rejects = new ArrayList<>();
+        long lastLine;
+
+        void reject(long lineNumber, String reason, String username) {
+            rejects.add(rejectLine(lineNumber, reason, username));
+        }
+
+        int size() {
+            return rows.size() + rejects.size();
+        }
+
+        // Blocks while the hashing pool's queue is full, which keeps the reader from running ahead
+        void startHashing() {
+            for (Row row : rows) {
+                row.hash = PasswordUtil.hashPasswordAsync(row.user.getPassword());
+            }
+        }
+    }
+
+    /**
+     * Counts for one run of an import.
+     */
+    public static final class Result {
+        private final AtomicLong usersCreated = new AtomicLong();
+        private final AtomicLong linesRejected = new AtomicLong();
+        private volatile long lastLine;
+
+        public long getUsersCreated() {
+            return usersCreated.get();
+        }
+
+        public long getLinesRejected() {
+            return linesRejected.get();
+        }
+
+        public long getLastLine() {
+            return lastLine;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: UserImporter <users.csv> [<import name>]");
+            System.exit(2);
+        }
+        // Nothing else runs in this process, so hashing may use every core (must be set before PasswordUtil loads)
+        if (System.getProperty("bank.password.threads") == null) {
+            System.setProperty("bank.password.threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        }
+        try {
+            Path input = Path.of(args[0]);
+            String source = args.length > 1 ? args[1] : input.getFileName().toString();
+
+            long start = System.nanoTime();
+            Result result = new UserImporter().importUsers(input, source);
+            System.out.printf("Imported %d users (%d lines rejected) from %s in %.1f s%n",
+                    result.getUsersCreated(), result.getLinesRejected(), input, (System.nanoTime() - start) / 1e9);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid input: " + e.getMessage());
+            System.exit(2);
+        } catch (IOException | SQLException e) {
+            System.err.println("Import failed: " + e.getMessage() + " (run it again to resume)");
+            System.exit(1);
+        } finally {
+            Database.closeConnection();
+        }
+    }
+}
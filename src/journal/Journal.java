@@ -0,0 +1,336 @@
+package journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only, memory-mapped write-ahead journal of {@link JournalRecord}s, split into fixed-size segment files
+ * named after the sequence number of their first record (segment-00000000000000000001.journal, ...).
+ *
+ * An append is a copy into the mapped segment plus, with syncOnAppend, an msync of the touched pages,
+ * so it is acknowledged at local disk latency whatever the database is doing. The records of one operation
+ * (the two sides of a transfer) are appended together, never split across segments, and either all survive
+ * a crash or none do. Opening a journal scans it and cuts it back to the last complete operation.
+ *
+ * Thread-safe; appends are serialized.
+ */
+public class Journal implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final boolean syncOnAppend;
+    // A lock rather than synchronized: appends come from virtual threads, which must not pin their carrier while msync runs
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Segment> segments = new ArrayList<>(); // Oldest first; appends go to the last one
+    private long nextSequence;
+    private volatile long lastSequence; // Highest sequence whose whole operation has been written
+
+    private Journal(Path directory, int segmentBytes, boolean syncOnAppend) {
+        this.directory = directory;
+        this.recordsPerSegment = Math.max(2, segmentBytes / JournalRecord.SIZE);
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    /**
+     * Opens (or creates) the journal in a directory and recovers it after a crash.
+     *
+     * @param segmentBytes   Size of new segment files; existing segments keep their size.
+     * @param syncOnAppend   true to msync every append before it returns (durable against power loss,
+     *                       not just against the process dying).
+     * @param firstSequence  The lowest sequence number new records may use: one past the last sequence the database
+     *                       has applied, so a journal directory that was lost or wiped never reuses sequence numbers.
+     */
+    public static Journal open(Path directory, int segmentBytes, boolean syncOnAppend, long firstSequence) throws IOException {
+        Files.createDirectories(directory);
+        Journal journal = new Journal(directory, segmentBytes, syncOnAppend);
+        journal.recover(Math.max(1, firstSequence));
+        return journal;
+    }
+
+    private void recover(long firstSequence) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null); // Zero-padded names sort in sequence order
+
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            long segmentFirst = parseFirstSequence(file);
+            boolean contiguous = segments.isEmpty() || segmentFirst == segments.get(segments.size() - 1).nextSequence();
+            if (!contiguous) {
+                setAside(files.subList(i, files.size()), "it does not follow on from the previous segment");
+                break;
+            }
+            Segment segment = Segment.open(file, segmentFirst, (int) (Files.size(file) / JournalRecord.SIZE));
+            segment.scan();
+            // A segment may end short of its capacity: appends rotate early rather than split an operation
+            segments.add(segment);
+        }
+
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).dropIncompleteOperation();
+        }
+        nextSequence = segments.isEmpty() ? firstSequence : segments.get(segments.size() - 1).nextSequence();
+
+        if (nextSequence < firstSequence) {
+            // Everything left here is already applied, and the sequence numbers after it are taken
+            System.err.println("Journal in " + directory + " ends at sequence " + (nextSequence - 1) +
+                    " but sequences up to " + (firstSequence - 1) + " are applied; starting a new segment.");
+            for (Segment segment : segments) {
+                segment.delete();
+            }
+            segments.clear();
+            nextSequence = firstSequence;
+        }
+        if (segments.isEmpty() || segments.get(segments.size() - 1).count == segments.get(segments.size() - 1).capacity) {
+            segments.add(Segment.create(directory, nextSequence, recordsPerSegment));
+            syncDirectory();
+        }
+        lastSequence = nextSequence - 1;
+    }
+
+    /**
+     * Appends the records of one operation, in order, as a unit.
+     *
+     * @param records Records built with {@link JournalRecord#of}; their sequence numbers are assigned here.
+     * @return The sequence number of the last record appended.
+     * @throws IOException if the journal could not be written; nothing is appended then.
+     */
+    public long append(List<JournalRecord> records) throws IOException {
+        if (records.isEmpty() || records.size() > recordsPerSegment) {
+            throw new IllegalArgumentException("Cannot append " + records.size() + " records as one operation");
+        }
+        lock.lock();
+        try {
+            Segment active = segments.get(segments.size() - 1);
+            if (active.count + records.size() > active.capacity) {
+                active.buffer.force();
+                active = Segment.create(directory, nextSequence, recordsPerSegment);
+                segments.add(active);
+                syncDirectory();
+            }
+
+            int offset = active.count * JournalRecord.SIZE;
+            int length = records.size() * JournalRecord.SIZE;
+            for (int i = 0; i < records.size(); i++) {
+                records.get(i).withSequence(nextSequence + i, i < records.size() - 1)
+                        .writeTo(active.buffer, offset + i * JournalRecord.SIZE);
+            }
+            if (syncOnAppend) {
+                try {
+                    active.buffer.force(offset, length);
+                } catch (UncheckedIOException e) {
+                    // The caller reports the operation as failed, so it must not come back on replay
+                    active.wipe(offset, length);
+                    throw e.getCause();
+                }
+            }
+            active.count += records.size();
+            nextSequence += records.size();
+            lastSequence = nextSequence - 1; // Publishes the records to readers
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads records in sequence order, starting right after a given sequence.
+     * Never ends in the middle of an operation, so it may return a few more than maxRecords.
+     *
+     * @return Up to about maxRecords records (empty if there is nothing new).
+     * @throws IllegalStateException if records after afterSequence were already deleted or are unreadable.
+     */
+    public List<JournalRecord> read(long afterSequence, int maxRecords) {
+        lock.lock();
+        try {
+            return readLocked(afterSequence, maxRecords);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<JournalRecord> readLocked(long afterSequence, int maxRecords) {
+        List<JournalRecord> records = new ArrayList<>();
+        long sequence = afterSequence + 1;
+        for (Segment segment : segments) {
+            if (sequence >= segment.nextSequence()) {
+                continue;
+            }
+            if (sequence < segment.firstSequence) {
+                throw new IllegalStateException("Journal records from " + sequence + " to " + (segment.firstSequence - 1) + " are missing");
+            }
+            while (sequence < segment.nextSequence()) {
+                boolean midOperation = !records.isEmpty() && records.get(records.size() - 1).continued();
+                if (records.size() >= maxRecords && !midOperation) {
+                    return records;
+                }
+                JournalRecord record = JournalRecord.readFrom(segment.buffer, (int) (sequence - segment.firstSequence) * JournalRecord.SIZE);
+                if (record == null || record.sequence() != sequence) {
+                    throw new IllegalStateException("Journal record " + sequence + " in " + segment.path + " is unreadable");
+                }
+                records.add(record);
+                sequence++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Deletes segments whose records have all been applied. The segment being appended to is always kept.
+     *
+     * @return The number of segment files deleted.
+     */
+    public int deleteAppliedSegments(long appliedSequence) throws IOException {
+        lock.lock();
+        try {
+            int deleted = 0;
+            while (segments.size() > 1 && segments.get(0).nextSequence() - 1 <= appliedSequence) {
+                segments.remove(0).delete();
+                deleted++;
+            }
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The sequence number of the last complete operation appended (0 if none yet).
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setAside(List<Path> files, String reason) throws IOException {
+        for (Path file : files) {
+            Path corrupt = file.resolveSibling(file.getFileName() + ".corrupt");
+            System.err.println("Setting journal segment " + file + " aside as " + corrupt.getFileName() + ": " + reason + ".");
+            Files.move(file, corrupt, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Makes a new segment's directory entry durable; best effort, not every platform can open a directory
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Ignore: the file contents are still synced
+        }
+    }
+
+    private static long parseFirstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * One segment file, mapped in full.
+     */
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final int capacity; // In records
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int count; // Records written
+
+        private Segment(Path path, long firstSequence, int capacity, FileChannel channel) throws IOException {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.capacity = capacity;
+            this.channel = channel;
+            // Mapping past the end grows the file; the new space reads as zeros, i.e. "never written"
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * JournalRecord.SIZE);
+        }
+
+        static Segment create(Path directory, long firstSequence, int capacity) throws IOException {
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+            return new Segment(path, firstSequence, capacity,
+                    FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        static Segment open(Path path, long firstSequence, int capacity) throws IOException {
+            return new Segment(path, firstSequence, capacity,
+                    FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        long nextSequence() {
+            return firstSequence + count;
+        }
+
+        // Counts the valid records at the start of the segment
+        void scan() {
+            count = 0;
+            while (count < capacity) {
+                JournalRecord record = JournalRecord.readFrom(buffer, count * JournalRecord.SIZE);
+                if (record == null || record.sequence() != firstSequence + count) {
+                    break;
+                }
+                count++;
+            }
+        }
+
+        // Cuts off the records of an operation whose last record was never written, and wipes them
+        void dropIncompleteOperation() {
+            int end = count;
+            while (count > 0 && JournalRecord.readFrom(buffer, (count - 1) * JournalRecord.SIZE).continued()) {
+                count--;
+            }
+            int from = count * JournalRecord.SIZE;
+            wipe(from, Math.min(end + 1, capacity) * JournalRecord.SIZE - from);
+            buffer.force();
+        }
+
+        void wipe(int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        void delete() throws IOException {
+            channel.close(); // The mapping itself is released when the buffer is garbage collected
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package journal;
+
+import model.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One money movement in the journal, stored as a fixed-width 40-byte record:
+ * <pre>
+ *  0  long  sequence           (1, 2, 3, ... in append order; 0 marks never-written space)
+ *  8  int   account_id
+ * 12  int   related_account_id (0 = none)
+ * 16  long  amount in cents
+ * 24  long  timestamp, epoch milliseconds
+ * 32  byte  transaction type ordinal
+ * 33  byte  flags              (bit 0: the next record belongs to the same operation)
+ * 34  short reserved, 0
+ * 36  int   CRC32 of bytes 0-35 (detects a record torn by a crash)
+ * </pre>
+ */
+public record JournalRecord(long sequence, int accountId, Transaction.TransactionType type, long amountCents,
+                            long timestampMillis, int relatedAccountId, boolean continued) {
+
+    public static final int SIZE = 40;
+
+    private static final int CHECKSUMMED_BYTES = 36;
+    private static final byte FLAG_CONTINUED = 1;
+    private static final Transaction.TransactionType[] TYPES = Transaction.TransactionType.values();
+
+    /**
+     * A record to append; the journal assigns its sequence number.
+     *
+     * @param relatedAccountId The other side of a transfer, or null.
+     */
+    public static JournalRecord of(int accountId, Transaction.TransactionType type, long amountCents,
+                                   long timestampMillis, Integer relatedAccountId) {
+        return new JournalRecord(0, accountId, type, amountCents, timestampMillis,
+                relatedAccountId != null ? relatedAccountId : 0, false);
+    }
+
+    /**
+     * @return The related account ID, or null if there is none.
+     */
+    public Integer relatedAccountIdOrNull() {
+        return relatedAccountId != 0 ? relatedAccountId : null;
+    }
+
+    JournalRecord withSequence(long sequence, boolean continued) {
+        return new JournalRecord(sequence, accountId, type, amountCents, timestampMillis, relatedAccountId, continued);
+    }
+
+    void writeTo(ByteBuffer buffer, int offset) {
+        buffer.putLong(offset, sequence);
+        buffer.putInt(offset + 8, accountId);
+        buffer.putInt(offset + 12, relatedAccountId);
+        buffer.putLong(offset + 16, amountCents);
+        buffer.putLong(offset + 24, timestampMillis);
+        buffer.put(offset + 32, (byte) type.ordinal());
+        buffer.put(offset + 33, continued ? FLAG_CONTINUED : 0);
+        buffer.putShort(offset + 34, (short) 0);
+        buffer.putInt(offset + 36, checksum(buffer, offset));
+    }
+
+    /**
+     * @return The record at the offset, or null if the space was never written or the record is torn.
+     */
+    static JournalRecord readFrom(ByteBuffer buffer, int offset) {
+        long sequence = buffer.getLong(offset);
+        if (sequence == 0 || buffer.getInt(offset + 36) != checksum(buffer, offset)) {
+            return null;
+        }
+        int typeOrdinal = buffer.get(offset + 32);
+        if (typeOrdinal < 0 || typeOrdinal >= TYPES.length) {
+            return null;
+        }
+        return new JournalRecord(sequence, buffer.getInt(offset + 8), TYPES[typeOrdinal], buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24), buffer.getInt(offset + 12), (buffer.get(offset + 33) & FLAG_CONTINUED) != 0);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, CHECKSUMMED_BYTES));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,69 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of per-operation metrics, published over JMX as "bank:type=Metrics" when first used.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    public static final String OBJECT_NAME = "bank:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException | SecurityException e) {
+            // Metrics are still collected, just not visible over JMX
+            System.err.println("Could not register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the metrics for the named operation, creating them on first use.
+     * Callers normally keep the result in a static final field.
+     */
+    public static OperationMetrics operation(String name) {
+        return INSTANCE.operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public List<OperationSnapshot> getOperations() {
+        return snapshots(false);
+    }
+
+    @Override
+    public List<OperationSnapshot> snapshotAndReset() {
+        return snapshots(true);
+    }
+
+    @Override
+    public void reset() {
+        snapshots(true);
+    }
+
+    private List<OperationSnapshot> snapshots(boolean reset) {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (OperationMetrics metrics : operations.values()) {
+            snapshots.add(metrics.snapshot(reset));
+        }
+        snapshots.sort(Comparator.comparing(OperationSnapshot::getName));
+        return snapshots;
+    }
+}
@@ -0,0 +1,22 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the application's operation metrics, registered as "bank:type=Metrics".
+ * Browse it with JConsole or VisualVM, or read it with any JMX client.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return Statistics for every operation since its last reset, sorted by name.
+     */
+    List<OperationSnapshot> getOperations();
+
+    /**
+     * Returns the current statistics and starts a new interval, so periodic collectors get per-interval percentiles.
+     */
+    List<OperationSnapshot> snapshotAndReset();
+
+    void reset();
+}
@@ -0,0 +1,62 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters for one named operation (e.g. "account.deposit").
+ * Obtain instances from {@link Metrics#operation(String)}; they are shared and thread-safe.
+ *
+ * Typical use:
+ * <pre>
+ * long start = System.nanoTime();
+ * boolean ok = ...;
+ * DEPOSIT_METRICS.record(start, ok);
+ * </pre>
+ */
+public class OperationMetrics {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder insufficientFunds = new LongAdder();
+    private volatile long intervalStartMillis = System.currentTimeMillis();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one completed call.
+     *
+     * @param startNanos The System.nanoTime() taken when the call started.
+     * @param success    Whether the call succeeded.
+     */
+    public void record(long startNanos, boolean success) {
+        latency.record(System.nanoTime() - startNanos);
+        (success ? successes : failures).increment();
+    }
+
+    /**
+     * Counts a call rejected for insufficient funds. The call is still recorded as a failure by {@link #record}.
+     */
+    public void insufficientFunds() {
+        insufficientFunds.increment();
+    }
+
+    OperationSnapshot snapshot(boolean reset) {
+        long since = intervalStartMillis;
+        LatencyHistogram.Snapshot histogram = latency.snapshot(reset);
+        long ok = reset ? successes.sumThenReset() : successes.sum();
+        long failed = reset ? failures.sumThenReset() : failures.sum();
+        long rejected = reset ? insufficientFunds.sumThenReset() : insufficientFunds.sum();
+        if (reset) {
+            intervalStartMillis = System.currentTimeMillis();
+        }
+        return new OperationSnapshot(name, since, ok, failed, rejected, histogram);
+    }
+}
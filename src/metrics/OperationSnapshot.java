@@ -0,0 +1,94 @@
+package metrics;
+
+/**
+ * Point-in-time statistics for one operation, as returned over JMX (each getter becomes a CompositeData item).
+ * Latencies are in microseconds.
+ */
+public class OperationSnapshot {
+    private final String name;
+    private final long sinceEpochMillis;
+    private final long successes;
+    private final long failures;
+    private final long insufficientFunds;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    OperationSnapshot(String name, long sinceEpochMillis, long successes, long failures, long insufficientFunds,
+                      LatencyHistogram.Snapshot latency) {
+        this.name = name;
+        this.sinceEpochMillis = sinceEpochMillis;
+        this.successes = successes;
+        this.failures = failures;
+        this.insufficientFunds = insufficientFunds;
+        this.meanMicros = latency.getMeanNanos() / 1000.0;
+        this.p50Micros = latency.getValueAtPercentile(50) / 1000.0;
+        this.p90Micros = latency.getValueAtPercentile(90) / 1000.0;
+        this.p99Micros = latency.getValueAtPercentile(99) / 1000.0;
+        this.p999Micros = latency.getValueAtPercentile(99.9) / 1000.0;
+        this.maxMicros = latency.getMaxNanos() / 1000.0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return When the counters were last reset (or created), in epoch milliseconds.
+     */
+    public long getSinceEpochMillis() {
+        return sinceEpochMillis;
+    }
+
+    public long getCalls() {
+        return successes + failures;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return Calls that returned false/null, including the insufficient-funds rejections.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getInsufficientFunds() {
+        return insufficientFunds;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP90Micros() {
+        return p90Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{calls=%d, failures=%d, insufficientFunds=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, p999=%.1fus, max=%.1fus}",
+                name, getCalls(), failures, insufficientFunds, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
@@ -1,25 +1,24 @@
 package model;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime; // Or java.sql.Timestamp
 
 public class Account {
     private int id;
     private int userId;
-    private BigDecimal balance;
+    private Money balance;
     private LocalDateTime createdAt;
 
     // Constructors
     public Account() {}
 
-    public Account(int id, int userId, BigDecimal balance, LocalDateTime createdAt) {
+    public Account(int id, int userId, Money balance, LocalDateTime createdAt) {
         this.id = id;
         this.userId = userId;
         this.balance = balance;
         this.createdAt = createdAt;
     }
 
-    public Account(int userId, BigDecimal balance) {
+    public Account(int userId, Money balance) {
         this.userId = userId;
         this.balance = balance;
     }
@@ -42,11 +41,11 @@ public class Account {
         this.userId = userId;
     }
 
-    public BigDecimal getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
-    public void setBalance(BigDecimal balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
 
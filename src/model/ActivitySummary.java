@@ -0,0 +1,143 @@
+package model;
+
+import java.time.LocalDate;
+
+/**
+ * Totals of an account's transactions by type over a range of days (a single day for daily rollups).
+ */
+public class ActivitySummary {
+    private int accountId;
+    private LocalDate fromDay;
+    private LocalDate toDay; // Inclusive
+    private Money deposits = Money.ZERO;
+    private int depositCount;
+    private Money withdrawals = Money.ZERO;
+    private int withdrawalCount;
+    private Money transfersIn = Money.ZERO;
+    private int transferInCount;
+    private Money transfersOut = Money.ZERO;
+    private int transferOutCount;
+
+    // Constructors
+    public ActivitySummary() {}
+
+    public ActivitySummary(int accountId, LocalDate fromDay, LocalDate toDay) {
+        this.accountId = accountId;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+    }
+
+    /**
+     * @return Money in minus money out over the period.
+     */
+    public Money getNetChange() {
+        return deposits.plus(transfersIn).minus(withdrawals).minus(transfersOut);
+    }
+
+    public int getTransactionCount() {
+        return depositCount + withdrawalCount + transferInCount + transferOutCount;
+    }
+
+
+    // Getters and Setters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public LocalDate getFromDay() {
+        return fromDay;
+    }
+
+    public void setFromDay(LocalDate fromDay) {
+        this.fromDay = fromDay;
+    }
+
+    public LocalDate getToDay() {
+        return toDay;
+    }
+
+    public void setToDay(LocalDate toDay) {
+        this.toDay = toDay;
+    }
+
+    public Money getDeposits() {
+        return deposits;
+    }
+
+    public void setDeposits(Money deposits) {
+        this.deposits = deposits;
+    }
+
+    public int getDepositCount() {
+        return depositCount;
+    }
+
+    public void setDepositCount(int depositCount) {
+        this.depositCount = depositCount;
+    }
+
+    public Money getWithdrawals() {
+        return withdrawals;
+    }
+
+    public void setWithdrawals(Money withdrawals) {
+        this.withdrawals = withdrawals;
+    }
+
+    public int getWithdrawalCount() {
+        return withdrawalCount;
+    }
+
+    public void setWithdrawalCount(int withdrawalCount) {
+        this.withdrawalCount = withdrawalCount;
+    }
+
+    public Money getTransfersIn() {
+        return transfersIn;
+    }
+
+    public void setTransfersIn(Money transfersIn) {
+        this.transfersIn = transfersIn;
+    }
+
+    public int getTransferInCount() {
+        return transferInCount;
+    }
+
+    public void setTransferInCount(int transferInCount) {
+        this.transferInCount = transferInCount;
+    }
+
+    public Money getTransfersOut() {
+        return transfersOut;
+    }
+
+    public void setTransfersOut(Money transfersOut) {
+        this.transfersOut = transfersOut;
+    }
+
+    public int getTransferOutCount() {
+        return transferOutCount;
+    }
+
+    public void setTransferOutCount(int transferOutCount) {
+        this.transferOutCount = transferOutCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ActivitySummary{" +
+                "accountId=" + accountId +
+                ", fromDay=" + fromDay +
+                ", toDay=" + toDay +
+                ", deposits=" + deposits + " (" + depositCount + ")" +
+                ", withdrawals=" + withdrawals + " (" + withdrawalCount + ")" +
+                ", transfersIn=" + transfersIn + " (" + transferInCount + ")" +
+                ", transfersOut=" + transfersOut + " (" + transferOutCount + ")" +
+                '}';
+    }
+}
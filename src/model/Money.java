@@ -0,0 +1,109 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of money held as a whole number of cents (minor units) in a long.
+ *
+ * Comparisons and sign checks are plain long comparisons, and {@link #getCents()} lets hot paths do their
+ * arithmetic on primitives with no allocation at all. Arithmetic is overflow-checked: a result outside the
+ * long range throws ArithmeticException instead of wrapping around.
+ * BigDecimal is only used at the edges, for DECIMAL(15,2) columns and for parsing user input.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * @param amount An amount with at most two decimal places, e.g. a DECIMAL(15,2) column value.
+     * @throws ArithmeticException if the amount has more than two decimal places or does not fit in a long of cents.
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses user input such as "12", "12.5" or "12.50".
+     *
+     * @throws NumberFormatException if the text is not a number, has more than two decimal places or is out of range.
+     */
+    public static Money parse(String text) {
+        try {
+            return of(new BigDecimal(text.trim()));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Not a valid amount of money: " + text);
+        }
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return cents < other.cents;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && cents == other.cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * @return The amount with exactly two decimal places and no grouping, e.g. "-0.05" or "1234.50".
+     */
+    @Override
+    public String toString() {
+        long units = Math.abs(cents / 100);
+        long fraction = Math.abs(cents % 100);
+        return (cents < 0 ? "-" : "") + units + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,162 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A future transfer, either one-off or repeating (a standing order such as monthly rent).
+ * Occurrence n (counting from 0) is due at firstRunAt plus n periods, so a schedule on the 31st
+ * runs on the last day of shorter months without drifting to the 28th afterwards.
+ */
+public class ScheduledTransfer {
+    private int id;
+    private int fromAccountId;
+    private int toAccountId;
+    private Money amount;
+    private Frequency frequency = Frequency.ONCE;
+    private LocalDateTime firstRunAt;
+    private LocalDateTime endAt; // No occurrence after this; null for open-ended
+    private int runsDone;
+    private LocalDateTime nextRunAt; // null once the schedule has finished
+    private LocalDateTime lastRunAt;
+    private String lastStatus;
+
+    public enum Frequency {
+        ONCE, DAILY, WEEKLY, MONTHLY
+    }
+
+    // Constructors
+    public ScheduledTransfer() {}
+
+    public ScheduledTransfer(int fromAccountId, int toAccountId, Money amount, Frequency frequency, LocalDateTime firstRunAt, LocalDateTime endAt) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.frequency = frequency;
+        this.firstRunAt = firstRunAt;
+        this.endAt = endAt;
+        this.nextRunAt = firstRunAt;
+    }
+
+    /**
+     * @param n Occurrence number, from 0.
+     * @return When that occurrence is due, or null if the schedule has no such occurrence.
+     */
+    public LocalDateTime occurrence(int n) {
+        LocalDateTime at = switch (frequency) {
+            case ONCE -> n == 0 ? firstRunAt : null;
+            case DAILY -> firstRunAt.plusDays(n);
+            case WEEKLY -> firstRunAt.plusWeeks(n);
+            case MONTHLY -> firstRunAt.plusMonths(n);
+        };
+        return at == null || (endAt != null && at.isAfter(endAt)) ? null : at;
+    }
+
+    /**
+     * @return When the occurrence after the next one is due, or null if the next one is the last.
+     */
+    public LocalDateTime followingRunAt() {
+        return occurrence(runsDone + 1);
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(int fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public int getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(int toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Money amount) {
+        this.amount = amount;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(Frequency frequency) {
+        this.frequency = frequency;
+    }
+
+    public LocalDateTime getFirstRunAt() {
+        return firstRunAt;
+    }
+
+    public void setFirstRunAt(LocalDateTime firstRunAt) {
+        this.firstRunAt = firstRunAt;
+    }
+
+    public LocalDateTime getEndAt() {
+        return endAt;
+    }
+
+    public void setEndAt(LocalDateTime endAt) {
+        this.endAt = endAt;
+    }
+
+    public int getRunsDone() {
+        return runsDone;
+    }
+
+    public void setRunsDone(int runsDone) {
+        this.runsDone = runsDone;
+    }
+
+    public LocalDateTime getNextRunAt() {
+        return nextRunAt;
+    }
+
+    public void setNextRunAt(LocalDateTime nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+
+    public LocalDateTime getLastRunAt() {
+        return lastRunAt;
+    }
+
+    public void setLastRunAt(LocalDateTime lastRunAt) {
+        this.lastRunAt = lastRunAt;
+    }
+
+    public String getLastStatus() {
+        return lastStatus;
+    }
+
+    public void setLastStatus(String lastStatus) {
+        this.lastStatus = lastStatus;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledTransfer{" +
+                "id=" + id +
+                ", fromAccountId=" + fromAccountId +
+                ", toAccountId=" + toAccountId +
+                ", amount=" + amount +
+                ", frequency=" + frequency +
+                ", nextRunAt=" + nextRunAt +
+                ", runsDone=" + runsDone +
+                '}';
+    }
+}
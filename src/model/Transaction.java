@@ -1,13 +1,12 @@
 package model;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime; // Or java.sql.Timestamp
 
 public class Transaction {
     private int id;
     private int accountId;
     private TransactionType type;
-    private BigDecimal amount;
+    private Money amount;
     private LocalDateTime transactionDate;
     private Integer relatedAccountId; // Use Integer to allow null
 
@@ -19,7 +18,7 @@ public class Transaction {
     // Constructors
     public Transaction() {}
 
-    public Transaction(int id, int accountId, TransactionType type, BigDecimal amount, LocalDateTime transactionDate, Integer relatedAccountId) {
+    public Transaction(int id, int accountId, TransactionType type, Money amount, LocalDateTime transactionDate, Integer relatedAccountId) {
         this.id = id;
         this.accountId = accountId;
         this.type = type;
@@ -28,7 +27,7 @@ public class Transaction {
         this.relatedAccountId = relatedAccountId;
     }
 
-    public Transaction(int accountId, TransactionType type, BigDecimal amount, Integer relatedAccountId) {
+    public Transaction(int accountId, TransactionType type, Money amount, Integer relatedAccountId) {
         this.accountId = accountId;
         this.type = type;
         this.amount = amount;
@@ -62,11 +61,11 @@ public class Transaction {
         this.type = type;
     }
 
-    public BigDecimal getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
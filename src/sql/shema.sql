@@ -34,9 +34,111 @@ CREATE TABLE IF NOT EXISTS transactions (
     FOREIGN KEY (related_account_id) REFERENCES accounts(id) ON DELETE SET NULL -- Keep transaction history even if related account deleted
     );
 
+-- Per-account, per-day totals, kept current by TransactionDAO in the same transaction as each ledger insert,
+-- so statements and period summaries read a few rows instead of scanning transactions.
+-- Existing history: run job.DailyTotalsBackfill once after creating the table.
+CREATE TABLE IF NOT EXISTS daily_account_totals (
+    account_id INT NOT NULL,
+    day DATE NOT NULL,
+    deposits DECIMAL(17, 2) NOT NULL DEFAULT 0.00, -- Two more digits than amount: a day's sum can exceed one amount
+    deposit_count INT NOT NULL DEFAULT 0,
+    withdrawals DECIMAL(17, 2) NOT NULL DEFAULT 0.00,
+    withdrawal_count INT NOT NULL DEFAULT 0,
+    transfers_in DECIMAL(17, 2) NOT NULL DEFAULT 0.00,
+    transfer_in_count INT NOT NULL DEFAULT 0,
+    transfers_out DECIMAL(17, 2) NOT NULL DEFAULT 0.00,
+    transfer_out_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, day), -- Range summaries read one contiguous slice of the clustered index
+    INDEX idx_daily_totals_day (day), -- Lets the backfill replace one day at a time
+    FOREIGN KEY (account_id) REFERENCES accounts(id) ON DELETE CASCADE
+    );
+
+-- How far each local write-ahead journal (see dao.JournalReplayer) has been applied.
+-- Advanced in the same transaction as the rows it applies, so a replay after a crash never applies a record twice.
+CREATE TABLE IF NOT EXISTS journal_checkpoint (
+    journal_id VARCHAR(100) PRIMARY KEY,
+    applied_sequence BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    );
+
+-- Progress of each bulk user import (job.UserImporter), advanced in the same transaction as the chunk it covers.
+CREATE TABLE IF NOT EXISTS import_checkpoint (
+    source VARCHAR(255) PRIMARY KEY,
+    lines_done BIGINT NOT NULL DEFAULT 0,
+    users_created BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    );
+
+-- One-off future transfers and standing orders, run by job.TransferScheduler.
+-- Times are local wall-clock times (DATETIME), so "09:00 on the 1st" stays 09:00 across DST changes.
+CREATE TABLE IF NOT EXISTS scheduled_transfers (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    from_account_id INT NOT NULL,
+    to_account_id INT NOT NULL,
+    amount DECIMAL(15, 2) NOT NULL,
+    frequency ENUM('ONCE', 'DAILY', 'WEEKLY', 'MONTHLY') NOT NULL DEFAULT 'ONCE',
+    first_run_at DATETIME NOT NULL,
+    end_at DATETIME NULL, -- No occurrence after this; NULL = open-ended
+    runs_done INT NOT NULL DEFAULT 0,
+    next_run_at DATETIME NULL, -- NULL once finished; advanced in the same transaction as the transfer it runs
+    last_run_at DATETIME NULL,
+    last_status VARCHAR(20) NULL, -- AccountDAO.TransferStatus of the last occurrence
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_scheduled_next_run (next_run_at), -- The scheduler loads the next horizon as a range scan
+    FOREIGN KEY (from_account_id) REFERENCES accounts(id) ON DELETE CASCADE,
+    FOREIGN KEY (to_account_id) REFERENCES accounts(id) ON DELETE CASCADE
+    );
+
+-- Interest runs (job.InterestAccrual): the rate and chunking are fixed when a run starts, so a restart repeats them exactly.
+CREATE TABLE IF NOT EXISTS interest_runs (
+    run_id VARCHAR(64) PRIMARY KEY, -- e.g. "2026-10"
+    period_rate DECIMAL(12, 10) NOT NULL, -- Credited per run: balance * period_rate, rounded to the cent
+    chunk_size INT NOT NULL, -- Account IDs per chunk
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP NULL
+    );
+
+-- One row per chunk of account IDs a run has credited, inserted in the same transaction as the credits.
+-- The primary key makes a chunk impossible to credit twice, across restarts and concurrent runs alike.
+CREATE TABLE IF NOT EXISTS interest_run_chunks (
+    run_id VARCHAR(64) NOT NULL,
+    chunk_start INT NOT NULL,
+    accounts_credited INT NOT NULL DEFAULT 0,
+    interest DECIMAL(17, 2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (run_id, chunk_start),
+    FOREIGN KEY (run_id) REFERENCES interest_runs(run_id) ON DELETE CASCADE
+    );
+
+-- Ledger reconciliation runs (job.LedgerReconciler). An incremental run starts from the last finished run's to_transaction_id.
+CREATE TABLE IF NOT EXISTS reconciliation_runs (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    mode ENUM('FULL', 'INCREMENTAL') NOT NULL,
+    from_transaction_id BIGINT NOT NULL, -- Transactions after this ID were looked at (0 for a full run)
+    to_transaction_id BIGINT NOT NULL, -- Highest transaction ID when the run started: the next run's watermark
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP NULL, -- NULL while running, or if the run failed
+    accounts_checked BIGINT NOT NULL DEFAULT 0,
+    accounts_drifted BIGINT NOT NULL DEFAULT 0
+    );
+
+-- Accounts whose balance did not match the signed sum of their transactions, per run.
+-- No foreign key to accounts: the report outlives accounts deleted afterwards.
+CREATE TABLE IF NOT EXISTS reconciliation_drift (
+    run_id INT NOT NULL,
+    account_id INT NOT NULL,
+    balance DECIMAL(15, 2) NOT NULL,
+    ledger_total DECIMAL(17, 2) NOT NULL,
+    PRIMARY KEY (run_id, account_id),
+    FOREIGN KEY (run_id) REFERENCES reconciliation_runs(id) ON DELETE CASCADE
+    );
+
 -- Add indexes for performance
 CREATE INDEX idx_user_id ON accounts(user_id);
-CREATE INDEX idx_account_id ON transactions(account_id);
+-- Serves keyset-paginated history (WHERE account_id = ? ORDER BY transaction_date DESC, id DESC) as a range scan.
+-- Its account_id prefix also backs the account_id foreign key.
+-- Existing databases: CREATE INDEX idx_account_date_id ON transactions(account_id, transaction_date, id);
+--                     DROP INDEX idx_account_id ON transactions;
+CREATE INDEX idx_account_date_id ON transactions(account_id, transaction_date, id);
 CREATE INDEX idx_transaction_date ON transactions(transaction_date);
 CREATE INDEX idx_username ON users(username);
 
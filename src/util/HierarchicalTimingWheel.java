@@ -0,0 +1,154 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel: items are filed by deadline into buckets of ticks, so scheduling and firing
+ * cost O(1) per item however many are pending, and advancing the clock only looks at the buckets that come due.
+ * Level 0 has one bucket per tick; each higher level has one bucket per whole turn of the level below,
+ * and its buckets are moved down ("cascaded") as the clock reaches them.
+ * With 64 slots and 3 levels of 1-second ticks, deadlines up to about 3 days ahead can be held.
+ *
+ * Items never fire before their deadline; they fire at the first {@link #advanceTo} on or after it,
+ * rounded up to the tick.
+ *
+ * @param <T> The scheduled item.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int slotBits;
+    private final int slotMask;
+    private final int levels;
+    private final List<Entry<T>>[][] buckets;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long currentTick; // The next tick to fire; everything before it has fired
+    private int size;
+
+    /**
+     * @param tickMillis Resolution of the wheel.
+     * @param slotBits   log2 of the buckets per level.
+     * @param levels     Number of levels; the wheel spans nearly 2^(slotBits * levels) ticks.
+     * @param nowMillis  Current time; the wheel starts at its tick.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"}) // Generic arrays can only be created raw
+    public HierarchicalTimingWheel(long tickMillis, int slotBits, int levels, long nowMillis) {
+        if (tickMillis <= 0 || slotBits <= 0 || levels <= 0 || slotBits * levels >= 62) {
+            throw new IllegalArgumentException("Invalid timing wheel geometry.");
+        }
+        this.tickMillis = tickMillis;
+        this.slotBits = slotBits;
+        this.slotMask = (1 << slotBits) - 1;
+        this.levels = levels;
+        this.buckets = new List[levels][1 << slotBits];
+        for (List<Entry<T>>[] level : buckets) {
+            for (int i = 0; i < level.length; i++) {
+                level[i] = new ArrayList<>();
+            }
+        }
+        this.currentTick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    /**
+     * @return How far ahead of the wheel's current time a deadline can always be, in milliseconds
+     * (the top level's current turn is partly spent, so up to one top-level bucket less than the full span).
+     */
+    public long getSpanMillis() {
+        return ((long) slotMask << (slotBits * (levels - 1))) * tickMillis;
+    }
+
+    /**
+     * Adds an item. A deadline already passed fires at the next {@link #advanceTo}.
+     *
+     * @throws IllegalArgumentException if the deadline is beyond the wheel's span.
+     */
+    public void schedule(long deadlineMillis, T item) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        lock.lock();
+        try {
+            place(new Entry<>(Math.max(deadlineTick, currentTick), item));
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the wheel's clock forward and hands every item whose deadline is now reached to the consumer,
+     * in deadline order (to the tick). The consumer runs after the wheel is unlocked, so it may schedule more items.
+     *
+     * @return The number of items fired.
+     */
+    public int advanceTo(long nowMillis, Consumer<? super T> consumer) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        List<T> fired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (currentTick <= targetTick) {
+                if (size == 0) {
+                    currentTick = targetTick + 1; // Nothing to cascade or fire on the way
+                    break;
+                }
+                // Bring down the higher-level buckets that start at this tick, highest first, so entries can fall several levels
+                for (int level = levels - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (slotBits * level)) - 1)) == 0) {
+                        List<Entry<T>> bucket = buckets[level][slot(currentTick, level)];
+                        if (!bucket.isEmpty()) {
+                            List<Entry<T>> cascading = new ArrayList<>(bucket);
+                            bucket.clear();
+                            for (Entry<T> entry : cascading) {
+                                place(entry);
+                            }
+                        }
+                    }
+                }
+                List<Entry<T>> due = buckets[0][slot(currentTick, 0)];
+                for (Entry<T> entry : due) {
+                    fired.add(entry.item);
+                }
+                size -= due.size();
+                due.clear();
+                currentTick++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        fired.forEach(consumer);
+        return fired.size();
+    }
+
+    /**
+     * @return The number of items waiting to fire.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Files the entry at the lowest level whose current turn reaches its tick; called with the lock held
+    private void place(Entry<T> entry) {
+        for (int level = 0; level < levels; level++) {
+            int shift = slotBits * level;
+            if ((entry.tick >> shift) - (currentTick >> shift) <= slotMask) {
+                buckets[level][slot(entry.tick, level)].add(entry);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Deadline is beyond the timing wheel's span of " + getSpanMillis() + " ms.");
+    }
+
+    private int slot(long tick, int level) {
+        return (int) ((tick >> (slotBits * level)) & slotMask);
+    }
+
+    private record Entry<T>(long tick, T item) {
+    }
+}
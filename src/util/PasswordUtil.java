@@ -1,50 +1,351 @@
 package util;
 
 // IMPORTANT: Add a BCrypt library dependency (e.g., org.mindrot:jbcrypt:0.4)
+import metrics.Metrics;
+import metrics.OperationMetrics;
 import org.mindrot.jbcrypt.BCrypt; // Assuming use of jbcrypt
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Utility class for password hashing and verification using BCrypt.
+ *
+ * The work factor is calibrated once against a target hash time (bank.password.targetHashMs, 250 ms by default)
+ * unless fixed with bank.password.cost, and is never below 12, the cost hashes were originally made with. All hashing runs on a bounded pool that leaves one core free for the UI;
+ * when its queue is full, callers wait for space instead of piling more work onto the CPU.
+ * Pool statistics are published over JMX as "bank:type=PasswordHashing".
  */
 public class PasswordUtil {
 
     // Configure the workload factor (higher is slower but more secure)
-    private static final int BCRYPT_WORKLOAD = 12; // Standard value
+    private static final int MIN_BCRYPT_WORKLOAD = 12; // The cost stored hashes have always used; never go below it
+    private static final int MAX_BCRYPT_WORKLOAD = 14;
+    private static final int CALIBRATION_WORKLOAD = 10;
+    private static final long TARGET_HASH_MILLIS = Long.getLong("bank.password.targetHashMs", 250L);
+    private static final Integer FIXED_WORKLOAD = Integer.getInteger("bank.password.cost");
+
+    private static final int HASHING_THREADS = Integer.getInteger("bank.password.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int QUEUE_CAPACITY = Integer.getInteger("bank.password.queueCapacity", 256);
+
+    private static final OperationMetrics HASH_METRICS = Metrics.operation("password.hash");
+    private static final OperationMetrics VERIFY_METRICS = Metrics.operation("password.verify");
+
+    private static final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private static final LongAdder blockedSubmissions = new LongAdder();
+    private static final LongAdder rehashesScheduled = new LongAdder();
+    private static final LongAdder rehashesSkipped = new LongAdder();
+
+    private static final ThreadPoolExecutor HASHING_EXECUTOR = new ThreadPoolExecutor(
+            HASHING_THREADS, HASHING_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            HashingThread::new,
+            (task, executor) -> {
+                // Queue full: block the submitting thread until there is room (back-pressure)
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Password hashing executor is shut down");
+                }
+                blockedSubmissions.increment();
+                try {
+                    executor.getQueue().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting to queue a password hash", e);
+                }
+            });
+
+    private static volatile CompletableFuture<Integer> workload;
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new HashingStats(), new ObjectName("bank:type=PasswordHashing"));
+        } catch (JMException | SecurityException e) {
+            System.err.println("Could not register password hashing MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts calibrating the work factor on a background thread, so it is ready by the time the first user logs in.
+     * Safe to call more than once; hashing methods start the calibration themselves if needed.
+     */
+    public static void startCalibration() {
+        calibration();
+    }
+
+    /**
+     * @return The BCrypt cost used for new hashes (waits for calibration to finish if it is still running).
+     */
+    public static int getWorkload() {
+        return calibration().join();
+    }
+
+    private static CompletableFuture<Integer> calibration() {
+        CompletableFuture<Integer> current = workload;
+        if (current == null) {
+            synchronized (PasswordUtil.class) {
+                current = workload;
+                if (current == null) {
+                    if (FIXED_WORKLOAD != null) {
+                        if (FIXED_WORKLOAD < MIN_BCRYPT_WORKLOAD) {
+                            System.err.println("bank.password.cost " + FIXED_WORKLOAD + " is below the minimum, using " + MIN_BCRYPT_WORKLOAD);
+                        }
+                        current = CompletableFuture.completedFuture(Math.max(FIXED_WORKLOAD, MIN_BCRYPT_WORKLOAD));
+                    } else {
+                        current = CompletableFuture.supplyAsync(PasswordUtil::calibrate, task -> {
+                            Thread thread = new Thread(task, "bcrypt-calibration");
+                            thread.setDaemon(true);
+                            thread.start();
+                        });
+                    }
+                    workload = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Times a hash at a known cost and picks the highest cost whose estimated time fits the target
+     * (each +1 doubles BCrypt's work).
+     */
+    private static int calibrate() {
+        BCrypt.hashpw("calibration", BCrypt.gensalt(4)); // Warm up the JIT before timing
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(CALIBRATION_WORKLOAD));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double millisAtCalibration = best / 1_000_000.0;
+
+        int cost = MIN_BCRYPT_WORKLOAD;
+        while (cost < MAX_BCRYPT_WORKLOAD
+                && millisAtCalibration * Math.pow(2, cost + 1 - CALIBRATION_WORKLOAD) <= TARGET_HASH_MILLIS) {
+            cost++;
+        }
+        System.out.printf("BCrypt cost %d selected (cost %d took %.1f ms, target %d ms)%n",
+                cost, CALIBRATION_WORKLOAD, millisAtCalibration, TARGET_HASH_MILLIS);
+        return cost;
+    }
 
     /**
      * Hashes a plain text password using BCrypt.
+     * Runs on the hashing pool and waits for the result.
      *
      * @param plainPassword The password to hash.
      * @return The BCrypt hashed password string (includes salt).
      */
     public static String hashPassword(String plainPassword) {
+        return await(hashPasswordAsync(plainPassword));
+    }
+
+    /**
+     * Hashes a plain text password on the hashing pool without waiting.
+     *
+     * @param plainPassword The password to hash.
+     * @return A future with the BCrypt hash.
+     */
+    public static CompletableFuture<String> hashPasswordAsync(String plainPassword) {
         if (plainPassword == null || plainPassword.isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty.");
         }
+        int cost = getWorkload();
         // BCrypt.gensalt() generates a salt automatically
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(BCRYPT_WORKLOAD));
+        return submit(HASH_METRICS, () -> BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost)));
     }
 
     /**
      * Verifies a plain text password against a stored BCrypt hash.
+     * Runs on the hashing pool and waits for the result.
      *
      * @param plainPassword  The password attempt from the user.
      * @param hashedPassword The stored hash from the database.
      * @return true if the password matches the hash, false otherwise.
      */
     public static boolean verifyPassword(String plainPassword, String hashedPassword) {
+        return await(verifyPasswordAsync(plainPassword, hashedPassword));
+    }
+
+    /**
+     * Verifies a plain text password on the hashing pool without waiting.
+     *
+     * @return A future with true if the password matches the hash.
+     */
+    public static CompletableFuture<Boolean> verifyPasswordAsync(String plainPassword, String hashedPassword) {
         if (plainPassword == null || hashedPassword == null || plainPassword.isEmpty() || hashedPassword.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(VERIFY_METRICS, () -> {
+            try {
+                return BCrypt.checkpw(plainPassword, hashedPassword);
+            } catch (IllegalArgumentException e) {
+                // Handle cases where the hash is not in the expected format
+                System.err.println("Error verifying password hash format: " + e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @return true if the stored hash was made with a lower cost than new hashes use. Hashes with a higher cost are kept:
+     * re-hashing them would weaken them, and machines that calibrate differently would rewrite each other's hashes.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        // Format: $2a$12$<22 chars salt><31 chars hash>
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
             return false;
         }
         try {
-            return BCrypt.checkpw(plainPassword, hashedPassword);
-        } catch (IllegalArgumentException e) {
-            // Handle cases where the hash is not in the expected format
-            System.err.println("Error verifying password hash format: " + e.getMessage());
+            return Integer.parseInt(hashedPassword.substring(4, 6)) < getWorkload();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * After a successful verification, re-hashes the password at the current cost in the background if the stored
+     * hash used a lower one. Opportunistic: skipped when the hashing pool already has a backlog.
+     *
+     * @param plainPassword  The password that was just verified.
+     * @param hashedPassword The stored hash it was verified against.
+     * @param store          Receives the new hash (on a virtual thread, not the hashing pool) and should persist it.
+     * @return true if a re-hash was scheduled.
+     */
+    public static boolean rehashInBackgroundIfNeeded(String plainPassword, String hashedPassword, Consumer<String> store) {
+        if (!needsRehash(hashedPassword)) {
             return false;
         }
+        if (HASHING_EXECUTOR.getQueue().size() >= HASHING_THREADS) {
+            rehashesSkipped.increment(); // Logins waiting; try again on the next login
+            return false;
+        }
+        rehashesScheduled.increment();
+        hashPasswordAsync(plainPassword).thenAcceptAsync(store, task -> Thread.ofVirtual().start(task)).exceptionally(e -> {
+            System.err.println("Background password re-hash failed: " + e.getMessage());
+            return null;
+        });
+        return true;
+    }
+
+    private static <T> CompletableFuture<T> submit(OperationMetrics metrics, Supplier<T> task) {
+        long start = System.nanoTime(); // Includes queue wait, which is what callers experience
+        if (Thread.currentThread() instanceof HashingThread) {
+            // Already on the pool (e.g. a completion callback): run inline rather than wait on ourselves
+            T result = task.get();
+            metrics.record(start, true);
+            return CompletableFuture.completedFuture(result);
+        }
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(task, HASHING_EXECUTOR);
+        maxQueueDepth.accumulateAndGet(HASHING_EXECUTOR.getQueue().size(), Math::max);
+        future.whenComplete((result, error) -> metrics.record(start, error == null));
+        return future;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static class HashingThread extends Thread {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        HashingThread(Runnable task) {
+            super(task, "bcrypt-" + COUNT.incrementAndGet());
+            setDaemon(true);
+        }
+    }
+
+    /**
+     * JMX view of the hashing pool.
+     */
+    public interface PasswordHashingMXBean {
+        int getWorkload();
+
+        int getThreads();
+
+        int getActiveThreads();
+
+        int getQueueDepth();
+
+        int getMaxQueueDepth();
+
+        long getCompletedTasks();
+
+        long getBlockedSubmissions();
+
+        long getRehashesScheduled();
+
+        long getRehashesSkipped();
+    }
+
+    private static class HashingStats implements PasswordHashingMXBean {
+        @Override
+        public int getWorkload() {
+            CompletableFuture<Integer> current = workload;
+            return current != null && current.isDone() ? current.join() : -1; // -1 while calibrating
+        }
+
+        @Override
+        public int getThreads() {
+            return HASHING_THREADS;
+        }
+
+        @Override
+        public int getActiveThreads() {
+            return HASHING_EXECUTOR.getActiveCount();
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return HASHING_EXECUTOR.getQueue().size();
+        }
+
+        @Override
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+
+        @Override
+        public long getCompletedTasks() {
+            return HASHING_EXECUTOR.getCompletedTaskCount();
+        }
+
+        @Override
+        public long getBlockedSubmissions() {
+            return blockedSubmissions.sum();
+        }
+
+        @Override
+        public long getRehashesScheduled() {
+            return rehashesScheduled.sum();
+        }
+
+        @Override
+        public long getRehashesSkipped() {
+            return rehashesSkipped.sum();
+        }
     }
 
     /**
@@ -67,4 +368,4 @@ public class PasswordUtil {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package util;
 
-import java.math.BigDecimal;
+import model.Money;
+
 import java.util.regex.Pattern;
 
 /**
@@ -24,13 +25,13 @@ public class Validator {
     }
 
     /**
-     * Checks if a BigDecimal amount is positive (greater than zero).
+     * Checks if an amount is positive (greater than zero).
      *
-     * @param amount The BigDecimal amount to check.
+     * @param amount The amount to check.
      * @return true if the amount is not null and strictly positive, false otherwise.
      */
-    public static boolean isPositiveAmount(BigDecimal amount) {
-        return amount != null && amount.compareTo(BigDecimal.ZERO) > 0;
+    public static boolean isPositiveAmount(Money amount) {
+        return amount != null && amount.isPositive();
     }
 
     /**